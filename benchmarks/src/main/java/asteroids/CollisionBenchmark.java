@@ -0,0 +1,123 @@
+package asteroids;
+
+import java.util.Random;
+import static asteroids.Constants.*;
+
+/**
+ * Measures the cost of Engine.checkForCollisions as the number of participants
+ * grows from 100 to 100,000. The participants are spread over a field whose
+ * area grows with their number, so that the density matches a busy level of
+ * the game. If the broad phase is doing its job, the time per participant
+ * should stay roughly constant.
+ *
+ * The engine handles the pairs of types that the rules of the game handle,
+ * but does nothing about their collisions, so the same pairs collide every
+ * time. Each count is timed again with a listener for every pair, which
+ * makes the engine test the pairs, such as dust and bullets, that it would
+ * otherwise skip.
+ *
+ * Run with -Djava.awt.headless=true.
+ *
+ * @author Jackson Murphy
+ */
+public class CollisionBenchmark
+{
+    // Number of participants that share one screen-sized area of the field
+    private final static int DENSITY = 100;
+
+    // Handles collisions by doing nothing
+    private final static CollisionListener IGNORE = new CollisionListener()
+    {
+        public void collidedWith (Participant p1, Participant p2)
+        {
+        }
+    };
+
+    /**
+     * Runs the benchmark and prints one line per participant count
+     */
+    public static void main (String[] args)
+    {
+        System.out.printf("%10s %14s %16s %18s%n", "count", "us/check",
+                "ns/participant", "us/check all pairs");
+        for (int count = 100; count <= 100000; count *= 10)
+        {
+            Engine engine = createEngine(count, new Random(count));
+            int rounds = Math.max(5, 2000000 / count);
+            double nanos = time(engine, rounds);
+            engine.addCollisionListener(IGNORE);
+            double allNanos = time(engine, rounds);
+            System.out.printf("%10d %14.1f %16.1f %18.1f%n", count,
+                    nanos / 1000, nanos / count, allNanos / 1000);
+        }
+    }
+
+    /**
+     * Makes the engine handle collisions of asteroids with ships and bullets,
+     * as the rules of the game do, by doing nothing
+     */
+    static void handleGamePairs (Engine engine)
+    {
+        engine.addCollisionHandler(EntityStore.ASTEROID, EntityStore.SHIP,
+                IGNORE);
+        engine.addCollisionHandler(EntityStore.ASTEROID, EntityStore.BULLET,
+                IGNORE);
+    }
+
+    /**
+     * Warms up, then returns the mean time in nanoseconds of the given number
+     * of checks
+     */
+    private static double time (Engine engine, int rounds)
+    {
+        for (int i = 0; i < rounds; i++)
+        {
+            engine.checkForCollisions();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+        {
+            engine.checkForCollisions();
+        }
+        return (System.nanoTime() - start) / (double) rounds;
+    }
+
+    /**
+     * Creates an engine holding the given number of participants, one in ten
+     * of which is an asteroid and the rest of which are bullets and dust.
+     * Collisions are handled as by handleGamePairs.
+     */
+    static Engine createEngine (int count, Random random)
+    {
+        Engine engine = new Engine();
+        engine.clear();
+        handleGamePairs(engine);
+        double side = SIZE * Math.sqrt(count / (double) DENSITY);
+        for (int i = 0; i < count; i++)
+        {
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            Participant p;
+            if (i % 10 == 0)
+            {
+                p = new Asteroid(engine.getEntities(), random.nextInt(4),
+                        random.nextInt(3), x, y);
+            }
+            else if (i % 2 == 0)
+            {
+                p = new Bullet(engine.getEntities());
+            }
+            else
+            {
+                p = new Dust(engine.getEntities());
+            }
+            p.setPosition(x, y);
+            p.setRotation(2 * Math.PI * random.nextDouble());
+            engine.addParticipant(p);
+        }
+
+        // Bring the participants into play and compute their borders
+        engine.refresh();
+        return engine;
+    }
+}
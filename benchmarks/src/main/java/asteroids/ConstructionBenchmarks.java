@@ -0,0 +1,73 @@
+package asteroids;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cost of bringing an asteroid into existence, both by
+ * constructing a new one and by drawing one from a pool.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmarks
+{
+    // The store that holds the asteroids
+    private EntityStore store;
+
+    // Pool of asteroids that are reused
+    private ParticipantPool<Asteroid> pool;
+
+    // Variety and size of the next asteroid
+    private int count;
+
+    /**
+     * Creates an empty store and pool
+     */
+    @Setup
+    public void setUp ()
+    {
+        store = new EntityStore();
+        final EntityStore s = store;
+        pool = new ParticipantPool<Asteroid>("asteroids", 16)
+        {
+            protected Asteroid create ()
+            {
+                return new Asteroid(s, 0, 0, 0, 0);
+            }
+        };
+    }
+
+    /**
+     * Constructs an asteroid, then frees its slot so that the store doesn't
+     * grow
+     */
+    @Benchmark
+    public Asteroid construct ()
+    {
+        count++;
+        Asteroid a = new Asteroid(store, count & 3, count % 3, 100, 100);
+        store.release(a.getSlot());
+        return a;
+    }
+
+    /**
+     * Draws an asteroid from the pool and configures it, then returns it
+     */
+    @Benchmark
+    public Asteroid acquire ()
+    {
+        count++;
+        Asteroid a = pool.acquire();
+        a.setVariety(count & 3, count % 3);
+        a.setPosition(100, 100);
+        store.release(a.getSlot());
+        pool.release(a);
+        return a;
+    }
+}
@@ -0,0 +1,87 @@
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import static asteroids.Constants.*;
+
+/**
+ * Measures the work the engine does each tick as the number of participants
+ * grows. Collision checks are measured with the participants spread over a
+ * field whose area grows with their number, as in CollisionBenchmark. Whole
+ * refreshes are measured with the participants moving about the screen.
+ * Both engines test the pairs of types that the rules of the game handle.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmarks
+{
+    /**
+     * Number of participants in play
+     */
+    @Param({ "100", "1000", "10000" })
+    public int count;
+
+    // Engine whose participants are spread over a large field
+    private Engine spread;
+
+    // Engine whose participants move about the screen
+    private Engine moving;
+
+    /**
+     * Creates and populates both engines
+     */
+    @Setup
+    public void setUp ()
+    {
+        spread = CollisionBenchmark.createEngine(count, new Random(count));
+
+        Random random = new Random(count);
+        moving = new Engine();
+        moving.clear();
+        CollisionBenchmark.handleGamePairs(moving);
+        EntityStore store = moving.getEntities();
+        for (int i = 0; i < count; i++)
+        {
+            Participant p;
+            if (i % 10 == 0)
+            {
+                p = new Asteroid(store, random.nextInt(4), random.nextInt(3),
+                        0, 0);
+            }
+            else
+            {
+                p = new Bullet(store);
+            }
+            p.setPosition(random.nextDouble() * SIZE, random.nextDouble()
+                    * SIZE);
+            p.setVelocity(3, 2 * Math.PI * random.nextDouble());
+            moving.addParticipant(p);
+        }
+        moving.refresh();
+    }
+
+    /**
+     * Finds every collision among the spread-out participants
+     */
+    @Benchmark
+    public void checkForCollisions ()
+    {
+        spread.checkForCollisions();
+    }
+
+    /**
+     * Moves the participants on the screen and finds their collisions
+     */
+    @Benchmark
+    public void refresh ()
+    {
+        moving.refresh();
+    }
+}
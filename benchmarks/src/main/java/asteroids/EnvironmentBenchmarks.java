@@ -0,0 +1,57 @@
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how many steps per second a single Environment can take with an
+ * agent that picks its actions at random. Each episode that ends is followed
+ * by a new one with the next seed, so resets are included in the cost. The
+ * engine takes longer than the other benchmarks to warm up, so more warmup
+ * iterations are run.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentBenchmarks
+{
+    // The environment being stepped, and the seed of its next episode
+    private Environment environment;
+    private long seed;
+
+    // Chooses the actions
+    private Random random;
+
+    /**
+     * Creates the environment and starts the first episode
+     */
+    @Setup
+    public void setUp ()
+    {
+        environment = new Environment();
+        environment.reset(seed++);
+        random = new Random(1);
+    }
+
+    /**
+     * Takes one step with a random action, starting a new episode if the
+     * last one is over. Returns the reward so that the work isn't optimized
+     * away.
+     */
+    @Benchmark
+    public float step ()
+    {
+        if (environment.isDone())
+        {
+            environment.reset(seed++);
+        }
+        environment.step(random.nextInt(Environment.ACTIONS));
+        return environment.getReward();
+    }
+}
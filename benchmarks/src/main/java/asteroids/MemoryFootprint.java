@@ -0,0 +1,96 @@
+package asteroids;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import static asteroids.Constants.*;
+
+/**
+ * Estimates how many bytes of heap each participant occupies once it is in
+ * play, has moved, and has been drawn. For each type of participant, a large
+ * number of them are put into an engine and the growth of the heap is divided by
+ * their number.
+ *
+ * Run with -Djava.awt.headless=true and a heap of a few gigabytes.
+ *
+ * @author Jackson Murphy
+ */
+public class MemoryFootprint
+{
+    // Number of participants of each type to measure
+    private final static int COUNT = 200000;
+
+    /**
+     * Runs the measurement and prints one line per type of participant
+     */
+    public static void main (String[] args)
+    {
+        String[] kinds = { "asteroid", "bullet", "dust", "debris", "ship" };
+        BufferedImage image = new BufferedImage(SIZE, SIZE,
+                BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+
+        // Spread the participants out so that few of them collide
+        double side = SIZE * Math.sqrt(COUNT / 100.0);
+
+        for (String kind : kinds)
+        {
+            Engine engine = new Engine();
+            engine.clear();
+            engine.refresh();
+            Screen screen = new Screen(engine);
+            long before = usedMemory();
+            EntityStore store = engine.getEntities();
+            for (int i = 0; i < COUNT; i++)
+            {
+                Participant p;
+                if (kind.equals("asteroid"))
+                {
+                    p = new Asteroid(store, random.nextInt(4),
+                            random.nextInt(3), 0, 0);
+                }
+                else if (kind.equals("bullet"))
+                {
+                    p = new Bullet(store);
+                }
+                else if (kind.equals("dust"))
+                {
+                    p = new Dust(store);
+                }
+                else if (kind.equals("debris"))
+                {
+                    p = new Debris(store);
+                }
+                else
+                {
+                    p = new Ship(store);
+                }
+                p.setPosition(random.nextDouble() * side, random.nextDouble()
+                        * side);
+                p.setVelocity(1, random.nextDouble() * 2 * Math.PI);
+                engine.addParticipant(p);
+            }
+            engine.refresh();
+            Graphics2D g = image.createGraphics();
+            screen.paintComponent(g);
+            g.dispose();
+            long after = usedMemory();
+            System.out.printf("%-9s %6.1f bytes/participant%n", kind,
+                    (after - before) / (double) COUNT);
+            engine.clear();
+        }
+    }
+
+    /**
+     * Returns the number of bytes in use on the heap after collecting garbage
+     */
+    private static long usedMemory ()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,161 @@
+package asteroids;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.util.Random;
+import static asteroids.Constants.*;
+
+/**
+ * Checks that NarrowPhase gives the same answers as intersecting the borders
+ * as java.awt.geom.Area objects, which is how overlaps used to be decided.
+ * Pairs of participants of every type, variety and size are placed at
+ * random near each other, so that about two thirds of them overlap and the
+ * rest mostly miss narrowly, and each pair is decided both ways. The corpus
+ * is generated from a fixed seed, so every run checks the same pairs.
+ *
+ * The arguments are the number of pairs (default 1,000,000) and the seed
+ * (default 1). Every mismatch is printed, up to ten, and the exit status is
+ * 1 if there were any. Run with -Djava.awt.headless=true. mvn verify runs it
+ * on narrowphase.pairs pairs and fails if there are any mismatches.
+ *
+ * @author Jackson Murphy
+ */
+public class NarrowPhaseCheck
+{
+    // Number of mismatches that are printed in full
+    private final static int SHOWN = 10;
+
+    /**
+     * Runs the check and prints a summary
+     */
+    public static void main (String[] args)
+    {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+
+        // One participant of each kind, reused for every pair
+        EntityStore store = new EntityStore();
+        Participant[] kinds = new Participant[4 * ASTEROID_SCALE.length + 4];
+        int n = 0;
+        for (int variety = 0; variety < 4; variety++)
+        {
+            for (int size = 0; size < ASTEROID_SCALE.length; size++)
+            {
+                kinds[n++] = new Asteroid(store, variety, size, 0, 0);
+            }
+        }
+        kinds[n++] = new Ship(store);
+        kinds[n++] = new Bullet(store);
+        kinds[n++] = new Dust(store);
+        kinds[n++] = new Debris(store);
+        Participant[] second = new Participant[kinds.length];
+        n = 0;
+        for (int variety = 0; variety < 4; variety++)
+        {
+            for (int size = 0; size < ASTEROID_SCALE.length; size++)
+            {
+                second[n++] = new Asteroid(store, variety, size, 0, 0);
+            }
+        }
+        second[n++] = new Ship(store);
+        second[n++] = new Bullet(store);
+        second[n++] = new Dust(store);
+        second[n++] = new Debris(store);
+
+        int overlapping = 0;
+        int mismatches = 0;
+        for (int i = 0; i < pairs; i++)
+        {
+            Participant a = kinds[random.nextInt(kinds.length)];
+            Participant b = second[random.nextInt(second.length)];
+
+            // Put b somewhere within reach of a, well away from the edges
+            double reach = 1.2 * (store.radius[a.getSlot()]
+                    + store.radius[b.getSlot()]);
+            double distance = reach * random.nextDouble();
+            double direction = 2 * Math.PI * random.nextDouble();
+            place(a, SIZE / 2, SIZE / 2, 2 * Math.PI * random.nextDouble());
+            place(b, SIZE / 2 + distance * Math.cos(direction), SIZE / 2
+                    + distance * Math.sin(direction), 2 * Math.PI
+                    * random.nextDouble());
+
+            boolean expected = intersects(a, b);
+            boolean actual = NarrowPhase.overlaps(store, a.getSlot(),
+                    b.getSlot());
+            if (expected)
+            {
+                overlapping++;
+            }
+            if (expected != actual)
+            {
+                if (mismatches++ < SHOWN)
+                {
+                    System.out.printf("pair %d: %s at (%s, %s) turned %s and "
+                            + "%s at (%s, %s) turned %s: Area says %b, "
+                            + "NarrowPhase says %b%n", i, describe(a),
+                            a.getX(), a.getY(), a.getRotation(), describe(b),
+                            b.getX(), b.getY(), b.getRotation(), expected,
+                            actual);
+                }
+            }
+        }
+        System.out.printf("%d pairs from seed %d: %d overlapping, %d "
+                + "mismatches%n", pairs, seed, overlapping, mismatches);
+        if (mismatches > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Puts the participant and its border at the given position and rotation
+     */
+    private static void place (Participant p, double x, double y,
+            double rotation)
+    {
+        p.setPosition(x, y);
+        p.setRotation(rotation);
+        p.setSpeedX(0);
+        p.setSpeedY(0);
+        p.move();
+    }
+
+    /**
+     * Decides whether the borders of a and b overlap by intersecting them as
+     * Areas
+     */
+    private static boolean intersects (Participant a, Participant b)
+    {
+        Area area = new Area(border(a));
+        area.intersect(new Area(border(b)));
+        return !area.isEmpty();
+    }
+
+    /**
+     * Returns the outline of p placed where its border is
+     */
+    private static Shape border (Participant p)
+    {
+        AffineTransform trans = AffineTransform.getTranslateInstance(p.getX(),
+                p.getY());
+        trans.concatenate(AffineTransform.getRotateInstance(p.getRotation()));
+        return trans.createTransformedShape(p.getOutline());
+    }
+
+    /**
+     * Names the kind of participant, with its variety and size if it is an
+     * asteroid
+     */
+    private static String describe (Participant p)
+    {
+        String name = p.getClass().getSimpleName();
+        if (p instanceof Asteroid)
+        {
+            Asteroid a = (Asteroid) p;
+            return name + " " + a.getVariety() + "/" + a.getSize();
+        }
+        return name;
+    }
+}
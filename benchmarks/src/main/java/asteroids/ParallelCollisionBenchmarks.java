@@ -0,0 +1,76 @@
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how collision checks scale with the number of threads. A thread
+ * count of 0 uses the single-threaded search; other counts use a ForkJoinPool
+ * with that many threads, whatever the number of participants.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelCollisionBenchmarks
+{
+    /**
+     * Number of participants in play
+     */
+    @Param({ "10000", "100000" })
+    public int count;
+
+    /**
+     * Number of threads used to find collisions
+     */
+    @Param({ "0", "1", "2", "4", "8" })
+    public int threads;
+
+    // Engine whose participants are spread over a large field
+    private Engine engine;
+
+    // Pool used by the engine, if any
+    private ForkJoinPool pool;
+
+    /**
+     * Creates and populates the engine
+     */
+    @Setup
+    public void setUp ()
+    {
+        engine = CollisionBenchmark.createEngine(count, new Random(count));
+        pool = threads == 0 ? null : new ForkJoinPool(threads);
+        engine.setCollisionPool(pool);
+        if (pool != null && count < Constants.PARALLEL_COLLISION_THRESHOLD)
+        {
+            throw new IllegalStateException("Too few participants");
+        }
+    }
+
+    /**
+     * Shuts down the pool
+     */
+    @TearDown
+    public void tearDown ()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds every collision among the participants
+     */
+    @Benchmark
+    public void checkForCollisions ()
+    {
+        engine.checkForCollisions();
+    }
+}
@@ -0,0 +1,125 @@
+package asteroids;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import static asteroids.Constants.*;
+
+/**
+ * Measures the work done on behalf of a single participant: moving it,
+ * testing it for overlap with nearby asteroids, and drawing it into an
+ * offscreen image.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticipantBenchmarks
+{
+    // Number of asteroids that the participant is tested against
+    private final static int PARTNERS = 1024;
+
+    /**
+     * The kind of participant being measured
+     */
+    @Param({ "asteroid", "ship", "bullet" })
+    public String kind;
+
+    // The participant being measured
+    private Participant participant;
+
+    // Asteroids placed near the participant, some of which overlap it
+    private Participant[] partners;
+    private int next;
+
+    // Offscreen image that the participant is drawn into
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    /**
+     * Puts the participant and its partners into play
+     */
+    @Setup
+    public void setUp ()
+    {
+        Random random = new Random(1);
+        Engine engine = new Engine();
+        engine.clear();
+        EntityStore store = engine.getEntities();
+        if (kind.equals("asteroid"))
+        {
+            participant = new Asteroid(store, 0, 2, 0, 0);
+        }
+        else if (kind.equals("ship"))
+        {
+            participant = new Ship(store);
+        }
+        else
+        {
+            participant = new Bullet(store);
+        }
+        participant.setPosition(SIZE / 2, SIZE / 2);
+        participant.setVelocity(3, 1);
+        participant.setRotation(0.5);
+        engine.addParticipant(participant);
+
+        partners = new Participant[PARTNERS];
+        for (int i = 0; i < PARTNERS; i++)
+        {
+            double angle = 2 * Math.PI * random.nextDouble();
+            double distance = 80 * random.nextDouble();
+            partners[i] = new Asteroid(store, random.nextInt(4),
+                    random.nextInt(3), SIZE / 2 + distance * Math.cos(angle),
+                    SIZE / 2 + distance * Math.sin(angle));
+            partners[i].setRotation(2 * Math.PI * random.nextDouble());
+            engine.addParticipant(partners[i]);
+        }
+        engine.refresh();
+
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    /**
+     * Releases the offscreen image
+     */
+    @TearDown
+    public void tearDown ()
+    {
+        graphics.dispose();
+    }
+
+    /**
+     * Moves the participant by one tick
+     */
+    @Benchmark
+    public void move ()
+    {
+        participant.move();
+    }
+
+    /**
+     * Tests the participant against the next of its partners
+     */
+    @Benchmark
+    public boolean overlaps ()
+    {
+        next = (next + 1) & (PARTNERS - 1);
+        return participant.overlaps(partners[next]);
+    }
+
+    /**
+     * Draws the participant into the offscreen image
+     */
+    @Benchmark
+    public void draw ()
+    {
+        participant.draw(graphics);
+    }
+}
@@ -0,0 +1,122 @@
+package asteroids;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import static asteroids.Constants.*;
+
+/**
+ * Compares drawing a screenful of participants one at a time, as
+ * Participant.draw does, with drawing them through the Renderer, with and
+ * without antialiasing. Nine in ten of the participants are bullets and dust
+ * and the rest are asteroids, as in a busy game.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmarks
+{
+    /**
+     * Number of participants on the screen
+     */
+    @Param({ "100", "1000", "5000" })
+    public int count;
+
+    /**
+     * Whether outlines are antialiased
+     */
+    @Param({ "true", "false" })
+    public boolean antialiased;
+
+    // Engine holding the participants
+    private Engine engine;
+
+    // Draws the participants in batches
+    private Renderer renderer;
+
+    // Offscreen image that the participants are drawn into
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    /**
+     * Puts the participants on the screen
+     */
+    @Setup
+    public void setUp ()
+    {
+        Random random = new Random(count);
+        engine = new Engine();
+        engine.clear();
+        EntityStore store = engine.getEntities();
+        for (int i = 0; i < count; i++)
+        {
+            Participant p;
+            if (i % 10 == 0)
+            {
+                p = new Asteroid(store, random.nextInt(4), random.nextInt(3),
+                        0, 0);
+            }
+            else if (i % 2 == 0)
+            {
+                p = new Bullet(store);
+            }
+            else
+            {
+                p = new Dust(store);
+            }
+            p.setPosition(random.nextDouble() * SIZE, random.nextDouble()
+                    * SIZE);
+            p.setRotation(2 * Math.PI * random.nextDouble());
+            engine.addParticipant(p);
+        }
+        engine.refresh();
+        renderer = new Renderer();
+        renderer.setAntialiased(antialiased);
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    /**
+     * Releases the offscreen image
+     */
+    @TearDown
+    public void tearDown ()
+    {
+        graphics.dispose();
+    }
+
+    /**
+     * Draws each participant with its own call, setting up the graphics
+     * state each time
+     */
+    @Benchmark
+    public void perParticipant ()
+    {
+        EntityStore store = engine.getEntities();
+        Object hint = antialiased ? RenderingHints.VALUE_ANTIALIAS_ON
+                : RenderingHints.VALUE_ANTIALIAS_OFF;
+        for (int k = 0; k < store.liveCount; k++)
+        {
+            int s = store.live[k];
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, hint);
+            graphics.draw(store.getBorder(s, store.interpolation));
+        }
+    }
+
+    /**
+     * Draws the participants with the Renderer
+     */
+    @Benchmark
+    public void batched ()
+    {
+        renderer.draw(graphics, engine.getEntities());
+    }
+}
@@ -0,0 +1,43 @@
+package asteroids;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks. It accepts the usual JMH command line options, but
+ * unless told otherwise writes its results as JSON to jmh-result.json, so that
+ * runs on different versions of the game can be compared.
+ *
+ * Run with java -Djava.awt.headless=true -jar benchmarks/target/benchmarks.jar
+ *
+ * @author Jackson Murphy
+ */
+public class RunBenchmarks
+{
+    /**
+     * Runs the benchmarks selected by the command line
+     */
+    public static void main (String[] args) throws Exception
+    {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList()
+                || options.shouldListProfilers()
+                || options.shouldListResultFormats()
+                || options.shouldListWithParams())
+        {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue())
+        {
+            builder.resultFormat(ResultFormatType.JSON);
+            builder.result(options.getResult().orElse("jmh-result.json"));
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package asteroids;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import static asteroids.Constants.*;
+
+/**
+ * Compares stroking the antialiased outlines of a screenful of participants
+ * with copying them from pre-rendered sprites. Nine in ten of the
+ * participants are bullets and dust and the rest are asteroids, as in a busy
+ * game. The sprites are all made during setup, so only hits are measured.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBenchmarks
+{
+    /**
+     * Number of participants on the screen
+     */
+    @Param({ "100", "1000", "5000" })
+    public int count;
+
+    // Engine holding the participants
+    private Engine engine;
+
+    // Renderers that stroke outlines and that copy sprites
+    private Renderer stroking;
+    private Renderer copying;
+
+    // Offscreen image that the participants are drawn into
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    /**
+     * Puts the participants on the screen and fills the sprite cache
+     */
+    @Setup
+    public void setUp ()
+    {
+        Random random = new Random(count);
+        engine = new Engine();
+        engine.clear();
+        EntityStore store = engine.getEntities();
+        for (int i = 0; i < count; i++)
+        {
+            Participant p;
+            if (i % 10 == 0)
+            {
+                p = new Asteroid(store, random.nextInt(4), random.nextInt(3),
+                        0, 0);
+            }
+            else if (i % 2 == 0)
+            {
+                p = new Bullet(store);
+            }
+            else
+            {
+                p = new Dust(store);
+            }
+            p.setPosition(random.nextDouble() * SIZE, random.nextDouble()
+                    * SIZE);
+            p.setRotation(2 * Math.PI * random.nextDouble());
+            engine.addParticipant(p);
+        }
+        engine.refresh();
+        stroking = new Renderer();
+        copying = new Renderer();
+        copying.setSpriteCache(new SpriteCache());
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        copying.draw(graphics, store);
+    }
+
+    /**
+     * Releases the offscreen image
+     */
+    @TearDown
+    public void tearDown ()
+    {
+        graphics.dispose();
+    }
+
+    /**
+     * Strokes each outline
+     */
+    @Benchmark
+    public void stroked ()
+    {
+        stroking.draw(graphics, engine.getEntities());
+    }
+
+    /**
+     * Copies each outline from a sprite
+     */
+    @Benchmark
+    public void sprites ()
+    {
+        copying.draw(graphics, engine.getEntities());
+    }
+}
@@ -0,0 +1,119 @@
+package asteroids;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.*;
+import static asteroids.Constants.*;
+
+/**
+ * Measures what streaming telemetry adds to each tick, as the number of
+ * participants grows. The participants drift about the screen without
+ * colliding, so that the cost of the collision search doesn't hide that of
+ * the telemetry; move moves them alone, and moveAndRecord moves them and
+ * records the tick, so the difference between the two is the cost to the
+ * game's thread. Before each call the benchmark waits for the writer
+ * to catch up, as it would between the ticks of a game, so that no tick is
+ * left out. The stream is written to a temporary file, which is deleted
+ * afterwards.
+ *
+ * @author Jackson Murphy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryBenchmarks
+{
+    /**
+     * Number of participants in play
+     */
+    @Param({ "100", "1000", "10000" })
+    public int count;
+
+    // Engine whose participants move about the screen, and its store
+    private Engine engine;
+    private EntityStore store;
+
+    // The stream of the engine's participants, and the file it goes to
+    private Telemetry telemetry;
+    private File file;
+
+    /**
+     * Populates the engine and starts the stream
+     */
+    @Setup
+    public void setUp () throws IOException
+    {
+        Random random = new Random(count);
+        engine = new Engine(count);
+        engine.clear();
+        store = engine.getEntities();
+        for (int i = 0; i < count; i++)
+        {
+            Participant p;
+            if (i % 10 == 0)
+            {
+                p = new Asteroid(store, random.nextInt(4), random.nextInt(3),
+                        0, 0);
+            }
+            else
+            {
+                p = new Bullet(store);
+            }
+            p.setPosition(random.nextDouble() * SIZE, random.nextDouble()
+                    * SIZE);
+            p.setVelocity(3, 2 * Math.PI * random.nextDouble());
+            engine.addParticipant(p);
+        }
+        engine.refresh();
+
+        file = File.createTempFile("telemetry", ".tel");
+        telemetry = new Telemetry(file.getPath(), engine);
+    }
+
+    /**
+     * Waits until the writer has taken every tick recorded
+     */
+    @Setup(Level.Invocation)
+    public void waitForWriter ()
+    {
+        while (!telemetry.isCaughtUp())
+        {
+            LockSupport.parkNanos(100000);
+        }
+    }
+
+    /**
+     * Ends the stream and deletes it
+     */
+    @TearDown
+    public void tearDown () throws IOException
+    {
+        telemetry.close();
+        file.delete();
+    }
+
+    /**
+     * Moves the participants
+     */
+    @Benchmark
+    public void move ()
+    {
+        store.moveAll();
+    }
+
+    /**
+     * Moves the participants and streams the tick
+     */
+    @Benchmark
+    public void moveAndRecord ()
+    {
+        store.moveAll();
+        telemetry.recordTick();
+    }
+}
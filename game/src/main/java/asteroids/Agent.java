@@ -0,0 +1,18 @@
+package asteroids;
+
+/**
+ * Must be implemented by objects that play games in an Environment, such as
+ * scripted players and trained control agents.
+ *
+ * @author Jackson Murphy
+ */
+public interface Agent
+{
+    /**
+     * Returns the action to take next in environment, a combination of the
+     * Engine input bits. The latest observation is in
+     * environment.getObservation(), and scripted agents may look at
+     * environment.getEngine() as well.
+     */
+    public int act (Environment environment);
+}
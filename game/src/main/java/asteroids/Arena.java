@@ -0,0 +1,310 @@
+package asteroids;
+
+import java.util.Arrays;
+import static asteroids.Constants.*;
+
+/**
+ * An asteroid field shared by several players, each with a ship of their own.
+ * The field is an Engine that is never given a game of its own to play, so it
+ * moves the asteroids, bullets and particles, finds the collisions and splits
+ * the asteroids just as it does in a single player game, while the arena
+ * keeps the players' ships, scores and deaths.
+ *
+ * Players steer, thrust and fire with the same Engine input bits and at the
+ * same rates as in a single player game. A ship that hits an asteroid is
+ * destroyed and another is placed END_DELAY_TICKS later; there is no limit on
+ * lives. Each asteroid shot scores for the player who fired the bullet, and
+ * ships don't collide with each other or with bullets. When the last asteroid
+ * is destroyed, four more are placed.
+ *
+ * @author Jackson Murphy
+ */
+public class Arena
+{
+    // The field in which the players' ships fly
+    private Engine engine;
+
+    // For each player: whether someone is playing, their ship (or null while
+    // they wait for the next), their score and number of deaths, the ticks
+    // left before their next ship is placed, and before they may fire again
+    private boolean[] joined;
+    private Ship[] ships;
+    private int[] scores;
+    private int[] deaths;
+    private int[] respawnTicks;
+    private int[] fireTicks;
+
+    // The player who owns the ship or bullet in each slot of the store. Only
+    // the slots of ships and bullets in play are meaningful.
+    private int[] owners;
+
+    // Number of players, ticks played, and waves of asteroids placed
+    private int playerCount;
+    private long tick;
+    private int waves;
+
+    /**
+     * Creates an empty arena whose field is played with the given seed
+     */
+    public Arena (long seed)
+    {
+        engine = new Engine(seed);
+        engine.setLegend("");
+        engine.addCollisionHandler(EntityStore.ASTEROID, EntityStore.SHIP,
+                new CollisionListener()
+                {
+                    public void collidedWith (Participant p1, Participant p2)
+                    {
+                        shipCollision((Asteroid) p1, (Ship) p2);
+                    }
+                });
+        engine.addCollisionHandler(EntityStore.ASTEROID, EntityStore.BULLET,
+                new CollisionListener()
+                {
+                    public void collidedWith (Participant p1, Participant p2)
+                    {
+                        bulletCollision((Asteroid) p1, (Bullet) p2);
+                    }
+                });
+        joined = new boolean[MAX_PLAYERS];
+        ships = new Ship[MAX_PLAYERS];
+        scores = new int[MAX_PLAYERS];
+        deaths = new int[MAX_PLAYERS];
+        respawnTicks = new int[MAX_PLAYERS];
+        fireTicks = new int[MAX_PLAYERS];
+        owners = new int[64];
+        waves = 1;
+    }
+
+    /**
+     * Adds a player to the arena and places their ship. Returns the player's
+     * number, or -1 if the arena is full.
+     */
+    public int join ()
+    {
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            if (!joined[p])
+            {
+                joined[p] = true;
+                scores[p] = 0;
+                deaths[p] = 0;
+                fireTicks[p] = 0;
+                respawnTicks[p] = 0;
+                playerCount++;
+                placeShip(p);
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a player and their ship from the arena
+     */
+    public void leave (int player)
+    {
+        if (joined[player])
+        {
+            if (ships[player] != null)
+            {
+                engine.removeParticipant(ships[player]);
+                ships[player] = null;
+            }
+            joined[player] = false;
+            playerCount--;
+        }
+    }
+
+    /**
+     * Advances the arena by one tick. inputs[p] holds the Engine input bits
+     * of player p during the tick; the inputs of players who aren't playing
+     * are ignored.
+     */
+    public void step (int[] inputs)
+    {
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            if (!joined[p])
+            {
+                continue;
+            }
+            if (fireTicks[p] > 0)
+            {
+                fireTicks[p]--;
+            }
+            if (ships[p] == null)
+            {
+                if (--respawnTicks[p] <= 0)
+                {
+                    placeShip(p);
+                }
+                continue;
+            }
+            applyInputs(p, inputs[p]);
+        }
+
+        // Replace the asteroids once they have all been destroyed
+        if (engine.countParticipants(EntityStore.ASTEROID) == 0)
+        {
+            engine.placeAsteroids();
+            waves++;
+        }
+
+        // The engine isn't accepting inputs, so it only moves the field
+        engine.step(0);
+        tick++;
+    }
+
+    /**
+     * Steers, thrusts and fires player p's ship as the inputs direct, in the
+     * same way as the engine does for its own ship
+     */
+    private void applyInputs (int p, int inputs)
+    {
+        Ship ship = ships[p];
+        if ((inputs & Engine.LEFT) != 0)
+        {
+            ship.rotate(-SHIP_TURN);
+        }
+        if ((inputs & Engine.RIGHT) != 0)
+        {
+            ship.rotate(SHIP_TURN);
+        }
+        if ((inputs & Engine.THRUST) != 0)
+        {
+            ship.accelerate(SHIP_THRUST);
+        }
+        if ((inputs & Engine.FIRE) != 0 && fireTicks[p] == 0)
+        {
+            setOwner(engine.shootBullet(ship), p);
+            fireTicks[p] = ARENA_FIRE_TICKS;
+        }
+    }
+
+    /**
+     * Places a new ship for player p on a circle around the center of the
+     * screen, at a spot of its own, facing away from the center
+     */
+    private void placeShip (int p)
+    {
+        double angle = 2 * Math.PI * p / MAX_PLAYERS;
+        Ship ship = new Ship(engine.getEntities());
+        ship.setPosition(SIZE / 2 + EDGE_OFFSET * Math.cos(angle), SIZE / 2
+                + EDGE_OFFSET * Math.sin(angle));
+        ship.setRotation(angle);
+        engine.addParticipant(ship);
+        setOwner(ship, p);
+        ships[p] = ship;
+    }
+
+    /**
+     * Records that the participant belongs to player p
+     */
+    private void setOwner (Participant participant, int p)
+    {
+        int s = participant.getSlot();
+        if (s >= owners.length)
+        {
+            owners = Arrays.copyOf(owners, Math.max(s + 1, owners.length * 2));
+        }
+        owners[s] = p;
+    }
+
+    /**
+     * A ship has hit an asteroid. Both are destroyed, and the ship's player
+     * waits for the next.
+     */
+    private void shipCollision (Asteroid a, Ship s)
+    {
+        int player = owners[s.getSlot()];
+        engine.destroyAsteroid(a);
+        engine.createDebris(s);
+        engine.removeParticipant(s);
+        ships[player] = null;
+        respawnTicks[player] = END_DELAY_TICKS;
+        deaths[player]++;
+    }
+
+    /**
+     * A bullet has hit an asteroid. Both are destroyed, and the player who
+     * fired the bullet scores.
+     */
+    private void bulletCollision (Asteroid a, Bullet b)
+    {
+        engine.removeParticipant(b);
+        scores[owners[b.getSlot()]] += engine.destroyAsteroid(a);
+    }
+
+    /**
+     * Returns the engine that holds the field
+     */
+    public Engine getEngine ()
+    {
+        return engine;
+    }
+
+    /**
+     * Returns the ship of player p, or null if they don't have one in play
+     */
+    public Ship getShip (int p)
+    {
+        return ships[p];
+    }
+
+    /**
+     * Returns the player who owns the ship or bullet in slot s of the store
+     */
+    int getOwner (int s)
+    {
+        return owners[s];
+    }
+
+    /**
+     * Reports whether player p is playing
+     */
+    public boolean isJoined (int p)
+    {
+        return joined[p];
+    }
+
+    /**
+     * Returns the score of player p
+     */
+    public int getScore (int p)
+    {
+        return scores[p];
+    }
+
+    /**
+     * Returns the number of ships player p has lost
+     */
+    public int getDeaths (int p)
+    {
+        return deaths[p];
+    }
+
+    /**
+     * Returns the number of players
+     */
+    public int getPlayerCount ()
+    {
+        return playerCount;
+    }
+
+    /**
+     * Returns the number of ticks played
+     */
+    public long getTick ()
+    {
+        return tick;
+    }
+
+    /**
+     * Returns the number of waves of asteroids that have been placed
+     */
+    public int getWaves ()
+    {
+        return waves;
+    }
+}
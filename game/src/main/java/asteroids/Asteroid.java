@@ -0,0 +1,172 @@
+package asteroids;
+
+import java.awt.Shape;
+import java.awt.geom.*;
+import static asteroids.Constants.*;
+
+/**
+ * Represents asteroids
+ * 
+ * @author Joe Zachary
+ *
+ */
+class Asteroid extends Participant
+{
+    // The outlines of every variety and size of asteroid, shared by all
+    // asteroids
+    private final static Shape[][] outlines =
+            new Shape[4][ASTEROID_SCALE.length];
+
+    // The polygons of those outlines. They are made up front so that
+    // recycling an asteroid doesn't take a lock, which would hold up games
+    // being played on other threads.
+    private final static Outline[][] polygons =
+            new Outline[4][ASTEROID_SCALE.length];
+    static
+    {
+        for (int variety = 0; variety < polygons.length; variety++)
+        {
+            for (int size = 0; size < ASTEROID_SCALE.length; size++)
+            {
+                polygons[variety][size] =
+                        Outline.of(createAsteroid(variety, size));
+            }
+        }
+    }
+
+    /**
+     * Create an asteroid of the specified variety and size, whose state is
+     * held in store, and position it at the provided coordinates.
+     */
+    public Asteroid (EntityStore store, int variety, int size, double x,
+            double y)
+    {
+        super(store, EntityStore.ASTEROID, createAsteroid(variety, size));
+        store.size[getSlot()] = (byte) size;
+        setPosition(x, y);
+    }
+
+    /**
+     * Changes the variety and size of the asteroid. This is used when an
+     * asteroid is recycled.
+     */
+    void setVariety (int variety, int size)
+    {
+        getStore().setOutline(getSlot(), polygons[variety][size]);
+        getStore().size[getSlot()] = (byte) size;
+    }
+
+    /**
+     * Reports whether there is an asteroid of the given variety and size
+     */
+    static boolean isValid (int variety, int size)
+    {
+        return variety >= 0 && variety < polygons.length && size >= 0
+                && size < ASTEROID_SCALE.length;
+    }
+
+    /**
+     * Returns the outline of the asteroid based on its variety and size,
+     * creating it the first time it is needed.
+     */
+    private static synchronized Shape createAsteroid (int variety, int size)
+    {
+        if (outlines[variety][size] != null)
+        {
+            return outlines[variety][size];
+        }
+
+        // This will contain the outline
+        Path2D.Double poly = new Path2D.Double();
+
+        // Fill out according to variety
+        if (variety == 0)
+        {
+            poly.moveTo(0, -30);
+            poly.lineTo(28, -15);
+            poly.lineTo(20, 20);
+            poly.lineTo(4, 8);
+            poly.lineTo(-1, 30);
+            poly.lineTo(-12, 15);
+            poly.lineTo(-5, 2);
+            poly.lineTo(-25, 7);
+            poly.lineTo(-10, -25);
+            poly.closePath();
+        }
+        else if (variety == 1)
+        {
+            poly.moveTo(10, -28);
+            poly.lineTo(7, -16);
+            poly.lineTo(30, -9);
+            poly.lineTo(30, 9);
+            poly.lineTo(10, 13);
+            poly.lineTo(5, 30);
+            poly.lineTo(-8, 28);
+            poly.lineTo(-6, 6);
+            poly.lineTo(-27, 12);
+            poly.lineTo(-30, -11);
+            poly.lineTo(-6, -15);
+            poly.lineTo(-6, -28);
+            poly.closePath();
+        }
+        else if (variety == 2)
+        {
+            poly.moveTo(10, -30);
+            poly.lineTo(30, 0);
+            poly.lineTo(15, 30);
+            poly.lineTo(0, 15);
+            poly.lineTo(-15, 30);
+            poly.lineTo(-30, 0);
+            poly.lineTo(-10, -30);
+            poly.closePath();
+        }
+        else
+        {
+            poly.moveTo(30, -18);
+            poly.lineTo(5, 5);
+            poly.lineTo(30, 15);
+            poly.lineTo(15, 30);
+            poly.lineTo(0, 25);
+            poly.lineTo(-15, 30);
+            poly.lineTo(-25, 8);
+            poly.lineTo(-10, -25);
+            poly.lineTo(0, -30);
+            poly.lineTo(10, -30);
+            poly.closePath();
+        }
+
+        // Scale to the desired size
+        double scale = ASTEROID_SCALE[size];
+        poly.transform(AffineTransform.getScaleInstance(scale, scale));
+
+        // Return the outline
+        outlines[variety][size] = poly;
+        return poly;
+    }
+
+    /**
+     * Returns the variety of the asteroid, from 0 to 3
+     */
+    public int getVariety ()
+    {
+        int outline = getStore().outline[getSlot()];
+        int size = getSize();
+        for (int variety = 0; variety < polygons.length; variety++)
+        {
+            if (polygons[variety][size].getId() == outline)
+            {
+                return variety;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the size of the asteroid
+     */
+    public int getSize ()
+    {
+        return getStore().size[getSlot()];
+    }
+
+}
\ No newline at end of file
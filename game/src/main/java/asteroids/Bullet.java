@@ -13,23 +13,22 @@ import static asteroids.Constants.*;
  */
 public class Bullet extends Participant
 {
-    // The outline shape of a Bullet
-    private Shape outline;
+    // The outline shape shared by all Bullets
+    private final static Shape outline = createBullet();
 
     /**
-     * Creates a bullet.
+     * Creates a bullet whose state is held in store.
      */
-    public Bullet ()
+    public Bullet (EntityStore store)
     {
-        outline = createBullet();
-
+        super(store, EntityStore.BULLET, outline);
     }
 
     /**
      * Creates the shape of a Bullet object, which is represented by a 2x2 pixel
      * square centered at (0,0).
      */
-    private Shape createBullet ()
+    private static Shape createBullet ()
     {
         // This will contain the outline
         Path2D.Double poly = new Path2D.Double();
@@ -44,13 +43,4 @@ public class Bullet extends Participant
         return poly;
     }
 
-    /**
-     * Returns the outline of a Bullet object.
-     */
-    @Override
-    Shape getOutline ()
-    {
-        return outline;
-    }
-
 }
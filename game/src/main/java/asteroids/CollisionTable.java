@@ -0,0 +1,249 @@
+package asteroids;
+
+import java.util.Arrays;
+
+/**
+ * Decides what happens when two participants collide, by the pair of their
+ * types. A handler is registered once for a pair of types, such as an
+ * asteroid and a ship, and is always given the participants in the order of
+ * the types it was registered with, whichever order the collision was found
+ * in, so it needs no instanceof tests. The handlers for a pair are called in
+ * the order they were registered.
+ *
+ * Pairs of types that have no handler, such as two asteroids, or dust and
+ * debris, can never affect the game, so the engine asks isHandled before
+ * testing a pair and skips those pairs before any geometry is done. The
+ * table counts, for each pair of types, how many pairs were tested and how
+ * many of them collided.
+ *
+ * Handlers may be registered and unregistered from within a handler. The
+ * handlers being called are unaffected, but the change applies to every
+ * pair tested afterwards.
+ *
+ * @author Jackson Murphy
+ */
+class CollisionTable
+{
+    /**
+     * The number of types of participant, as in EntityStore
+     */
+    final static int TYPES = EntityStore.OTHER + 1;
+
+    // Names of the types, for reporting
+    private final static String[] NAMES = { "ship", "asteroid", "bullet",
+            "dust", "debris", "other" };
+
+    // Shared by the pairs with no handlers
+    private final static CollisionListener[] NONE = new CollisionListener[0];
+    private final static boolean[] NO_SWAPS = new boolean[0];
+
+    // For each ordered pair of types, at t1 * TYPES + t2: the handlers to be
+    // called when a participant of type t1 collides with one of type t2, and
+    // for each handler, whether it was registered with the types the other
+    // way round and is to be given the participants swapped. The arrays are
+    // replaced rather than changed, so that they can be read while a
+    // collision is being handled.
+    private CollisionListener[][] handlers;
+    private boolean[][] swaps;
+
+    // For each ordered pair of types, the number of pairs tested and the
+    // number that collided
+    private long[] tests;
+    private long[] hits;
+
+    /**
+     * Creates a table with no handlers
+     */
+    CollisionTable ()
+    {
+        handlers = new CollisionListener[TYPES * TYPES][];
+        swaps = new boolean[TYPES * TYPES][];
+        Arrays.fill(handlers, NONE);
+        Arrays.fill(swaps, NO_SWAPS);
+        tests = new long[TYPES * TYPES];
+        hits = new long[TYPES * TYPES];
+    }
+
+    /**
+     * Registers a handler for collisions between participants of types first
+     * and second. It will be given the participant of type first, then the
+     * participant of type second.
+     */
+    void register (int first, int second, CollisionListener handler)
+    {
+        add(first * TYPES + second, handler, false);
+        if (first != second)
+        {
+            add(second * TYPES + first, handler, true);
+        }
+    }
+
+    /**
+     * Registers a handler for collisions between participants of any types,
+     * which is given the participants in whichever order they are found
+     */
+    void registerAll (CollisionListener handler)
+    {
+        for (int t1 = 0; t1 < TYPES; t1++)
+        {
+            for (int t2 = 0; t2 < TYPES; t2++)
+            {
+                add(t1 * TYPES + t2, handler, false);
+            }
+        }
+    }
+
+    /**
+     * Removes the handler from every pair of types it was registered for
+     */
+    void unregister (CollisionListener handler)
+    {
+        for (int pair = 0; pair < handlers.length; pair++)
+        {
+            CollisionListener[] list = handlers[pair];
+            for (int i = 0; i < list.length; i++)
+            {
+                if (list[i] == handler)
+                {
+                    remove(pair, i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the handler to those for the ordered pair
+     */
+    private void add (int pair, CollisionListener handler, boolean swap)
+    {
+        int n = handlers[pair].length;
+        CollisionListener[] list = Arrays.copyOf(handlers[pair], n + 1);
+        boolean[] swapped = Arrays.copyOf(swaps[pair], n + 1);
+        list[n] = handler;
+        swapped[n] = swap;
+        handlers[pair] = list;
+        swaps[pair] = swapped;
+    }
+
+    /**
+     * Removes the i'th handler for the ordered pair
+     */
+    private void remove (int pair, int i)
+    {
+        int n = handlers[pair].length;
+        if (n == 1)
+        {
+            handlers[pair] = NONE;
+            swaps[pair] = NO_SWAPS;
+            return;
+        }
+        CollisionListener[] list = new CollisionListener[n - 1];
+        boolean[] swapped = new boolean[n - 1];
+        System.arraycopy(handlers[pair], 0, list, 0, i);
+        System.arraycopy(handlers[pair], i + 1, list, i, n - 1 - i);
+        System.arraycopy(swaps[pair], 0, swapped, 0, i);
+        System.arraycopy(swaps[pair], i + 1, swapped, i, n - 1 - i);
+        handlers[pair] = list;
+        swaps[pair] = swapped;
+    }
+
+    /**
+     * Reports whether any handler is interested in collisions between
+     * participants of types t1 and t2
+     */
+    boolean isHandled (int t1, int t2)
+    {
+        return handlers[t1 * TYPES + t2].length != 0;
+    }
+
+    /**
+     * Counts a test of a pair of participants of types t1 and t2
+     */
+    void countTest (int t1, int t2)
+    {
+        tests[t1 * TYPES + t2]++;
+    }
+
+    /**
+     * Counts a collision between p1 and p2, of types t1 and t2, and calls
+     * the handlers for their types
+     */
+    void dispatch (int t1, int t2, Participant p1, Participant p2)
+    {
+        int pair = t1 * TYPES + t2;
+        hits[pair]++;
+        CollisionListener[] list = handlers[pair];
+        boolean[] swapped = swaps[pair];
+        for (int i = 0; i < list.length; i++)
+        {
+            if (swapped[i])
+            {
+                list[i].collidedWith(p2, p1);
+            }
+            else
+            {
+                list[i].collidedWith(p1, p2);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pairs of participants of types t1 and t2, in
+     * either order, that have been tested
+     */
+    long getTests (int t1, int t2)
+    {
+        return count(tests, t1, t2);
+    }
+
+    /**
+     * Returns the number of pairs of participants of types t1 and t2, in
+     * either order, that have collided
+     */
+    long getHits (int t1, int t2)
+    {
+        return count(hits, t1, t2);
+    }
+
+    /**
+     * Returns the count for the pair of types, in either order
+     */
+    private static long count (long[] counts, int t1, int t2)
+    {
+        long n = counts[t1 * TYPES + t2];
+        return t1 == t2 ? n : n + counts[t2 * TYPES + t1];
+    }
+
+    /**
+     * Forgets the tests and collisions counted so far
+     */
+    void clearCounts ()
+    {
+        Arrays.fill(tests, 0);
+        Arrays.fill(hits, 0);
+    }
+
+    /**
+     * Lists the tests and collisions of each pair of types that has been
+     * tested
+     */
+    @Override
+    public String toString ()
+    {
+        StringBuilder s = new StringBuilder("collisions:");
+        for (int t1 = 0; t1 < TYPES; t1++)
+        {
+            for (int t2 = t1; t2 < TYPES; t2++)
+            {
+                long tested = getTests(t1, t2);
+                if (tested > 0)
+                {
+                    s.append(String.format("%n  %s-%s: %d tests, %d hits",
+                            NAMES[t1], NAMES[t2], tested, getHits(t1, t2)));
+                }
+            }
+        }
+        return s.toString();
+    }
+}
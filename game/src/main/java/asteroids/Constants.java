@@ -0,0 +1,304 @@
+package asteroids;
+
+/**
+ * Provides constants governing the game
+ * 
+ * @author Jackson Murphy, Joe Zachary
+ */
+
+public class Constants
+{
+    /**
+     * The height and width of the game area.
+     */
+    public final static int SIZE = 750;
+
+    /**
+     * Game title
+     */
+    public final static String TITLE = "CS 1410 Asteroids";
+
+    /**
+     * Label on start game button
+     */
+    public final static String START_LABEL = "Start Game";
+    
+    /**
+     * Label on the pause game button
+     */
+    public final static String PAUSE_LABEL = "Pause";
+    
+    /**
+     * Speed beyond which participants may not accelerate
+     */
+    public final static double SPEED_LIMIT = 15;
+
+    /**
+     * Amount of "friction" that can be applied to ships so that they eventually
+     * stop. Should be negative.
+     */
+    public final static double FRICTION = -0.05;
+
+    /**
+     * The number of milliseconds between the beginnings of frame refreshes
+     */
+    public final static int FRAME_INTERVAL = 33;
+
+    /**
+     * The number of times per second the screen is repainted when the rate
+     * of the display can't be found out
+     */
+    public final static int DISPLAY_RATE = 60;
+
+    /**
+     * The largest number of refreshes that are run back to back when the game
+     * falls behind. Any further refreshes that are due are skipped.
+     */
+    public final static int MAX_CATCH_UP_TICKS = 5;
+
+    /**
+     * The number of milliseconds between the end of a life and the display of
+     * the next screen.
+     */
+    public final static int END_DELAY = 2500;
+
+    /**
+     * The number of ticks between the end of a life and the display of the
+     * next screen.
+     */
+    public final static int END_DELAY_TICKS = END_DELAY / FRAME_INTERVAL;
+
+    /**
+     * The number of milliseconds that a passing legend, such as "Ouch!", is
+     * displayed.
+     */
+    public final static int LEGEND_DURATION = 1000;
+
+    /**
+     * The number of ticks that a passing legend is displayed.
+     */
+    public final static int LEGEND_TICKS = LEGEND_DURATION / FRAME_INTERVAL;
+
+    /**
+     * The offset in pixels from the edges of the screen of newly-placed
+     * asteroids.
+     */
+    public final static int EDGE_OFFSET = 100;
+
+    /**
+     * The game over message
+     */
+    public final static String GAME_OVER = "Game Over";
+
+    /**
+     * Number of asteroids that must be destroyed to complete a level.
+     */
+    public final static int ASTEROID_COUNT = 28;
+
+    /**
+     * Duration in milliseconds of a bullet before it disappears.
+     */
+    public final static int BULLET_DURATION = 1000;
+
+    /**
+     * Number of frame refreshes that a bullet lasts.
+     */
+    public final static int BULLET_LIFETIME = BULLET_DURATION / FRAME_INTERVAL;
+
+    /**
+     * Speed, in pixels per frame, of a bullet.
+     */
+    public final static double BULLET_SPEED = 15;
+    
+    /**
+     * Duration in milliseconds of dust before it disappears.
+     */
+    public final static int DUST_DURATION = 1500;
+    
+    /**
+     * Number of frame refreshes that dust lasts.
+     */
+    public final static int DUST_LIFETIME = DUST_DURATION / FRAME_INTERVAL;
+
+    /**
+     * Speed, in pixels per frame, of a dust particle
+     */
+    public final static double DUST_SPEED = 1;
+    
+    /**
+     * Duration in milliseconds of debris before it disappears.
+     */
+    public final static int DEBRIS_DURATION = 2000;
+    
+    /**
+     * Number of frame refreshes that debris lasts.
+     */
+    public final static int DEBRIS_LIFETIME = DEBRIS_DURATION / FRAME_INTERVAL;
+
+    /**
+     * Speed, in pixels per frame, of a debris particle
+     */
+    public final static double DEBRIS_SPEED = 1;
+    
+    /**
+     * Scaling factors used for asteroids of size 0, 1, and 2.
+     */
+    public final static double[] ASTEROID_SCALE = { 0.5, 1.0, 2.0 };
+
+    /**
+     * The ship's acceleration value.
+     */
+    public final static double ACCELERATION_VALUE = 1.0;
+
+    /**
+     * The number of milliseconds between firings of the ship's acceleration
+     * timer.
+     */
+    public final static int SHIP_ACCEL_INTERVAL = 100;
+
+    /**
+     * The number of milliseconds between firings of the ship's left- and
+     * right-rotation timers.
+     */
+    public final static int SHIP_ROTATION_INTERVAL = 40;
+
+    /**
+     * The amount by which the ship accelerates during each tick that it is
+     * thrusting. This matches an acceleration of ACCELERATION_VALUE every
+     * SHIP_ACCEL_INTERVAL milliseconds.
+     */
+    public final static double SHIP_THRUST = ACCELERATION_VALUE
+            * FRAME_INTERVAL / SHIP_ACCEL_INTERVAL;
+
+    /**
+     * The angle in radians through which the ship turns during each tick that
+     * it is turning. This matches a turn of PI/16 every SHIP_ROTATION_INTERVAL
+     * milliseconds.
+     */
+    public final static double SHIP_TURN = Math.PI / 16 * FRAME_INTERVAL
+            / SHIP_ROTATION_INTERVAL;
+
+    /**
+     * The width and height in pixels of the cells used to find participants
+     * that are near enough to each other to possibly collide.
+     */
+    public final static int COLLISION_CELL_SIZE = 64;
+
+    /**
+     * The number of participants at which collisions start being found on
+     * several threads, if more than one is available.
+     */
+    public final static int PARALLEL_COLLISION_THRESHOLD = 2000;
+
+    /**
+     * The largest number of separate rectangles that the changed parts of the
+     * screen are gathered into each frame. Beyond this, rectangles are
+     * merged.
+     */
+    public final static int MAX_DIRTY_REGIONS = 16;
+
+    /**
+     * The fraction of the screen that can change in a frame before the whole
+     * screen is repainted instead of just the changed parts.
+     */
+    public final static double FULL_REPAINT_COVERAGE = 0.5;
+
+    /**
+     * The number of rotations, evenly spaced around the circle, at which
+     * sprites of the participants' outlines are drawn.
+     */
+    public final static int SPRITE_ROTATIONS = 64;
+
+    /**
+     * The most memory in bytes that sprites are allowed to take up by
+     * default. The least recently used sprites are discarded to stay under
+     * it. Every outline in the game at every rotation takes up about 13MB.
+     */
+    public final static long SPRITE_CACHE_BYTES = 16L << 20;
+
+    /**
+     * The number of milliseconds of play that can be rewound, and how far
+     * back each press of the rewind key goes
+     */
+    public final static int REWIND_DURATION = 10000;
+    public final static int REWIND_STEP = 1000;
+
+    /**
+     * The number of ticks of play that can be rewound, and how far back each
+     * press of the rewind key goes
+     */
+    public final static int REWIND_TICKS = REWIND_DURATION / FRAME_INTERVAL;
+    public final static int REWIND_STEP_TICKS = REWIND_STEP / FRAME_INTERVAL;
+
+    /**
+     * The number of ticks between the keyframes of the rewind history
+     */
+    public final static int REWIND_KEYFRAME_TICKS = 30;
+
+    /**
+     * The number of bytes set aside for the keyframes of the rewind history.
+     * A keyframe of a typical game takes a few KB.
+     */
+    public final static int REWIND_BUFFER_BYTES = 2 << 20;
+
+    /**
+     * The file that F5 saves a snapshot of the game to, and F9 loads it from
+     */
+    public final static String SNAPSHOT_FILE = "asteroids.snapshot";
+
+    /**
+     * The port the multiplayer server listens on
+     */
+    public final static int SERVER_PORT = 7777;
+
+    /**
+     * The largest number of players that can share one arena
+     */
+    public final static int MAX_PLAYERS = 64;
+
+    /**
+     * The number of ticks a player in an arena must wait between shots,
+     * which keeps each player to about eight bullets in play at once
+     */
+    public final static int ARENA_FIRE_TICKS = (BULLET_LIFETIME + 7) / 8;
+
+    /**
+     * The number of ticks between the keyframes of a telemetry stream
+     */
+    public final static int TELEMETRY_KEYFRAME_TICKS = 300;
+
+    /**
+     * The number of ticks of telemetry that can wait to be encoded. If the
+     * writer falls so far behind that they are all waiting, ticks are left
+     * out of the stream rather than holding up the game.
+     */
+    public final static int TELEMETRY_COPIES = 8;
+
+    /**
+     * The number of bytes of telemetry gathered before they are written
+     */
+    public final static int TELEMETRY_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * The number of microseconds that recording the telemetry of a tick is
+     * allowed to take on the game's thread. Ticks that take longer are
+     * counted.
+     */
+    public final static int TELEMETRY_BUDGET = 250;
+
+    /**
+     * Number of refreshes covered by one turn of the wheel that tracks the
+     * lifetimes of participants. Lifetimes longer than this still work, but
+     * cost a little more to track.
+     */
+    public final static int LIFETIME_WHEEL_SIZE = 128;
+
+    /**
+     * The largest number of idle bullets, dust particles, debris particles
+     * and asteroids that are kept for reuse.
+     */
+    public final static int BULLET_POOL_SIZE = 16;
+    public final static int DUST_POOL_SIZE = 96;
+    public final static int DEBRIS_POOL_SIZE = 12;
+    public final static int ASTEROID_POOL_SIZE = 64;
+}
@@ -0,0 +1,559 @@
+package asteroids;
+
+import java.awt.event.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import static asteroids.Constants.*;
+
+/**
+ * Controls a game of asteroids. The controller turns button presses and key
+ * strokes into commands and inputs for the engine, and keeps the labels of
+ * the game up to date as the engine is stepped.
+ * 
+ * @author Jackson Murphy and Joe Zachary
+ */
+public class Controller implements ActionListener, KeyListener
+{
+    // Steps the engine on its own thread
+    private SimulationLoop loop;
+
+    // The controls that are held down, as Engine input bits
+    private int held;
+
+    // Whether the fire key has been pressed since the last tick
+    private boolean fire;
+
+    // The score, lives and level most recently shown on the labels
+    private int shownScore;
+    private int shownLives;
+    private int shownLevel;
+
+    // Records everything the engine is told to do, or null if the game isn't
+    // being recorded
+    private Recorder recorder;
+
+    // Streams the participants of every tick to a file, or null if they
+    // aren't being streamed
+    private Telemetry telemetry;
+
+    // The recent history of the game, which can be rewound
+    private Rewind rewind;
+
+    // The Game, Screen and Engine objects being controlled
+    private Game game;
+    private Screen screen;
+    private Engine engine;
+
+    /**
+     * Constructs a controller to coordinate the game and screen
+     */
+    public Controller (Game game, Screen screen)
+    {
+        this(game, screen, null);
+    }
+
+    /**
+     * Constructs a controller to coordinate the game and screen, recording
+     * the game with recorder if it isn't null. The recorder should have been
+     * started with the seed of the screen's engine, before the engine has
+     * been stepped.
+     */
+    public Controller (Game game, Screen screen, Recorder recorder)
+    {
+        // Record the game, screen and engine objects
+        this.game = game;
+        this.screen = screen;
+        this.engine = screen.getEngine();
+        this.recorder = recorder;
+        rewind = new Rewind(engine, REWIND_TICKS, REWIND_KEYFRAME_TICKS,
+                REWIND_BUFFER_BYTES);
+
+        // The labels start out showing a score of 0, 3 lives and level 1
+        shownScore = 0;
+        shownLives = 3;
+        shownLevel = 1;
+
+        // Listen to the keys. The engine ignores them unless a game is in
+        // progress.
+        screen.addKeyListener(this);
+
+        // Start the simulation loop, which will step the engine through the
+        // splash screen
+        loop = new SimulationLoop(this);
+        loop.start();
+    }
+
+    /**
+     * Returns a summary of how well the participant pools are working
+     */
+    public String getPoolStatistics ()
+    {
+        synchronized (engine)
+        {
+            return engine.getPoolStatistics();
+        }
+    }
+
+    /**
+     * Returns a summary of how closely the simulation loop has kept to its
+     * schedule
+     */
+    public String getLoopStatistics ()
+    {
+        return loop.toString();
+    }
+
+    /**
+     * Returns a summary of the intervals between frames shown by active
+     * rendering
+     */
+    public String getPresentStatistics ()
+    {
+        return screen.getPresentStatistics();
+    }
+
+    /**
+     * Returns a summary of how much of the screen has been redrawn each
+     * frame
+     */
+    public String getDirtyStatistics ()
+    {
+        return screen.getDirtyStatistics();
+    }
+
+    /**
+     * Returns a summary of how well the sprite cache is working
+     */
+    public String getSpriteStatistics ()
+    {
+        return screen.getSpriteStatistics();
+    }
+
+    /**
+     * Returns a summary of how long each phase of a tick and painting have
+     * taken
+     */
+    public String getPhaseStatistics ()
+    {
+        synchronized (engine)
+        {
+            return engine.getTimer().toString();
+        }
+    }
+
+    /**
+     * Returns a summary of the pairs of participants tested for collisions,
+     * and the collisions found, for each pair of types
+     */
+    public String getCollisionStatistics ()
+    {
+        synchronized (engine)
+        {
+            return engine.getCollisionStatistics();
+        }
+    }
+
+    /**
+     * Returns a summary of how much rewind history is kept and what it costs
+     */
+    public String getRewindStatistics ()
+    {
+        synchronized (engine)
+        {
+            return rewind.toString();
+        }
+    }
+
+    /**
+     * Reports whether the game is paused, in which case the simulation loop
+     * neither ticks nor repaints
+     */
+    boolean isPaused ()
+    {
+        synchronized (engine)
+        {
+            return engine.isPaused();
+        }
+    }
+
+    /**
+     * Advances the engine by one tick with the controls as they are now, and
+     * updates any labels whose values have changed. Called by the simulation
+     * loop.
+     */
+    void tick ()
+    {
+        int score, lives, level;
+        synchronized (engine)
+        {
+            int inputs = fire ? held | Engine.FIRE : held;
+            rewind.recordTick(inputs);
+            engine.step(inputs);
+            record(inputs);
+            if (telemetry != null)
+            {
+                telemetry.recordTick();
+            }
+            fire = false;
+            score = engine.getScore();
+            lives = engine.getLives();
+            level = engine.getLevel();
+        }
+        if (score != shownScore)
+        {
+            shownScore = score;
+            game.setScore("Score: " + score);
+        }
+        if (lives != shownLives)
+        {
+            shownLives = lives;
+            game.setLives("Lives: " + lives);
+        }
+        if (level != shownLevel)
+        {
+            shownLevel = level;
+            game.setLevel("Level: " + level);
+        }
+    }
+
+    /**
+     * Draws the screen part of the way between the last two ticks. Called by
+     * the simulation loop, and after a jump while the game is paused.
+     */
+    void render (double alpha)
+    {
+        screen.render(alpha);
+    }
+
+    /**
+     * This method will be invoked because of button presses.
+     */
+    @Override
+    public void actionPerformed (ActionEvent e)
+    {
+        // The start button has been pressed. Stop whatever we're doing
+        // and bring up the initial screen
+        if (e.getActionCommand() == "Start")
+        {
+            synchronized (engine)
+            {
+                engine.newGame();
+                record(Recorder.NEW_GAME);
+                held = 0;
+                fire = false;
+            }
+            loop.wake();
+            game.setStartButtonLabel("New Game");
+
+            // In case a new game was started while the game was paused,
+            // correct the label on the pause button
+            game.setPauseLabel("Pause");
+
+            // Give focus to the game screen
+            screen.requestFocusInWindow();
+        }
+
+        // The pause button has been pressed. Pause or resume the game
+        // depending on the game's current state.
+        else if (e.getActionCommand() == "Pause")
+        {
+            boolean paused;
+            synchronized (engine)
+            {
+                paused = !engine.isPaused();
+                engine.setPaused(paused);
+                record(paused ? Recorder.PAUSE : Recorder.RESUME);
+
+                // A shot requested just before pausing, or while paused,
+                // is dropped
+                fire = false;
+            }
+            if (!paused)
+            {
+                loop.wake();
+            }
+
+            // Update the pause button's label
+            game.setPauseLabel(paused ? "Resume" : "Pause");
+
+            // Return focus to the game screen on resuming
+            if (!paused)
+            {
+                screen.requestFocusInWindow();
+            }
+        }
+    }
+
+    /**
+     * Records a tick with the given inputs, or a command if event is one of
+     * the Recorder commands. Commands are also kept in the rewind history.
+     * If the recording can't be written it is abandoned. Called while
+     * holding the engine's lock.
+     */
+    private void record (int event)
+    {
+        if (event >= Recorder.NEW_GAME)
+        {
+            rewind.recordCommand(event);
+        }
+        if (recorder == null)
+        {
+            return;
+        }
+        try
+        {
+            if (event >= Recorder.NEW_GAME)
+            {
+                recorder.recordCommand(event);
+            }
+            else
+            {
+                recorder.recordTick(event);
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Recording abandoned: " + e);
+            recorder = null;
+        }
+    }
+
+    /**
+     * Streams the participants of every tick from now on with telemetry,
+     * which should have been started for the screen's engine
+     */
+    public void setTelemetry (Telemetry telemetry)
+    {
+        synchronized (engine)
+        {
+            this.telemetry = telemetry;
+        }
+    }
+
+    /**
+     * Ends the recording, if the game is being recorded, and the telemetry
+     * stream, if there is one. This is called when the game exits.
+     */
+    public void finish ()
+    {
+        synchronized (engine)
+        {
+            stopRecording();
+            if (telemetry != null)
+            {
+                try
+                {
+                    telemetry.close();
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Telemetry abandoned: " + e);
+                }
+                telemetry = null;
+            }
+        }
+    }
+
+    /**
+     * Ends the recording, if the game is being recorded, with the score and
+     * level reached so far
+     */
+    public void stopRecording ()
+    {
+        synchronized (engine)
+        {
+            if (recorder != null)
+            {
+                try
+                {
+                    recorder.close(engine.getScore(), engine.getLevel());
+                }
+                catch (IOException e)
+                {
+                    System.err.println("Recording abandoned: " + e);
+                }
+                recorder = null;
+            }
+        }
+    }
+
+    /**
+     * Saves a snapshot of the game to SNAPSHOT_FILE
+     */
+    private void saveSnapshot ()
+    {
+        synchronized (engine)
+        {
+            try
+            {
+                Snapshot.save(engine, SNAPSHOT_FILE);
+            }
+            catch (IOException e)
+            {
+                System.err.println("Snapshot not saved: " + e);
+            }
+        }
+    }
+
+    /**
+     * Carries on the game from the snapshot in SNAPSHOT_FILE. A recording
+     * can't describe the jump, so it is ended once the file has been found
+     * to hold a snapshot. The telemetry stream carries on from a keyframe.
+     */
+    private void loadSnapshot ()
+    {
+        ByteBuffer snapshot;
+        try
+        {
+            snapshot = Snapshot.open(SNAPSHOT_FILE);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Snapshot not loaded: " + e);
+            return;
+        }
+        stopRecording();
+        boolean paused;
+        synchronized (engine)
+        {
+            try
+            {
+                Snapshot.load(snapshot, engine);
+            }
+            catch (RuntimeException e)
+            {
+                System.err.println("Snapshot not loaded: " + SNAPSHOT_FILE
+                        + " is not a snapshot: " + e);
+                return;
+            }
+            rewind.clear();
+            if (telemetry != null)
+            {
+                telemetry.markJump();
+            }
+            paused = engine.isPaused();
+            held = 0;
+            fire = false;
+        }
+        showJump(paused);
+    }
+
+    /**
+     * Rewinds the game by REWIND_STEP_TICKS, or as far as the history goes.
+     * A recording can't describe the jump, so it is ended first. The
+     * telemetry stream carries on from a keyframe.
+     */
+    private void rewindStep ()
+    {
+        boolean paused;
+        synchronized (engine)
+        {
+            long target = Math.max(rewind.getOldestTick(),
+                    rewind.getTick() - REWIND_STEP_TICKS);
+            if (!rewind.canRewindTo(target))
+            {
+                return;
+            }
+            stopRecording();
+            rewind.rewindTo(target);
+            if (telemetry != null)
+            {
+                telemetry.markJump();
+            }
+            paused = engine.isPaused();
+            held = 0;
+            fire = false;
+        }
+        showJump(paused);
+    }
+
+    /**
+     * Carries on after the game has jumped to another state. The simulation
+     * loop is woken if the game is running. While the game is paused the
+     * loop doesn't draw, so the new state is drawn once here. Called without
+     * the engine's lock, which the screen takes while drawing.
+     */
+    private void showJump (boolean paused)
+    {
+        if (paused)
+        {
+            render(1);
+        }
+        else
+        {
+            loop.wake();
+        }
+        game.setPauseLabel(paused ? "Resume" : "Pause");
+    }
+
+    /**
+     * Returns the Engine input bit that corresponds to a key code, or 0 if
+     * the key isn't one of the controls that can be held down
+     */
+    private static int getControl (int keyCode)
+    {
+        switch (keyCode)
+        {
+        case KeyEvent.VK_LEFT:
+            return Engine.LEFT;
+        case KeyEvent.VK_RIGHT:
+            return Engine.RIGHT;
+        case KeyEvent.VK_UP:
+            return Engine.THRUST;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Deals with certain key presses. The arrow keys steer and accelerate the
+     * ship for as long as they are held down, the space bar shoots a bullet,
+     * F3 shows or hides the timing overlay, F5 saves a snapshot of the game
+     * and F9 loads it, and backspace rewinds the game by a second.
+     */
+    @Override
+    public void keyPressed (KeyEvent e)
+    {
+        if (e.getKeyCode() == KeyEvent.VK_F3)
+        {
+            screen.setOverlay(!screen.isOverlay());
+        }
+        else if (e.getKeyCode() == KeyEvent.VK_F5)
+        {
+            saveSnapshot();
+        }
+        else if (e.getKeyCode() == KeyEvent.VK_F9)
+        {
+            loadSnapshot();
+        }
+        else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE)
+        {
+            rewindStep();
+        }
+        synchronized (engine)
+        {
+            held |= getControl(e.getKeyCode());
+            if (e.getKeyCode() == KeyEvent.VK_SPACE)
+            {
+                fire = true;
+            }
+        }
+    }
+
+    /**
+     * Releasing an arrow key stops the ship from turning or accelerating.
+     */
+    @Override
+    public void keyReleased (KeyEvent e)
+    {
+        synchronized (engine)
+        {
+            held &= ~getControl(e.getKeyCode());
+        }
+    }
+
+    @Override
+    public void keyTyped (KeyEvent e)
+    {
+    }
+}
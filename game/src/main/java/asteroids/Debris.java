@@ -11,22 +11,22 @@ import java.awt.geom.Path2D;
 public class Debris extends Participant
 {
 
-    // The outline of a debris object
-    private Shape outline;
+    // The outline shared by all debris objects
+    private final static Shape outline = createDebris();
 
     /**
-     * Constructs a debris object
+     * Constructs a debris object whose state is held in store
      */
-    public Debris ()
+    public Debris (EntityStore store)
     {
-        outline = createDebris();
+        super(store, EntityStore.DEBRIS, outline);
     }
 
     /**
      * Creates the shape of a debris object, which is represented by a triangle
      * centered at (0,0) with a height of 14 and a width of 2 pixels.
      */
-    private Shape createDebris ()
+    private static Shape createDebris ()
     {
 
         // This will contain the outline
@@ -41,9 +41,5 @@ public class Debris extends Participant
         return poly;
     }
 
-    public Shape getOutline ()
-    {
-        return outline;
-    }
 
 }
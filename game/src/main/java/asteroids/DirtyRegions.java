@@ -0,0 +1,301 @@
+package asteroids;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import static asteroids.Constants.*;
+
+/**
+ * Works out which parts of the screen have to be redrawn from one frame to
+ * the next. For each participant it remembers where and how it was last
+ * drawn. A participant that has moved, turned or changed its outline since
+ * then dirties both the rectangle it was drawn in and the one it will be
+ * drawn in. A participant that has gone dirties the rectangle it was drawn
+ * in.
+ *
+ * Overlapping and touching rectangles are merged, and there are never more
+ * than MAX_DIRTY_REGIONS of them. The rectangles are kept apart, so their
+ * total area is the number of pixels that will be touched. When that is more
+ * than FULL_REPAINT_COVERAGE of the screen, the whole screen is repainted
+ * instead.
+ *
+ * @author Jackson Murphy
+ */
+class DirtyRegions
+{
+    // Number of the current frame, and the frame in which each slot was
+    // last drawn
+    private int frame;
+    private int[] stamp;
+
+    // Where each slot was last drawn: its rectangle, position, rotation and
+    // outline
+    private int[] left, top, right, bottom;
+    private double[] drawnX, drawnY, drawnRotation;
+    private int[] drawnOutline;
+
+    // The slots drawn in this frame and in the last one
+    private int[] drawn;
+    private int[] previous;
+    private int drawnCount;
+
+    // The dirty rectangles, from (x0, y0) inclusive to (x1, y1) exclusive
+    private int[] x0, y0, x1, y1;
+    private int count;
+
+    // Whether the whole screen is dirty, and whether it will be next frame
+    // no matter what changes
+    private boolean full;
+    private boolean invalid;
+
+    // Scratch rectangle
+    private Rectangle bounds;
+
+    // Statistics: frames, total pixels touched, frames in which the whole
+    // screen was repainted, and the most pixels touched in one frame
+    private long frames;
+    private long pixels;
+    private long fullFrames;
+    private long maxPixels;
+
+    /**
+     * Creates a tracker for which the first frame is entirely dirty
+     */
+    public DirtyRegions ()
+    {
+        stamp = new int[0];
+        left = top = right = bottom = new int[0];
+        drawnX = drawnY = drawnRotation = new double[0];
+        drawnOutline = new int[0];
+        drawn = new int[16];
+        previous = new int[16];
+        x0 = new int[MAX_DIRTY_REGIONS];
+        y0 = new int[MAX_DIRTY_REGIONS];
+        x1 = new int[MAX_DIRTY_REGIONS];
+        y1 = new int[MAX_DIRTY_REGIONS];
+        bounds = new Rectangle();
+        invalid = true;
+    }
+
+    /**
+     * Makes the whole screen dirty in the next frame, as when whatever was
+     * drawn before has been lost.
+     */
+    public synchronized void invalidate ()
+    {
+        invalid = true;
+    }
+
+    /**
+     * Works out the dirty rectangles for a frame in which the participants of
+     * store are drawn as of alpha. Anything else that has changed, such as
+     * the legend, is given as extra, which may be null.
+     */
+    public synchronized void update (EntityStore store, double alpha,
+            Rectangle extra)
+    {
+        frame++;
+        count = 0;
+        full = invalid;
+        invalid = false;
+        if (stamp.length < store.isLive.length)
+        {
+            grow(store.isLive.length);
+        }
+
+        // Participants that have been added or changed since the last frame
+        int[] swap = previous;
+        previous = drawn;
+        drawn = swap;
+        int previousCount = drawnCount;
+        if (drawn.length < store.liveCount)
+        {
+            drawn = new int[Math.max(drawn.length * 2, store.liveCount)];
+        }
+        for (int k = 0; k < store.liveCount; k++)
+        {
+            int s = store.live[k];
+            drawn[k] = s;
+            double x = store.getDrawnX(s, alpha);
+            double y = store.getDrawnY(s, alpha);
+            double r = store.getDrawnRotation(s, alpha);
+            if (stamp[s] == frame - 1 && frame > 1 && drawnX[s] == x
+                    && drawnY[s] == y && drawnRotation[s] == r
+                    && drawnOutline[s] == store.outline[s])
+            {
+                stamp[s] = frame;
+                continue;
+            }
+            if (stamp[s] == frame - 1 && frame > 1)
+            {
+                add(left[s], top[s], right[s], bottom[s]);
+            }
+            store.getDrawnBounds(s, alpha, bounds);
+            left[s] = bounds.x;
+            top[s] = bounds.y;
+            right[s] = bounds.x + bounds.width;
+            bottom[s] = bounds.y + bounds.height;
+            drawnX[s] = x;
+            drawnY[s] = y;
+            drawnRotation[s] = r;
+            drawnOutline[s] = store.outline[s];
+            stamp[s] = frame;
+            add(left[s], top[s], right[s], bottom[s]);
+        }
+        drawnCount = store.liveCount;
+
+        // Participants that have gone since the last frame
+        for (int k = 0; k < previousCount; k++)
+        {
+            int s = previous[k];
+            if (stamp[s] != frame)
+            {
+                add(left[s], top[s], right[s], bottom[s]);
+            }
+        }
+
+        if (extra != null)
+        {
+            add(extra.x, extra.y, extra.x + extra.width, extra.y
+                    + extra.height);
+        }
+
+        // Repaint everything if too much has changed
+        long area = 0;
+        for (int k = 0; k < count; k++)
+        {
+            area += (long) (x1[k] - x0[k]) * (y1[k] - y0[k]);
+        }
+        if (full || area > FULL_REPAINT_COVERAGE * SIZE * SIZE)
+        {
+            full = true;
+            count = 1;
+            x0[0] = y0[0] = 0;
+            x1[0] = y1[0] = SIZE;
+            area = (long) SIZE * SIZE;
+            fullFrames++;
+        }
+        frames++;
+        pixels += area;
+        maxPixels = Math.max(maxPixels, area);
+    }
+
+    /**
+     * Adds the rectangle from (left, top) to (right, bottom) to the dirty
+     * rectangles, merging it with any that it overlaps or touches. If there
+     * is no room for another rectangle, it is merged with the one whose area
+     * grows least.
+     */
+    private void add (int left, int top, int right, int bottom)
+    {
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, SIZE);
+        bottom = Math.min(bottom, SIZE);
+        if (left >= right || top >= bottom)
+        {
+            return;
+        }
+
+        boolean merged = true;
+        while (merged)
+        {
+            merged = false;
+            int target = -1;
+            for (int k = 0; k < count && target < 0; k++)
+            {
+                if (left <= x1[k] && x0[k] <= right && top <= y1[k]
+                        && y0[k] <= bottom)
+                {
+                    target = k;
+                }
+            }
+            if (target < 0 && count == MAX_DIRTY_REGIONS)
+            {
+                long least = Long.MAX_VALUE;
+                for (int k = 0; k < count; k++)
+                {
+                    long growth = (long) (Math.max(right, x1[k]) - Math.min(
+                            left, x0[k])) * (Math.max(bottom, y1[k]) - Math
+                            .min(top, y0[k])) - (long) (x1[k] - x0[k])
+                            * (y1[k] - y0[k]);
+                    if (growth < least)
+                    {
+                        least = growth;
+                        target = k;
+                    }
+                }
+            }
+            if (target >= 0)
+            {
+                left = Math.min(left, x0[target]);
+                top = Math.min(top, y0[target]);
+                right = Math.max(right, x1[target]);
+                bottom = Math.max(bottom, y1[target]);
+                count--;
+                x0[target] = x0[count];
+                y0[target] = y0[count];
+                x1[target] = x1[count];
+                y1[target] = y1[count];
+                merged = true;
+            }
+        }
+        x0[count] = left;
+        y0[count] = top;
+        x1[count] = right;
+        y1[count] = bottom;
+        count++;
+    }
+
+    /**
+     * Returns whether the whole screen is dirty in this frame
+     */
+    public synchronized boolean isFull ()
+    {
+        return full;
+    }
+
+    /**
+     * Returns the number of dirty rectangles in this frame
+     */
+    public synchronized int getCount ()
+    {
+        return count;
+    }
+
+    /**
+     * Sets r to the k'th dirty rectangle of this frame
+     */
+    public synchronized void getRegion (int k, Rectangle r)
+    {
+        r.setBounds(x0[k], y0[k], x1[k] - x0[k], y1[k] - y0[k]);
+    }
+
+    /**
+     * Enlarges the per-slot arrays to hold the specified number of slots.
+     */
+    private void grow (int capacity)
+    {
+        stamp = Arrays.copyOf(stamp, capacity);
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        right = Arrays.copyOf(right, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        drawnX = Arrays.copyOf(drawnX, capacity);
+        drawnY = Arrays.copyOf(drawnY, capacity);
+        drawnRotation = Arrays.copyOf(drawnRotation, capacity);
+        drawnOutline = Arrays.copyOf(drawnOutline, capacity);
+    }
+
+    /**
+     * Summarizes how much of the screen has been redrawn each frame
+     */
+    @Override
+    public synchronized String toString ()
+    {
+        return String.format("dirty regions: %d frames, %.0f pixels per frame "
+                + "(%.1f%% of the screen), max %d, %d full repaints", frames,
+                frames == 0 ? 0.0 : (double) pixels / frames, frames == 0 ? 0.0
+                        : 100.0 * pixels / frames / SIZE / SIZE, maxPixels,
+                fullFrames);
+    }
+}
@@ -11,21 +11,21 @@ import java.awt.geom.Path2D;
 public class Dust extends Participant
 {
     
-    // The outline of a dust object
-    private Shape outline;
+    // The outline shared by all dust objects
+    private final static Shape outline = createDust();
     
     /**
-     * Constructs a dust object
+     * Constructs a dust object whose state is held in store
      */
-    public Dust () {
-        outline = createDust();
+    public Dust (EntityStore store) {
+        super(store, EntityStore.DUST, outline);
     }
   
     /**
      * Creates the shape of a dust object, which is represented by a 2x2 pixel
      * square centered at (0,0).
      */
-    private Shape createDust () {
+    private static Shape createDust () {
         
      // This will contain the outline
         Path2D.Double poly = new Path2D.Double();
@@ -40,10 +40,6 @@ public class Dust extends Participant
         return poly;
     }
     
-    public Shape getOutline() {
-        
-        return outline;
-    }
   
     
 
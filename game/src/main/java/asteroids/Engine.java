@@ -0,0 +1,1286 @@
+package asteroids;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import static asteroids.Constants.*;
+
+/**
+ * A game of asteroids, independent of how it is displayed and controlled. The
+ * engine holds the participants, moves them, detects collisions between them
+ * and applies the rules of the game: score, lives, levels and the splitting of
+ * asteroids. It uses no AWT components and no Swing, so it can run headless.
+ *
+ * The game advances one tick at a time, each time step is called with the
+ * state of the controls during that tick. Delays, such as the pause between
+ * losing a ship and placing the next one, are counted in ticks as well.
+ *
+ * @author Jackson Murphy, Joe Zachary
+ */
+public class Engine
+{
+    /**
+     * Bits of the inputs passed to step. THRUST, LEFT and RIGHT are held down
+     * for as long as they are set; FIRE shoots one bullet each tick it is
+     * set.
+     */
+    public final static int THRUST = 1, LEFT = 2, RIGHT = 4, FIRE = 8;
+
+    // Number of bytes saveRules writes, not counting the characters of the
+    // legend. The last two are the length of the legend.
+    final static int RULES_BYTES = 2 * 8 + 7 * 4 + 3 + 2;
+
+    // Shared random number generator, and the seed it started from
+    private GameRandom random;
+    private long seed;
+
+    // The state of the participants (asteroids, bullets, ships, etc.) that
+    // are involved in the game. The store's live list holds the participants
+    // that are currently in play.
+    private EntityStore entities;
+
+    // Objects interested in learning about collisions between pairs of
+    // participants, by the types of the participants
+    private CollisionTable collisions;
+
+    // The engine's own handlers for a ship or a bullet hitting an asteroid,
+    // and whether they are registered
+    private CollisionListener shipHit;
+    private CollisionListener bulletHit;
+    private boolean listening;
+
+    // Handles of the participants that will be added to/removed from the
+    // game at the next tick, in the order they were requested so that the
+    // game unfolds the same way each time. Participants waiting to be
+    // removed are also marked in the store.
+    private HandleList pendingAdds;
+    private HandleList pendingRemoves;
+
+    // Broad phase used to find the pairs of participants that might overlap
+    private SpatialHash grid;
+
+    // The slots of the participants in the order they were entered into the
+    // grid
+    private int[] colliders;
+
+    // Finds collisions on several threads when there are enough participants,
+    // or null to always use one thread
+    private ParallelCollider parallel;
+
+    // How long each phase of a tick takes
+    private PhaseTimer timer;
+
+    // Time spent notifying collision listeners during the current tick, in
+    // nanoseconds
+    private long callbackNanos;
+
+    // Legend that is displayed across the screen
+    private String legend;
+
+    // The ship (if one is active) or null (otherwise)
+    private Ship ship;
+
+    // Bullets, dust, debris and asteroids that can be reused once they have
+    // left the game
+    private ParticipantPool<Bullet> bulletPool;
+    private ParticipantPool<Dust> dustPool;
+    private ParticipantPool<Debris> debrisPool;
+    private ParticipantPool<Asteroid> asteroidPool;
+
+    // Ticks left before the legend is cleared, before the next transition
+    // is made and before the next level starts, or 0 if none is pending
+    private int legendTicks;
+    private int transitionTicks;
+    private int nextLevelTicks;
+
+    // Whether the controls are being listened to
+    private boolean acceptingInputs;
+
+    // Number of lives left
+    private int lives;
+
+    // The user's score
+    private int score;
+
+    // The game level
+    private int level;
+
+    // The number of asteroids destroyed on a given level
+    private int asteroidsHit;
+
+    // Whether or not the game is paused. While it is, step does nothing, so
+    // nothing moves and no lifetimes or delays run down.
+    private boolean isPaused;
+
+    /**
+     * Creates an engine showing the splash screen, with a random seed
+     */
+    public Engine ()
+    {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Creates an engine showing the splash screen. Two engines created with
+     * the same seed, and given the same calls to step, newGame and setPaused
+     * in the same order, play exactly the same game.
+     */
+    public Engine (long seed)
+    {
+        this.seed = seed;
+        random = new GameRandom(seed);
+        entities = new EntityStore();
+        collisions = new CollisionTable();
+        shipHit = new CollisionListener()
+        {
+            public void collidedWith (Participant p1, Participant p2)
+            {
+                createDust((Asteroid) p1);
+                createDebris((Ship) p2);
+                shipCollision((Ship) p2);
+                asteroidCollision((Asteroid) p1);
+            }
+        };
+        bulletHit = new CollisionListener()
+        {
+            public void collidedWith (Participant p1, Participant p2)
+            {
+                createDust((Asteroid) p1);
+                bulletCollision((Bullet) p2);
+                asteroidCollision((Asteroid) p1);
+            }
+        };
+        pendingAdds = new HandleList();
+        pendingRemoves = new HandleList();
+        grid = new SpatialHash(COLLISION_CELL_SIZE);
+        colliders = new int[64];
+        if (ForkJoinPool.getCommonPoolParallelism() > 1)
+        {
+            parallel = new ParallelCollider(ForkJoinPool.commonPool());
+        }
+        timer = new PhaseTimer();
+        legend = "";
+        lives = 3;
+        level = 1;
+        createPools();
+        splashScreen();
+    }
+
+    /**
+     * Puts the engine back the way new Engine(seed) starts out, showing the
+     * splash screen, so that it plays exactly the same game as a new engine
+     * would. Its pools, listeners other than its own handlers, collision
+     * counts and collision pool are kept, which saves allocating new
+     * participants for each game.
+     */
+    public void reset (long seed)
+    {
+        this.seed = seed;
+        random.setSeed(seed);
+        stopListening();
+        legendTicks = 0;
+        transitionTicks = 0;
+        nextLevelTicks = 0;
+        acceptingInputs = false;
+        isPaused = false;
+        lives = 3;
+        score = 0;
+        level = 1;
+        asteroidsHit = 0;
+        splashScreen();
+    }
+
+    /**
+     * Creates the pools from which bullets, dust, debris and asteroids are
+     * drawn.
+     */
+    private void createPools ()
+    {
+        final EntityStore store = entities;
+        bulletPool = new ParticipantPool<Bullet>("bullets", BULLET_POOL_SIZE)
+        {
+            protected Bullet create ()
+            {
+                return new Bullet(store);
+            }
+        };
+        dustPool = new ParticipantPool<Dust>("dust", DUST_POOL_SIZE)
+        {
+            protected Dust create ()
+            {
+                return new Dust(store);
+            }
+        };
+        debrisPool = new ParticipantPool<Debris>("debris", DEBRIS_POOL_SIZE)
+        {
+            protected Debris create ()
+            {
+                return new Debris(store);
+            }
+        };
+        asteroidPool = new ParticipantPool<Asteroid>("asteroids",
+                ASTEROID_POOL_SIZE)
+        {
+            protected Asteroid create ()
+            {
+                return new Asteroid(store, 0, 0, 0, 0);
+            }
+        };
+    }
+
+    /**
+     * Returns the seed of the engine's random number generator
+     */
+    public long getSeed ()
+    {
+        return seed;
+    }
+
+    /**
+     * Returns a summary of how well the participant pools are working
+     */
+    public String getPoolStatistics ()
+    {
+        return bulletPool + "\n" + dustPool + "\n" + debrisPool + "\n"
+                + asteroidPool;
+    }
+
+    /**
+     * Returns the timer that records how long each phase of a tick takes.
+     * The screen records how long painting takes in it too.
+     */
+    public PhaseTimer getTimer ()
+    {
+        return timer;
+    }
+
+    /**
+     * Replaces the timer that records how long each phase of a tick takes.
+     * Engines that are only ever stepped one at a time, such as those on one
+     * thread, can share a timer, which saves the memory of one each.
+     */
+    public void setTimer (PhaseTimer timer)
+    {
+        this.timer = timer;
+    }
+
+    /**
+     * Returns the number of participants of each type in play, indexed by the
+     * types in EntityStore. The array should not be changed.
+     */
+    public int[] getTypeCounts ()
+    {
+        return entities.liveCounts;
+    }
+
+    /**
+     * Sets the pool whose threads are used to find collisions once there are
+     * at least PARALLEL_COLLISION_THRESHOLD participants. If pool is null,
+     * collisions are always found on the thread that steps the engine.
+     */
+    public void setCollisionPool (ForkJoinPool pool)
+    {
+        parallel = pool == null ? null : new ParallelCollider(pool);
+    }
+
+    /**
+     * Returns the store that holds the state of the participants. Participants
+     * that are to be added to the game must be created in this store.
+     */
+    EntityStore getEntities ()
+    {
+        return entities;
+    }
+
+    /**
+     * Returns the legend that is displayed across the screen
+     */
+    public String getLegend ()
+    {
+        return legend;
+    }
+
+    /**
+     * Returns the number of lives left
+     */
+    public int getLives ()
+    {
+        return lives;
+    }
+
+    /**
+     * Returns the user's score
+     */
+    public int getScore ()
+    {
+        return score;
+    }
+
+    /**
+     * Returns the game level
+     */
+    public int getLevel ()
+    {
+        return level;
+    }
+
+    /**
+     * Reports whether the game is paused
+     */
+    public boolean isPaused ()
+    {
+        return isPaused;
+    }
+
+    /**
+     * Returns the ship, or null if there isn't one in play
+     */
+    public Ship getShip ()
+    {
+        return ship;
+    }
+
+    /**
+     * Makes ship the ship in play, or clears it if ship is null
+     */
+    void setShip (Ship ship)
+    {
+        this.ship = ship;
+    }
+
+    /**
+     * Returns the number of participants waiting to be added to the game
+     */
+    int getPendingAddCount ()
+    {
+        return pendingAdds.count;
+    }
+
+    /**
+     * Returns the handle of the k'th participant waiting to be added to the
+     * game, in the order they were added
+     */
+    long getPendingAdd (int k)
+    {
+        return pendingAdds.handles[k];
+    }
+
+    /**
+     * Returns the number of participants waiting to be removed from the game
+     */
+    int getPendingRemoveCount ()
+    {
+        return pendingRemoves.count;
+    }
+
+    /**
+     * Returns the handle of the k'th participant waiting to be removed from
+     * the game, in the order they were removed
+     */
+    long getPendingRemove (int k)
+    {
+        return pendingRemoves.handles[k];
+    }
+
+    /**
+     * Creates a participant of the given type in the engine's store, drawing
+     * it from its pool if it has one. The variety and size are only used for
+     * asteroids. The participant is not added to the game.
+     */
+    Participant createParticipant (byte type, int variety, int size)
+    {
+        switch (type)
+        {
+        case EntityStore.SHIP:
+            return new Ship(entities);
+        case EntityStore.ASTEROID:
+            Asteroid a = asteroidPool.acquire();
+            a.setVariety(variety, size);
+            asteroidPool.release(a);
+            return a;
+        case EntityStore.BULLET:
+            Bullet b = bulletPool.acquire();
+            bulletPool.release(b);
+            return b;
+        case EntityStore.DUST:
+            Dust d = dustPool.acquire();
+            dustPool.release(d);
+            return d;
+        case EntityStore.DEBRIS:
+            Debris r = debrisPool.acquire();
+            debrisPool.release(r);
+            return r;
+        default:
+            throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    /**
+     * Returns the number of bytes that saveRules will write
+     */
+    int getRulesBytes ()
+    {
+        return RULES_BYTES + 2 * legend.length();
+    }
+
+    /**
+     * Writes the state of the rules of the game to out: the random number
+     * generator, score, lives, level, legend and pending delays. Together
+     * with the participants, this is everything needed to carry on the game.
+     */
+    void saveRules (ByteBuffer out)
+    {
+        out.putLong(seed);
+        out.putLong(random.getState());
+        out.putInt(lives);
+        out.putInt(score);
+        out.putInt(level);
+        out.putInt(asteroidsHit);
+        out.putInt(legendTicks);
+        out.putInt(transitionTicks);
+        out.putInt(nextLevelTicks);
+        out.put((byte) (acceptingInputs ? 1 : 0));
+        out.put((byte) (isPaused ? 1 : 0));
+        out.put((byte) (listening ? 1 : 0));
+        out.putShort((short) legend.length());
+        for (int i = 0; i < legend.length(); i++)
+        {
+            out.putChar(legend.charAt(i));
+        }
+    }
+
+    /**
+     * Restores the state of the rules of the game from in, as written by
+     * saveRules.
+     */
+    void loadRules (ByteBuffer in)
+    {
+        seed = in.getLong();
+        random.setState(in.getLong());
+        lives = in.getInt();
+        score = in.getInt();
+        level = in.getInt();
+        asteroidsHit = in.getInt();
+        legendTicks = in.getInt();
+        transitionTicks = in.getInt();
+        nextLevelTicks = in.getInt();
+        acceptingInputs = in.get() != 0;
+        isPaused = in.get() != 0;
+        stopListening();
+        if (in.get() != 0)
+        {
+            startListening();
+        }
+
+        // The legend is usually unchanged, in which case no string is made
+        int length = in.getShort();
+        boolean same = length == legend.length();
+        for (int i = 0; same && i < length; i++)
+        {
+            same = in.getChar(in.position() + 2 * i) == legend.charAt(i);
+        }
+        if (same)
+        {
+            in.position(in.position() + 2 * length);
+        }
+        else
+        {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+            {
+                chars[i] = in.getChar();
+            }
+            legend = new String(chars);
+        }
+    }
+
+    /**
+     * Add a participant to the game
+     */
+    public void addParticipant (Participant p)
+    {
+        if (p.getSlot() >= 0)
+        {
+            pendingAdds.add(entities.getHandle(p.getSlot()));
+        }
+    }
+
+    /**
+     * Remove a participant from the game. A participant that has already been
+     * removed is ignored, since it may be recycled before the next tick.
+     */
+    public void removeParticipant (Participant p)
+    {
+        int s = p.getSlot();
+        if (s >= 0 && entities.markPendingRemoval(s))
+        {
+            pendingRemoves.add(entities.getHandle(s));
+        }
+    }
+
+    /**
+     * Set the legend
+     */
+    public void setLegend (String legend)
+    {
+        this.legend = legend;
+    }
+
+    /**
+     * Displays the legend and makes it disappear after the given number of
+     * ticks.
+     */
+    private void showLegend (String legend, int ticks)
+    {
+        this.legend = legend;
+        legendTicks = ticks;
+    }
+
+    /**
+     * Removes every participant from the game and clears the legend
+     */
+    public void clear ()
+    {
+        for (int k = 0; k < pendingAdds.count; k++)
+        {
+            int s = entities.resolve(pendingAdds.handles[k]);
+            if (s >= 0)
+            {
+                entities.release(s);
+            }
+        }
+        for (int k = 0; k < pendingRemoves.count; k++)
+        {
+            int s = entities.resolve(pendingRemoves.handles[k]);
+            if (s >= 0)
+            {
+                entities.release(s);
+            }
+        }
+        pendingRemoves.clear();
+        pendingAdds.clear();
+        entities.releaseLive();
+        legend = "";
+    }
+
+    /**
+     * Records a new listener, which is told of every collision whatever the
+     * types of the participants. Pairs of participants that nothing is
+     * interested in aren't tested at all, so a listener that only cares
+     * about some pairs should be added with addCollisionHandler instead.
+     */
+    public void addCollisionListener (CollisionListener listener)
+    {
+        collisions.registerAll(listener);
+    }
+
+    /**
+     * Removes an existing listener or handler.
+     */
+    public void removeCollisionListener (CollisionListener listener)
+    {
+        collisions.unregister(listener);
+    }
+
+    /**
+     * Records a handler for collisions between participants of types first
+     * and second, from the types in EntityStore. It is given the participant
+     * of type first, then the one of type second.
+     */
+    void addCollisionHandler (byte first, byte second,
+            CollisionListener handler)
+    {
+        collisions.register(first, second, handler);
+    }
+
+    /**
+     * Returns the table of collision handlers, which counts the pairs
+     * tested and the collisions found for each pair of types
+     */
+    CollisionTable getCollisionTable ()
+    {
+        return collisions;
+    }
+
+    /**
+     * Returns a summary of the pairs of participants tested for collisions,
+     * and the collisions found, for each pair of types
+     */
+    public String getCollisionStatistics ()
+    {
+        return collisions.toString();
+    }
+
+    /**
+     * Starts applying the rules of the game to collisions, unless they are
+     * already applied
+     */
+    private void startListening ()
+    {
+        if (!listening)
+        {
+            collisions.register(EntityStore.ASTEROID, EntityStore.SHIP,
+                    shipHit);
+            collisions.register(EntityStore.ASTEROID, EntityStore.BULLET,
+                    bulletHit);
+            listening = true;
+        }
+    }
+
+    /**
+     * Stops applying the rules of the game to collisions
+     */
+    private void stopListening ()
+    {
+        if (listening)
+        {
+            collisions.unregister(shipHit);
+            collisions.unregister(bulletHit);
+            listening = false;
+        }
+    }
+
+    /**
+     * Returns the number of participants of the given type, one of the type
+     * constants in EntityStore, that are in the game or waiting to be added.
+     */
+    int countParticipants (byte type)
+    {
+        int count = entities.liveCounts[type];
+        for (int k = 0; k < pendingAdds.count; k++)
+        {
+            int s = entities.resolve(pendingAdds.handles[k]);
+            if (s >= 0 && entities.type[s] == type && !entities.isLive[s]
+                    && !entities.isPendingRemoval(s))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Advances the game by one tick. The inputs are the bits THRUST, LEFT,
+     * RIGHT and FIRE that are set during the tick. The controls are ignored
+     * when there is no game in progress. While the game is paused, stepping
+     * does nothing at all, so that the game resumes exactly where it left
+     * off.
+     */
+    public void step (int inputs)
+    {
+        if (isPaused)
+        {
+            return;
+        }
+        applyInputs(inputs);
+        countDown();
+        refresh();
+    }
+
+    /**
+     * Steers, thrusts and fires the ship as the inputs direct. The ship turns
+     * and accelerates at the same rates as when these were done by timers,
+     * but in even steps once per tick.
+     */
+    private void applyInputs (int inputs)
+    {
+        if (!acceptingInputs || ship == null)
+        {
+            return;
+        }
+        if ((inputs & LEFT) != 0)
+        {
+            ship.rotate(-SHIP_TURN);
+        }
+        if ((inputs & RIGHT) != 0)
+        {
+            ship.rotate(SHIP_TURN);
+        }
+        if ((inputs & THRUST) != 0)
+        {
+            ship.accelerate(SHIP_THRUST);
+        }
+
+        // Fire a bullet if there are fewer than 8 bullets already in play
+        if ((inputs & FIRE) != 0
+                && countParticipants(EntityStore.BULLET) < 8)
+        {
+            shootBullet();
+        }
+    }
+
+    /**
+     * Counts down the ticks before the legend disappears and before pending
+     * transitions are made.
+     */
+    private void countDown ()
+    {
+        if (legendTicks > 0 && --legendTicks == 0)
+        {
+            legend = "";
+        }
+        if (transitionTicks > 0 && --transitionTicks == 0)
+        {
+            performTransition();
+        }
+        if (nextLevelTicks > 0 && --nextLevelTicks == 0)
+        {
+            nextLevelScreen();
+        }
+    }
+
+    /**
+     * Moves every participant by one tick and deals with the collisions that
+     * result.
+     */
+    void refresh ()
+    {
+        long start = System.nanoTime();
+        completeAddsAndRemoves();
+        long end = System.nanoTime();
+        timer.record(PhaseTimer.ADDS_AND_REMOVES, end - start);
+
+        start = end;
+        expireParticipants();
+        end = System.nanoTime();
+        timer.record(PhaseTimer.EXPIRE, end - start);
+
+        start = end;
+        entities.moveAll();
+        end = System.nanoTime();
+        timer.record(PhaseTimer.MOVE, end - start);
+
+        // The listeners are timed separately from the search for collisions
+        start = end;
+        callbackNanos = 0;
+        checkForCollisions();
+        end = System.nanoTime();
+        timer.record(PhaseTimer.COLLISIONS, end - start - callbackNanos);
+        timer.record(PhaseTimer.CALLBACKS, callbackNanos);
+    }
+
+    /**
+     * Advances the clock that governs the lifetimes of participants, and
+     * removes all of the participants whose lifetimes have run out.
+     */
+    private void expireParticipants ()
+    {
+        int count = entities.advanceClock();
+        for (int k = 0; k < count; k++)
+        {
+            entities.release(entities.lifetimes.getExpired(k));
+        }
+    }
+
+    /**
+     * Finds the pairs of participants that share a cell of the grid, compares
+     * each such pair to detect collisions, then notifies the listeners for
+     * the types of any found. Pairs of types that no listener is interested
+     * in are skipped without being compared. Pairs are examined in the same
+     * order as a comparison of every pair would examine them. With enough
+     * participants, the exact tests are made on several threads, but the
+     * pairs are still gone through on this one, so the listeners are
+     * notified, and the tests counted, just as they would be otherwise.
+     */
+    void checkForCollisions ()
+    {
+        // Enter the bounding square of each participant's border into the
+        // grid. This avoids placing the border's vertices for participants
+        // that are not near anything.
+        int n = entities.liveCount;
+        if (colliders.length < n)
+        {
+            colliders = new int[Math.max(n, colliders.length * 2)];
+        }
+        grid.clear();
+        double[] borderX = entities.borderX;
+        double[] borderY = entities.borderY;
+        double[] radius = entities.radius;
+        for (int k = 0; k < n; k++)
+        {
+            int s = entities.live[k];
+            double r = radius[s];
+            colliders[grid.add(borderX[s] - r, borderY[s] - r,
+                    borderX[s] + r, borderY[s] + r)] = s;
+        }
+
+        // Only participants that are near each other, and whose collision
+        // would matter, need the exact test. With enough participants, the
+        // pairs are first tested on several threads, as far as they can be
+        // before any listener is notified.
+        boolean threaded = parallel != null
+                && n >= PARALLEL_COLLISION_THRESHOLD;
+        int count;
+        int hitCount = 0;
+        if (threaded)
+        {
+            hitCount = parallel.findCollisions(entities, grid, colliders,
+                    collisions);
+            count = parallel.getPairCount();
+        }
+        else
+        {
+            count = grid.findPairs();
+        }
+
+        // Either way, the pairs are gone through in order on this thread, so
+        // that a pair with a participant removed by an earlier collision, or
+        // whose types have lost their listeners, is skipped and left
+        // uncounted just the same
+        int next = 0;
+        for (int k = 0; k < count; k++)
+        {
+            int s1 = colliders[grid.getFirst(k)];
+            int s2 = colliders[grid.getSecond(k)];
+            byte t1 = entities.type[s1];
+            byte t2 = entities.type[s2];
+            if (!collisions.isHandled(t1, t2))
+                continue;
+            if (entities.isPendingRemoval(s1) || entities.isPendingRemoval(s2))
+                continue;
+            collisions.countTest(t1, t2);
+            boolean collided;
+            if (threaded && parallel.wasTested(t1, t2))
+            {
+                while (next < hitCount && parallel.getHit(next) < k)
+                {
+                    next++;
+                }
+                collided = next < hitCount && parallel.getHit(next) == k;
+            }
+            else
+            {
+                collided = NarrowPhase.overlaps(entities, s1, s2);
+            }
+            if (collided)
+            {
+                notifyListeners(s1, s2);
+            }
+        }
+    }
+
+    /**
+     * Tells the listeners for their types that the participants in slots s1
+     * and s2 have collided, adding the time this takes to callbackNanos.
+     */
+    private void notifyListeners (int s1, int s2)
+    {
+        long start = System.nanoTime();
+        collisions.dispatch(entities.type[s1], entities.type[s2],
+                entities.views[s1], entities.views[s2]);
+        callbackNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Completes any adds and removes that have been requested.
+     */
+    private void completeAddsAndRemoves ()
+    {
+        // Note: These updates are saved up done later to avoid modifying
+        // the participants list while it is being iterated over
+        for (int k = 0; k < pendingAdds.count; k++)
+        {
+            int s = entities.resolve(pendingAdds.handles[k]);
+            if (s >= 0 && !entities.isLive[s])
+            {
+                entities.addLive(s);
+            }
+        }
+        pendingAdds.clear();
+
+        // A removed participant gives up its slot. Handles whose slots have
+        // already been freed are skipped.
+        for (int k = 0; k < pendingRemoves.count; k++)
+        {
+            int s = entities.resolve(pendingRemoves.handles[k]);
+            if (s >= 0)
+            {
+                entities.release(s);
+            }
+        }
+        pendingRemoves.clear();
+    }
+
+    /**
+     * Pauses or resumes the game. While the game is paused, step does
+     * nothing: participants stand still, their lifetimes and the pending
+     * delays don't run down, and the controls are ignored.
+     */
+    public void setPaused (boolean paused)
+    {
+        isPaused = paused;
+    }
+
+    /**
+     * Adds an asteroid of the specified variety and size at the provided
+     * coordinates to the game, with the given speed and a random direction
+     * and rotation. The engine becomes responsible for the asteroid, so it is
+     * released to its pool straight away; it returns to the pool when it is
+     * removed from the game.
+     */
+    private void addAsteroid (int variety, int size, double x, double y,
+            double speed)
+    {
+        Asteroid a = asteroidPool.acquire();
+        a.setVariety(variety, size);
+        a.setPosition(x, y);
+        a.setVelocity(speed, random.nextDouble() * 2 * Math.PI);
+        a.setRotation(2 * Math.PI * random.nextDouble());
+        addParticipant(a);
+        asteroidPool.release(a);
+    }
+
+    /**
+     * Configures the game to display the splash screen
+     */
+    private void splashScreen ()
+    {
+        // Clear the screen and display the legend
+        clear();
+        setLegend("Asteroids");
+
+        // Place four asteroids near the corners of the screen.
+        placeAsteroids();
+
+        // Make sure there's no ship
+        ship = null;
+    }
+
+    /**
+     * The game is over. Displays a message to that effect.
+     */
+    private void finalScreen ()
+    {
+        setLegend(GAME_OVER);
+        stopListening();
+        acceptingInputs = false;
+    }
+
+    /**
+     * Places four large asteroids near the corners of the screen. Gives them
+     * random directions and rotations, and a level-dependent speed.
+     */
+    void placeAsteroids ()
+    {
+        addAsteroid(0, 2, EDGE_OFFSET, EDGE_OFFSET, level + 2);
+        addAsteroid(1, 2, SIZE - EDGE_OFFSET, EDGE_OFFSET, level + 2);
+        addAsteroid(2, 2, EDGE_OFFSET, SIZE - EDGE_OFFSET, level + 2);
+        addAsteroid(3, 2, SIZE - EDGE_OFFSET, SIZE - EDGE_OFFSET, level + 2);
+    }
+
+    /**
+     * Stops whatever is going on, and sets things up and begins a new game.
+     */
+    public void newGame ()
+    {
+        // Forget about any pending transitions
+        transitionTicks = 0;
+        nextLevelTicks = 0;
+        legendTicks = 0;
+
+        // Clear the screen
+        clear();
+
+        // Reset the statistics
+        lives = 3;
+        score = 0;
+        level = 1;
+        asteroidsHit = 0;
+        isPaused = false;
+
+        // Place four asteroids
+        placeAsteroids();
+
+        // Place the ship
+        placeShip();
+
+        // Start listening to collisions and the controls
+        startListening();
+        acceptingInputs = true;
+    }
+
+    /**
+     * Starts a new level.
+     */
+    private void nextLevelScreen ()
+    {
+        // Restart ship
+        ship = null;
+
+        // Reset asteroid counter
+        asteroidsHit = 0;
+
+        // Clear the screen
+        clear();
+
+        // Display the level number and make it disappear in one second
+        showLegend("Level " + level, LEGEND_TICKS);
+
+        // Place four asteroids
+        placeAsteroids();
+
+        // Place the ship
+        placeShip();
+
+        // Start listening to collisions and the controls
+        startListening();
+        acceptingInputs = true;
+
+        // Give the user an extra life if they've reached level 5 or 7
+        if (level == 5 || level == 7)
+        {
+            lives++;
+        }
+    }
+
+    /**
+     * Place a new ship in the center of the screen. (A ship that has been
+     * removed from the game has given up its state, so it can't be reused.)
+     */
+    private void placeShip ()
+    {
+        ship = new Ship(entities);
+        ship.setPosition(SIZE / 2, SIZE / 2);
+        ship.setRotation(-Math.PI / 2);
+        addParticipant(ship);
+    }
+
+    /**
+     * Shoot a bullet with constant speed from the nose of the ship, in the
+     * direction of the ship's orientation.
+     */
+    private void shootBullet ()
+    {
+        shootBullet(ship);
+    }
+
+    /**
+     * Shoots a bullet from the nose of the given ship, and returns it. The
+     * bullet has already been released to its pool, so it may be reused once
+     * it has left the game.
+     */
+    Bullet shootBullet (Ship s)
+    {
+        Bullet bullet = bulletPool.acquire();
+        bullet.setPosition(s.getXNose(), s.getYNose());
+        bullet.setVelocity(BULLET_SPEED, s.getRotation());
+
+        // The engine removes the bullet from play after a period of time
+        bullet.setLifetime(BULLET_LIFETIME);
+        addParticipant(bullet);
+        bulletPool.release(bullet);
+        return bullet;
+    }
+
+    /**
+     * Create dust at the spot where an asteroid is hit
+     */
+    private void createDust (Asteroid a)
+    {
+        // Create six dust particles and give them random directions
+        for (int i = 0; i < 6; i++)
+        {
+            Dust d = dustPool.acquire();
+            d.setPosition(a.getX(), a.getY());
+            d.setVelocity(DUST_SPEED, random.nextDouble() * 2 * Math.PI);
+            d.setLifetime(DUST_LIFETIME);
+            addParticipant(d);
+            dustPool.release(d);
+        }
+    }
+
+    /**
+     * Create debris at the spot where the ship is hit
+     */
+    void createDebris (Ship s)
+    {
+        // Create three debris particles, give them random directions, and add
+        // them to the game for a limited time
+        for (int i = 0; i < 3; i++)
+        {
+            Debris d = debrisPool.acquire();
+            d.setPosition(s.getX(), s.getY());
+            d.setVelocity(DEBRIS_SPEED, random.nextDouble() * 2 * Math.PI);
+            d.setRotation(2 * Math.PI * random.nextDouble());
+            d.setLifetime(DEBRIS_LIFETIME);
+            addParticipant(d);
+            debrisPool.release(d);
+        }
+    }
+
+    /**
+     * The ship has collided with something
+     */
+    private void shipCollision (Ship s)
+    {
+        // Remove the ship from the screen and null it out
+        removeParticipant(s);
+        ship = null;
+
+        // Display a legend and make it disappear in one second
+        showLegend("Ouch!", LEGEND_TICKS);
+
+        // Decrement lives
+        lives--;
+
+        // Start the countdown that will cause the next round to begin.
+        scheduleTransition();
+    }
+
+    /**
+     * Something has hit an asteroid
+     */
+    private void asteroidCollision (Asteroid a)
+    {
+        // The asteroid disappears
+        removeParticipant(a);
+
+        // The asteroidsHit counter is incremented
+        asteroidsHit++;
+
+        // Points are added to the user's score
+        score += getPoints(a);
+
+        // Move on to the next level if all 28 asteroids have been destroyed
+        if (asteroidsHit == 28)
+        {
+            level++;
+
+            // Start the countdown that will cause the next level to begin.
+            scheduleTransition();
+        }
+
+        splitAsteroid(a);
+    }
+
+    /**
+     * Something has hit an asteroid in a game whose rules are kept elsewhere,
+     * such as an Arena. The asteroid turns to dust and splits just as it
+     * does in a game of the engine's own, but the engine's score, level and
+     * count of asteroids hit are left alone. Returns the points the hit is
+     * worth.
+     */
+    int destroyAsteroid (Asteroid a)
+    {
+        createDust(a);
+        removeParticipant(a);
+        splitAsteroid(a);
+        return getPoints(a);
+    }
+
+    /**
+     * Returns the points for destroying the asteroid a
+     */
+    private static int getPoints (Asteroid a)
+    {
+        switch (a.getSize())
+        {
+        case 0:
+            return 100;
+        case 1:
+            return 50;
+        case 2:
+            return 20;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Two smaller asteroids replace the one just destroyed (unless the
+     * destroyed asteroid was of size small). Puts them at the same position
+     * as the one that was just destroyed, increases their speed, and gives
+     * them a random direction.
+     */
+    private void splitAsteroid (Asteroid a)
+    {
+        int size = a.getSize() - 1;
+        if (size >= 0)
+        {
+            int speed = 4 - size + level;
+            addAsteroid(random.nextInt(4), size, a.getX(), a.getY(), speed);
+            addAsteroid(random.nextInt(4), size, a.getX(), a.getY(), speed);
+        }
+    }
+
+    /**
+     * A bullet has hit an asteroid.
+     */
+    private void bulletCollision (Bullet b)
+    {
+        removeParticipant(b);
+    }
+
+    /**
+     * Arranges for a transition to be made END_DELAY_TICKS from now, unless
+     * one is already pending.
+     */
+    private void scheduleTransition ()
+    {
+        if (transitionTicks == 0)
+        {
+            transitionTicks = END_DELAY_TICKS;
+        }
+    }
+
+    /**
+     * Based on the state of the game, transition to the next state.
+     */
+    private void performTransition ()
+    {
+        // If there are no lives left, the game is over. Show
+        // the final screen.
+        if (lives == 0)
+        {
+            finalScreen();
+        }
+
+        // If all the asteroids have been destroyed, advance to the next
+        // level.
+        else if (asteroidsHit == 28)
+        {
+            // Show a message on the screen
+            setLegend("Level " + level);
+
+            // Go to the next level
+            nextLevelTicks = END_DELAY_TICKS;
+        }
+
+        // The ship must have been destroyed. Place a new one and
+        // continue on the current level
+        else
+        {
+            placeShip();
+        }
+    }
+
+    /**
+     * A growable list of participant handles
+     */
+    private static class HandleList
+    {
+        // The handles, and how many of them there are
+        long[] handles = new long[16];
+        int count;
+
+        /**
+         * Adds a handle to the end of the list
+         */
+        void add (long handle)
+        {
+            if (count == handles.length)
+            {
+                handles = Arrays.copyOf(handles, count * 2);
+            }
+            handles[count++] = handle;
+        }
+
+        /**
+         * Empties the list
+         */
+        void clear ()
+        {
+            count = 0;
+        }
+    }
+}
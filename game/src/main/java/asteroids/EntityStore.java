@@ -0,0 +1,676 @@
+package asteroids;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import static asteroids.Constants.*;
+
+/**
+ * Holds the state of every participant in a game in parallel arrays, one
+ * element per participant. A participant is identified by its slot, which is
+ * its index into the arrays. Participant objects are handles that read and
+ * write their own slot.
+ *
+ * A slot is allocated when a participant is created and freed when the
+ * participant leaves the game. The participants that are currently in the
+ * game are listed in the live list. The live list is dense: a participant
+ * that leaves is replaced by the last one in the list, so adding and removing
+ * take constant time.
+ *
+ * Each slot has a generation that goes up whenever the slot is freed. A
+ * handle combines a slot with its generation, so a handle that is kept after
+ * its participant has left, or after the slot has been reused, can be
+ * recognized as stale.
+ *
+ * @author Jackson Murphy
+ */
+class EntityStore
+{
+    /**
+     * Types of participant
+     */
+    final static byte SHIP = 0, ASTEROID = 1, BULLET = 2, DUST = 3,
+            DEBRIS = 4, OTHER = 5;
+
+    /**
+     * Flag marking participants that are slowed by friction as they move
+     */
+    final static byte FRICTION_FLAG = 1;
+
+    // Number of slots that the arrays have room for
+    private int capacity;
+
+    // Number of slots that have ever been handed out
+    private int slotCount;
+
+    // Slots that have been freed and can be handed out again
+    private int[] freeSlots;
+    private int freeCount;
+
+    // Velocity, rotation and position of the center
+    double[] speedX, speedY, rotation, x, y;
+
+    // Position and rotation of the border, which is where the participant
+    // was as of its last move
+    double[] borderX, borderY, borderRotation;
+
+    // Position and rotation of the border as of the move before last, so
+    // that it can be drawn part of the way between the two
+    double[] prevX, prevY, prevRotation;
+
+    // How far between the previous and the current border to draw
+    // participants, from 0 to 1
+    double interpolation;
+
+    // Whether the vertices and bounding box of the border are up to date
+    boolean[] placed;
+
+    // Bounding box of the border
+    double[] minX, minY, maxX, maxY;
+
+    // Distance from the center to the farthest vertex of the outline
+    double[] radius;
+
+    // Type of participant, size (for asteroids) and flags
+    byte[] type, size, flags;
+
+    // Id of the participant's outline
+    int[] outline;
+
+    // Vertices of the border. The vertices of slot s start at index
+    // s * stride.
+    double[] worldXs, worldYs;
+    int stride;
+
+    // The participant object for each slot, or null if the slot is free
+    Participant[] views;
+
+    // Slots of the participants in the game
+    int[] live;
+    int liveCount;
+
+    // Whether each slot is in the live list, and if so where
+    boolean[] isLive;
+    private int[] liveIndex;
+
+    // Number of times each slot has been freed
+    private int[] generation;
+
+    // One bit for each slot, set if its participant is to be removed at the
+    // next refresh
+    private long[] pendingRemoval;
+
+    // Number of live participants of each type
+    int[] liveCounts;
+
+    // The current tick of the simulation clock, which wraps around after
+    // Integer.MAX_VALUE, and the wheel that tracks when participants with
+    // limited lifetimes expire
+    int tick;
+    TimingWheel lifetimes;
+
+    // Path that is refilled to draw each border
+    private Path2D.Double border;
+
+    /**
+     * Creates an empty store
+     */
+    public EntityStore ()
+    {
+        speedX = speedY = rotation = x = y = new double[0];
+        borderX = borderY = borderRotation = new double[0];
+        prevX = prevY = prevRotation = new double[0];
+        interpolation = 1;
+        minX = minY = maxX = maxY = radius = new double[0];
+        worldXs = worldYs = new double[0];
+        placed = isLive = new boolean[0];
+        type = size = flags = new byte[0];
+        outline = new int[0];
+        views = new Participant[0];
+        freeSlots = new int[0];
+        live = new int[0];
+        liveIndex = generation = new int[0];
+        pendingRemoval = new long[0];
+        liveCounts = new int[OTHER + 1];
+        lifetimes = new TimingWheel(LIFETIME_WHEEL_SIZE, 0);
+        border = new Path2D.Double();
+        grow(64);
+    }
+
+    /**
+     * Allocates a slot for participant p, which has the specified type and
+     * outline, and returns it. All of its state starts out zero.
+     */
+    int allocate (Participant p, byte kind, Outline shape)
+    {
+        int s;
+        if (freeCount > 0)
+        {
+            s = freeSlots[--freeCount];
+        }
+        else
+        {
+            if (slotCount == capacity)
+            {
+                grow(capacity * 2);
+            }
+            s = slotCount++;
+        }
+        if (shape.getVertexCount() > stride)
+        {
+            restride(shape.getVertexCount());
+        }
+
+        speedX[s] = speedY[s] = rotation[s] = x[s] = y[s] = 0;
+        borderX[s] = borderY[s] = borderRotation[s] = 0;
+        placed[s] = false;
+        type[s] = kind;
+        size[s] = 0;
+        flags[s] = 0;
+        outline[s] = shape.getId();
+        radius[s] = shape.getRadius();
+        views[s] = p;
+        isLive[s] = false;
+        return s;
+    }
+
+    /**
+     * Makes room for count more participants to be allocated without the
+     * arrays having to grow again.
+     */
+    void reserve (int count)
+    {
+        int needed = slotCount + Math.max(0, count - freeCount);
+        if (needed > capacity)
+        {
+            grow(needed);
+        }
+    }
+
+    /**
+     * Gives the participant in slot s a new outline.
+     */
+    void setOutline (int s, Outline shape)
+    {
+        if (shape.getVertexCount() > stride)
+        {
+            restride(shape.getVertexCount());
+        }
+        outline[s] = shape.getId();
+        radius[s] = shape.getRadius();
+        placed[s] = false;
+    }
+
+    /**
+     * Frees slot s, taking it out of the live list if necessary. The
+     * participant that owned it is told that it no longer has a slot.
+     */
+    void release (int s)
+    {
+        if (isLive[s])
+        {
+            removeLive(s);
+        }
+        lifetimes.cancel(s);
+        pendingRemoval[s >> 6] &= ~(1L << s);
+        generation[s]++;
+        Participant p = views[s];
+        views[s] = null;
+        if (freeCount == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+        }
+        freeSlots[freeCount++] = s;
+        p.detach();
+    }
+
+    /**
+     * Adds slot s to the end of the live list.
+     */
+    void addLive (int s)
+    {
+        if (liveCount == live.length)
+        {
+            live = Arrays.copyOf(live, Math.max(16, liveCount * 2));
+        }
+        liveIndex[s] = liveCount;
+        live[liveCount++] = s;
+        isLive[s] = true;
+        liveCounts[type[s]]++;
+
+        // The first move starts from where the participant was put
+        borderX[s] = x[s];
+        borderY[s] = y[s];
+        borderRotation[s] = rotation[s];
+        placed[s] = false;
+    }
+
+    /**
+     * Removes slot s from the live list, moving the last slot in the list
+     * into its place.
+     */
+    void removeLive (int s)
+    {
+        int k = liveIndex[s];
+        int last = live[--liveCount];
+        live[k] = last;
+        liveIndex[last] = k;
+        isLive[s] = false;
+        liveCounts[type[s]]--;
+    }
+
+    /**
+     * Returns a handle for the participant in slot s, which stays valid until
+     * the slot is freed.
+     */
+    long getHandle (int s)
+    {
+        return (long) generation[s] << 32 | s;
+    }
+
+    /**
+     * Returns the slot that handle refers to, or -1 if the slot has been
+     * freed since the handle was made.
+     */
+    int resolve (long handle)
+    {
+        int s = (int) handle;
+        if (s < 0 || s >= slotCount || views[s] == null
+                || generation[s] != (int) (handle >>> 32))
+        {
+            return -1;
+        }
+        return s;
+    }
+
+    /**
+     * Marks the participant in slot s to be removed at the next refresh.
+     * Returns false if it was already marked.
+     */
+    boolean markPendingRemoval (int s)
+    {
+        long bit = 1L << s;
+        if ((pendingRemoval[s >> 6] & bit) != 0)
+        {
+            return false;
+        }
+        pendingRemoval[s >> 6] |= bit;
+        return true;
+    }
+
+    /**
+     * Returns whether the participant in slot s is marked to be removed at
+     * the next refresh
+     */
+    boolean isPendingRemoval (int s)
+    {
+        return (pendingRemoval[s >> 6] & 1L << s) != 0;
+    }
+
+    /**
+     * Frees the slots of every participant in the live list.
+     */
+    void releaseLive ()
+    {
+        while (liveCount > 0)
+        {
+            release(live[liveCount - 1]);
+        }
+    }
+
+    /**
+     * Makes the participant in slot s expire the given number of ticks from
+     * now.
+     */
+    void setLifetime (int s, int ticks)
+    {
+        lifetimes.schedule(s, tick + ticks);
+    }
+
+    /**
+     * Returns the number of ticks before the participant in slot s expires,
+     * or -1 if its lifetime is unlimited.
+     */
+    int getLifetime (int s)
+    {
+        return lifetimes.isScheduled(s) ? lifetimes.getDue(s) - tick : -1;
+    }
+
+    /**
+     * Advances the simulation clock by one tick, and returns the number of
+     * participants whose lifetimes have run out. Their slots can be retrieved
+     * with lifetimes.getExpired.
+     */
+    int advanceClock ()
+    {
+        tick++;
+        return lifetimes.advance(tick);
+    }
+
+    /**
+     * Moves every live participant to reflect one tick of the clock.
+     */
+    void moveAll ()
+    {
+        for (int k = 0; k < liveCount; k++)
+        {
+            move(live[k]);
+        }
+    }
+
+    /**
+     * Moves the participant in slot s to reflect one tick of the clock.
+     */
+    void move (int s)
+    {
+        prevX[s] = borderX[s];
+        prevY[s] = borderY[s];
+        prevRotation[s] = borderRotation[s];
+
+        // Change the position to reflect participant motion
+        double px = x[s] += speedX[s];
+        double py = y[s] += speedY[s];
+
+        // The border follows the accumulated motion. Its vertices are
+        // transformed again only if it has moved or turned.
+        if (px != borderX[s] || py != borderY[s]
+                || rotation[s] != borderRotation[s])
+        {
+            borderX[s] = px;
+            borderY[s] = py;
+            borderRotation[s] = rotation[s];
+            placed[s] = false;
+        }
+
+        // A participant that is at least its radius from every edge can't
+        // have gone out of bounds
+        double r = radius[s];
+        if (px - r < 0 || px + r >= SIZE || py - r < 0 || py + r >= SIZE)
+        {
+            wrap(s);
+        }
+
+        if ((flags[s] & FRICTION_FLAG) != 0)
+        {
+            friction(s);
+        }
+    }
+
+    /**
+     * If the participant in slot s has gone sufficiently far out of bounds,
+     * moves it to the other side of the screen. This change will take effect
+     * next time.
+     */
+    private void wrap (int s)
+    {
+        place(s);
+        double width = maxX[s] - minX[s];
+        double height = maxY[s] - minY[s];
+        if (maxX[s] < 0)
+        {
+            x[s] += SIZE + width;
+        }
+        if (minX[s] >= SIZE)
+        {
+            x[s] += -SIZE - width;
+        }
+        if (maxY[s] < 0)
+        {
+            y[s] += SIZE + height;
+        }
+        if (minY[s] >= SIZE)
+        {
+            y[s] += -SIZE - height;
+        }
+    }
+
+    /**
+     * Accelerates the participant in slot s in the direction that it is
+     * oriented. Participants cannot accelerate beyond the speed limit.
+     */
+    void accelerate (int s, double delta)
+    {
+        double deltaX = delta * Math.cos(rotation[s]);
+        double deltaY = delta * Math.sin(rotation[s]);
+        double sx = speedX[s] += deltaX;
+        double sy = speedY[s] += deltaY;
+        if (Math.sqrt(sx * sx + sy * sy) > SPEED_LIMIT)
+        {
+            speedX[s] -= deltaX;
+            speedY[s] -= deltaY;
+        }
+    }
+
+    /**
+     * Simulates friction by accelerating the participant in slot s opposite
+     * to its direction of motion.
+     */
+    void friction (int s)
+    {
+        double sx = speedX[s];
+        double sy = speedY[s];
+        if (sx != 0 || sy != 0)
+        {
+            double speed = Math.sqrt(sx * sx + sy * sy);
+            double deltaX = FRICTION * sx / speed;
+            double deltaY = FRICTION * sy / speed;
+            if (Math.abs(deltaX) > Math.abs(sx)
+                    || Math.abs(deltaY) > Math.abs(sy))
+            {
+                speedX[s] = 0;
+                speedY[s] = 0;
+            }
+            else
+            {
+                speedX[s] = sx + deltaX;
+                speedY[s] = sy + deltaY;
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the vertices and bounding box of the border in slot s
+     * reflect its current position and rotation.
+     */
+    void place (int s)
+    {
+        if (placed[s])
+        {
+            return;
+        }
+        Outline shape = Outline.get(outline[s]);
+        int n = shape.getVertexCount();
+        int base = s * stride;
+        double cos = Math.cos(borderRotation[s]);
+        double sin = Math.sin(borderRotation[s]);
+        double bx = borderX[s];
+        double by = borderY[s];
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+        {
+            double wx = bx + cos * shape.getX(i) - sin * shape.getY(i);
+            double wy = by + sin * shape.getX(i) + cos * shape.getY(i);
+            worldXs[base + i] = wx;
+            worldYs[base + i] = wy;
+            x0 = Math.min(x0, wx);
+            y0 = Math.min(y0, wy);
+            x1 = Math.max(x1, wx);
+            y1 = Math.max(y1, wy);
+        }
+        minX[s] = x0;
+        minY[s] = y0;
+        maxX[s] = x1;
+        maxY[s] = y1;
+        placed[s] = true;
+    }
+
+    /**
+     * Returns the border of slot s as a path, placed the given fraction of
+     * the way from where it was before its last move to where it is now. A
+     * border that wrapped around the screen on its last move is not drawn
+     * in between. The same path object is refilled each time, so it should
+     * not be kept.
+     */
+    Shape getBorder (int s, double alpha)
+    {
+        border.reset();
+        appendBorder(s, alpha, border);
+        return border;
+    }
+
+    /**
+     * Adds the border of slot s to path as a closed subpath, placed as
+     * described for getBorder.
+     */
+    void appendBorder (int s, double alpha, Path2D.Double border)
+    {
+        if (isSnapped(s, alpha))
+        {
+            place(s);
+            int base = s * stride;
+            int n = Outline.get(outline[s]).getVertexCount();
+            border.moveTo(worldXs[base], worldYs[base]);
+            for (int i = 1; i < n; i++)
+            {
+                border.lineTo(worldXs[base + i], worldYs[base + i]);
+            }
+        }
+        else
+        {
+            Outline shape = Outline.get(outline[s]);
+            double bx = getDrawnX(s, alpha);
+            double by = getDrawnY(s, alpha);
+            double r = getDrawnRotation(s, alpha);
+            double cos = Math.cos(r);
+            double sin = Math.sin(r);
+            for (int i = 0; i < shape.getVertexCount(); i++)
+            {
+                double wx = bx + cos * shape.getX(i) - sin * shape.getY(i);
+                double wy = by + sin * shape.getX(i) + cos * shape.getY(i);
+                if (i == 0)
+                {
+                    border.moveTo(wx, wy);
+                }
+                else
+                {
+                    border.lineTo(wx, wy);
+                }
+            }
+        }
+        border.closePath();
+    }
+
+    /**
+     * Returns whether slot s is drawn where it is now rather than part of the
+     * way from where it was, because alpha is 1 or it wrapped around the
+     * screen on its last move.
+     */
+    private boolean isSnapped (int s, double alpha)
+    {
+        return alpha >= 1 || Math.abs(borderX[s] - prevX[s]) > SIZE / 2
+                || Math.abs(borderY[s] - prevY[s]) > SIZE / 2
+                || Math.abs(borderRotation[s] - prevRotation[s]) > Math.PI;
+    }
+
+    /**
+     * Returns the x coordinate at which the border of slot s is drawn, as
+     * described for getBorder
+     */
+    double getDrawnX (int s, double alpha)
+    {
+        return isSnapped(s, alpha) ? borderX[s] : prevX[s] + alpha
+                * (borderX[s] - prevX[s]);
+    }
+
+    /**
+     * Returns the y coordinate at which the border of slot s is drawn
+     */
+    double getDrawnY (int s, double alpha)
+    {
+        return isSnapped(s, alpha) ? borderY[s] : prevY[s] + alpha
+                * (borderY[s] - prevY[s]);
+    }
+
+    /**
+     * Returns the rotation at which the border of slot s is drawn
+     */
+    double getDrawnRotation (int s, double alpha)
+    {
+        return isSnapped(s, alpha) ? borderRotation[s] : prevRotation[s]
+                + alpha * (borderRotation[s] - prevRotation[s]);
+    }
+
+    /**
+     * Sets r to a rectangle of whole pixels that contains the border of slot
+     * s as drawn by getBorder, with room for the stroke. The rectangle comes
+     * from the radius of the outline, so it doesn't depend on the rotation.
+     */
+    void getDrawnBounds (int s, double alpha, Rectangle r)
+    {
+        double extent = radius[s] + 2;
+        double cx = getDrawnX(s, alpha);
+        double cy = getDrawnY(s, alpha);
+        int x0 = (int) Math.floor(cx - extent);
+        int y0 = (int) Math.floor(cy - extent);
+        r.setBounds(x0, y0, (int) Math.ceil(cx + extent) - x0,
+                (int) Math.ceil(cy + extent) - y0);
+    }
+
+    /**
+     * Enlarges the arrays to hold the specified number of slots.
+     */
+    private void grow (int newCapacity)
+    {
+        speedX = Arrays.copyOf(speedX, newCapacity);
+        speedY = Arrays.copyOf(speedY, newCapacity);
+        rotation = Arrays.copyOf(rotation, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        borderX = Arrays.copyOf(borderX, newCapacity);
+        borderY = Arrays.copyOf(borderY, newCapacity);
+        borderRotation = Arrays.copyOf(borderRotation, newCapacity);
+        prevX = Arrays.copyOf(prevX, newCapacity);
+        prevY = Arrays.copyOf(prevY, newCapacity);
+        prevRotation = Arrays.copyOf(prevRotation, newCapacity);
+        placed = Arrays.copyOf(placed, newCapacity);
+        minX = Arrays.copyOf(minX, newCapacity);
+        minY = Arrays.copyOf(minY, newCapacity);
+        maxX = Arrays.copyOf(maxX, newCapacity);
+        maxY = Arrays.copyOf(maxY, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        type = Arrays.copyOf(type, newCapacity);
+        size = Arrays.copyOf(size, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        outline = Arrays.copyOf(outline, newCapacity);
+        worldXs = Arrays.copyOf(worldXs, newCapacity * stride);
+        worldYs = Arrays.copyOf(worldYs, newCapacity * stride);
+        views = Arrays.copyOf(views, newCapacity);
+        isLive = Arrays.copyOf(isLive, newCapacity);
+        liveIndex = Arrays.copyOf(liveIndex, newCapacity);
+        generation = Arrays.copyOf(generation, newCapacity);
+        pendingRemoval = Arrays.copyOf(pendingRemoval, (newCapacity + 63)
+                >> 6);
+        lifetimes.grow(newCapacity);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Spaces the vertices of each slot so that an outline with n vertices will
+     * fit.
+     */
+    private void restride (int n)
+    {
+        double[] xs = new double[capacity * n];
+        double[] ys = new double[capacity * n];
+        for (int s = 0; s < slotCount; s++)
+        {
+            System.arraycopy(worldXs, s * stride, xs, s * n, stride);
+            System.arraycopy(worldYs, s * stride, ys, s * n, stride);
+        }
+        worldXs = xs;
+        worldYs = ys;
+        stride = n;
+    }
+}
@@ -0,0 +1,284 @@
+package asteroids;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import static asteroids.Constants.*;
+
+/**
+ * An environment in which an agent plays asteroids, for training and
+ * evaluating control agents. It follows the usual pattern of such
+ * environments: reset starts an episode, step applies an action for one tick,
+ * and after each the agent reads the observation, the reward and whether the
+ * episode is done. Nothing is displayed and nothing waits for the clock, so
+ * the game runs as fast as the engine can step.
+ *
+ * An action is a combination of the Engine input bits THRUST, LEFT, RIGHT and
+ * FIRE, so there are ACTIONS of them. The reward for a step is the number of
+ * points scored during it. The episode is done when the last life is lost.
+ *
+ * The observation is written into the same direct FloatBuffer every step, so
+ * stepping allocates nothing. It holds OBSERVATION_SIZE floats:
+ * <ul>
+ * <li>the lives left and the level</li>
+ * <li>SHIP_FEATURES for the ship: 1 if there is one and 0 otherwise, its
+ * position as a fraction of the screen, its velocity as a fraction of
+ * SPEED_LIMIT, and the cosine and sine of its rotation</li>
+ * <li>ASTEROID_FEATURES for each of the NEAREST_ASTEROIDS asteroids nearest
+ * the ship (or the center of the screen if there is no ship), nearest first:
+ * 1 if there is such an asteroid and 0 otherwise, its offset from the ship
+ * as a fraction of the screen, taking the shortest way around the edges,
+ * its velocity as a fraction of SPEED_LIMIT, and its size from 0 to 1</li>
+ * </ul>
+ * Everything that isn't present is 0.
+ *
+ * @author Jackson Murphy
+ */
+public class Environment
+{
+    /**
+     * The number of different actions
+     */
+    public final static int ACTIONS = 16;
+
+    /**
+     * The number of asteroids described in an observation
+     */
+    public final static int NEAREST_ASTEROIDS = 8;
+
+    /**
+     * The number of floats that describe the ship and each asteroid
+     */
+    public final static int SHIP_FEATURES = 7;
+    public final static int ASTEROID_FEATURES = 6;
+
+    /**
+     * The number of floats in an observation
+     */
+    public final static int OBSERVATION_SIZE = 2 + SHIP_FEATURES
+            + NEAREST_ASTEROIDS * ASTEROID_FEATURES;
+
+    // The game being played, or null before the first reset
+    private Engine engine;
+
+    // Where the observation is written
+    private FloatBuffer observation;
+
+    // The reward for the last step, and whether the episode is over
+    private float reward;
+    private boolean done;
+
+    // The number of steps taken since the last reset
+    private long steps;
+
+    // The slots of the nearest asteroids and their squared distances, nearest
+    // first
+    private int[] nearest;
+    private double[] distances;
+
+    /**
+     * Creates an environment. Call reset to start the first episode.
+     */
+    public Environment ()
+    {
+        observation = ByteBuffer.allocateDirect(OBSERVATION_SIZE * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        nearest = new int[NEAREST_ASTEROIDS];
+        distances = new double[NEAREST_ASTEROIDS];
+        done = true;
+    }
+
+    /**
+     * Starts a new episode, a new game played with the given seed, and
+     * returns the first observation. Episodes with the same seed and the
+     * same actions unfold the same way. Collisions are found on the calling
+     * thread, so that many environments can be stepped side by side. The
+     * engine and its pools are reused from one episode to the next.
+     */
+    public FloatBuffer reset (long seed)
+    {
+        if (engine == null)
+        {
+            engine = new Engine(seed);
+            engine.setCollisionPool(null);
+        }
+        else
+        {
+            engine.reset(seed);
+        }
+        engine.newGame();
+        reward = 0;
+        done = false;
+        steps = 0;
+        observe();
+        return observation;
+    }
+
+    /**
+     * Plays one tick with the given action, a combination of the Engine input
+     * bits, and returns the observation that follows. Stepping an episode
+     * that is done has no effect.
+     */
+    public FloatBuffer step (int action)
+    {
+        if (done)
+        {
+            reward = 0;
+            return observation;
+        }
+        int score = engine.getScore();
+        engine.step(action);
+        reward = engine.getScore() - score;
+        done = engine.getLives() == 0;
+        steps++;
+        observe();
+        return observation;
+    }
+
+    /**
+     * Returns the buffer that holds the latest observation. The same buffer
+     * is returned every time and overwritten by each step.
+     */
+    public FloatBuffer getObservation ()
+    {
+        return observation;
+    }
+
+    /**
+     * Returns the reward for the last step
+     */
+    public float getReward ()
+    {
+        return reward;
+    }
+
+    /**
+     * Reports whether the episode is over
+     */
+    public boolean isDone ()
+    {
+        return done;
+    }
+
+    /**
+     * Returns the number of steps taken since the last reset
+     */
+    public long getSteps ()
+    {
+        return steps;
+    }
+
+    /**
+     * Returns the engine playing the current episode, or null before the
+     * first reset
+     */
+    public Engine getEngine ()
+    {
+        return engine;
+    }
+
+    /**
+     * Writes the observation of the game as it is now
+     */
+    private void observe ()
+    {
+        FloatBuffer o = observation;
+        EntityStore store = engine.getEntities();
+        o.put(0, engine.getLives());
+        o.put(1, engine.getLevel());
+
+        // The ship, and the point the asteroids are measured from
+        double cx = SIZE / 2;
+        double cy = SIZE / 2;
+        Ship ship = engine.getShip();
+        int base = 2;
+        if (ship != null && ship.getSlot() >= 0)
+        {
+            int s = ship.getSlot();
+            cx = store.x[s];
+            cy = store.y[s];
+            o.put(base, 1);
+            o.put(base + 1, (float) (cx / SIZE));
+            o.put(base + 2, (float) (cy / SIZE));
+            o.put(base + 3, (float) (store.speedX[s] / SPEED_LIMIT));
+            o.put(base + 4, (float) (store.speedY[s] / SPEED_LIMIT));
+            o.put(base + 5, (float) Math.cos(store.rotation[s]));
+            o.put(base + 6, (float) Math.sin(store.rotation[s]));
+        }
+        else
+        {
+            for (int i = 0; i < SHIP_FEATURES; i++)
+            {
+                o.put(base + i, 0);
+            }
+        }
+
+        // Keep the nearest asteroids in order as they are found
+        int count = 0;
+        for (int k = 0; k < store.liveCount; k++)
+        {
+            int s = store.live[k];
+            if (store.type[s] != EntityStore.ASTEROID)
+            {
+                continue;
+            }
+            double dx = wrap(store.x[s] - cx);
+            double dy = wrap(store.y[s] - cy);
+            double d = dx * dx + dy * dy;
+            if (count == NEAREST_ASTEROIDS && d >= distances[count - 1])
+            {
+                continue;
+            }
+            int i = count < NEAREST_ASTEROIDS ? count++ : count - 1;
+            while (i > 0 && distances[i - 1] > d)
+            {
+                distances[i] = distances[i - 1];
+                nearest[i] = nearest[i - 1];
+                i--;
+            }
+            distances[i] = d;
+            nearest[i] = s;
+        }
+
+        base += SHIP_FEATURES;
+        for (int n = 0; n < NEAREST_ASTEROIDS; n++)
+        {
+            if (n < count)
+            {
+                int s = nearest[n];
+                o.put(base, 1);
+                o.put(base + 1, (float) (wrap(store.x[s] - cx) / SIZE));
+                o.put(base + 2, (float) (wrap(store.y[s] - cy) / SIZE));
+                o.put(base + 3, (float) (store.speedX[s] / SPEED_LIMIT));
+                o.put(base + 4, (float) (store.speedY[s] / SPEED_LIMIT));
+                o.put(base + 5, store.size[s] / (float) (ASTEROID_SCALE.length
+                        - 1));
+            }
+            else
+            {
+                for (int i = 0; i < ASTEROID_FEATURES; i++)
+                {
+                    o.put(base + i, 0);
+                }
+            }
+            base += ASTEROID_FEATURES;
+        }
+    }
+
+    /**
+     * Returns the offset d, measured the shortest way around the edges of the
+     * screen
+     */
+    private static double wrap (double d)
+    {
+        if (d > SIZE / 2)
+        {
+            return d - SIZE;
+        }
+        if (d < -SIZE / 2)
+        {
+            return d + SIZE;
+        }
+        return d;
+    }
+}
@@ -0,0 +1,266 @@
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays many independent games at once, for balancing and regression sweeps.
+ * Each game is played in its own Environment by its own Agent, and when a
+ * game ends another begins in its place. The games are divided into
+ * contiguous parts, several for each thread of a ForkJoinPool, so that
+ * threads that finish early can take on more work.
+ *
+ * Nothing is shared between games while they are played: every engine has
+ * its own random number generator, seeded from the farm's seed, the game and
+ * how many games it has played before, so a farm with the same seed plays the
+ * same games whatever the number of threads. Each part keeps its own totals,
+ * which are combined once all the parts are done, and the engines of a part
+ * share one timer.
+ *
+ * Derived classes say how to create the agent for each game.
+ *
+ * @author Jackson Murphy
+ */
+public abstract class Farm
+{
+    // Number of parts each thread is given
+    private final static int PARTS_PER_THREAD = 4;
+
+    // The pool whose threads play the games
+    private ForkJoinPool pool;
+
+    // The seed from which the seed of every game is derived
+    private long seed;
+
+    // The environment and agent for each game, created when it is first
+    // played, and the number of episodes each has finished
+    private Environment[] environments;
+    private Agent[] agents;
+    private long[] episodes;
+
+    // Number of parts the games are divided into
+    private int parts;
+
+    // For each part: the timer shared by its engines, the scores of the
+    // episodes finished, their sum, and the ticks played during the current
+    // run
+    private PhaseTimer[] partTimers;
+    private Histogram[] partScores;
+    private long[] partScoreSums;
+    private long[] partTicks;
+
+    // Totals over every run: the scores of the episodes finished, their sum,
+    // the ticks played and how long the runs took in nanoseconds
+    private Histogram scores;
+    private long scoreSum;
+    private long ticks;
+    private long nanos;
+
+    /**
+     * Creates a farm of the given number of games, whose seeds are derived
+     * from seed, to be played on the threads of pool.
+     */
+    public Farm (int games, long seed, ForkJoinPool pool)
+    {
+        this.pool = pool;
+        this.seed = seed;
+        environments = new Environment[games];
+        agents = new Agent[games];
+        episodes = new long[games];
+        parts = Math.max(1, Math.min(games, pool.getParallelism()
+                * PARTS_PER_THREAD));
+        partTimers = new PhaseTimer[parts];
+        partScores = new Histogram[parts];
+        partScoreSums = new long[parts];
+        partTicks = new long[parts];
+        for (int p = 0; p < parts; p++)
+        {
+            partTimers[p] = new PhaseTimer();
+            partScores[p] = new Histogram();
+        }
+        scores = new Histogram();
+    }
+
+    /**
+     * Creates the agent that plays the given game. It is called once per
+     * game, on whichever of the pool's threads first plays it.
+     */
+    protected abstract Agent createAgent (int game);
+
+    /**
+     * Plays every game for the given number of ticks. A game that is still in
+     * progress at the end carries on in the next run.
+     */
+    public void run (long ticksPerGame)
+    {
+        long start = System.nanoTime();
+        pool.invoke(new Work(0, parts, ticksPerGame));
+        nanos += System.nanoTime() - start;
+
+        // Combine the parts
+        for (int p = 0; p < parts; p++)
+        {
+            scores.add(partScores[p]);
+            partScores[p].reset();
+            scoreSum += partScoreSums[p];
+            partScoreSums[p] = 0;
+            ticks += partTicks[p];
+            partTicks[p] = 0;
+        }
+    }
+
+    /**
+     * Returns the scores of the games that have finished
+     */
+    public Histogram getScores ()
+    {
+        return scores;
+    }
+
+    /**
+     * Returns the number of ticks played by all the games together
+     */
+    public long getTicks ()
+    {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks played per second, over all the games and
+     * all the runs
+     */
+    public double getTicksPerSecond ()
+    {
+        return nanos == 0 ? 0 : ticks * 1e9 / nanos;
+    }
+
+    /**
+     * Summarizes how fast the games were played and how they came out
+     */
+    @Override
+    public String toString ()
+    {
+        long count = scores.getCount();
+        return String.format("farm: %d games on %d threads, %d ticks in "
+                + "%.2f s (%.0f ticks/s), %d games finished, scores mean "
+                + "%.1f p50 %d p90 %d p99 %d max %d", environments.length,
+                pool.getParallelism(), ticks, nanos / 1e9,
+                getTicksPerSecond(), count, count == 0 ? 0.0 : scoreSum
+                        / (double) count, scores.getPercentile(0.5),
+                scores.getPercentile(0.9), scores.getPercentile(0.99),
+                scores.getMax());
+    }
+
+    /**
+     * Plays the games in part p for the given number of ticks each
+     */
+    private void play (int p, long ticksPerGame)
+    {
+        int games = environments.length;
+        int to = (int) ((long) games * (p + 1) / parts);
+        for (int g = (int) ((long) games * p / parts); g < to; g++)
+        {
+            Environment environment = environments[g];
+            if (environment == null)
+            {
+                environment = new Environment();
+                environment.reset(getSeed(g, 0));
+                environment.getEngine().setTimer(partTimers[p]);
+                environments[g] = environment;
+                agents[g] = createAgent(g);
+            }
+            Agent agent = agents[g];
+            for (long t = 0; t < ticksPerGame; t++)
+            {
+                environment.step(agent.act(environment));
+                if (environment.isDone())
+                {
+                    int score = environment.getEngine().getScore();
+                    partScores[p].record(score);
+                    partScoreSums[p] += score;
+                    episodes[g]++;
+                    environment.reset(getSeed(g, episodes[g]));
+                }
+            }
+            partTicks[p] += ticksPerGame;
+        }
+    }
+
+    /**
+     * Returns the seed of the given episode of the given game
+     */
+    private long getSeed (int game, long episode)
+    {
+        // Mix the bits well, so that nearby games and episodes get unrelated
+        // seeds
+        long z = seed + (((long) game << 32) ^ episode) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Plays the games in parts first through last - 1, splitting the work in
+     * half until there is only one part.
+     */
+    private class Work extends RecursiveAction
+    {
+        private int first, last;
+        private long ticksPerGame;
+
+        Work (int first, int last, long ticksPerGame)
+        {
+            this.first = first;
+            this.last = last;
+            this.ticksPerGame = ticksPerGame;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if (last - first > 1)
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new Work(first, middle, ticksPerGame), new Work(
+                        middle, last, ticksPerGame));
+            }
+            else
+            {
+                play(first, ticksPerGame);
+            }
+        }
+    }
+
+    /**
+     * Plays a farm of games with agents that press the controls at random,
+     * and reports the results. The arguments are the number of games
+     * (default 1000), the number of ticks to play each (default 10000) and
+     * the number of threads (default one per processor).
+     */
+    public static void main (String[] args)
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 10000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        Farm farm = new Farm(games, 1, new ForkJoinPool(threads))
+        {
+            protected Agent createAgent (final int game)
+            {
+                return new Agent()
+                {
+                    // Each agent has its own generator
+                    private Random random = new Random(game);
+
+                    public int act (Environment environment)
+                    {
+                        return random.nextInt(Environment.ACTIONS);
+                    }
+                };
+            }
+        };
+        farm.run(ticks);
+        System.out.println(farm);
+    }
+}
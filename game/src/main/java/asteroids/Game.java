@@ -0,0 +1,232 @@
+package asteroids;
+
+import javax.swing.*;
+
+import java.awt.*;
+import java.io.IOException;
+
+import static asteroids.Constants.*;
+
+/**
+ * Implements an asteroid game.
+ * 
+ * @author Jackson Murphy, Joe Zachary
+ *
+ */
+public class Game extends JFrame
+{
+    /**
+     * Launches the game
+     */
+    public static void main (String[] args)
+    {
+        final Game a = new Game();
+        a.setVisible(true);
+
+        // Finish any recording and telemetry on exit
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            public void run ()
+            {
+                a.controller.finish();
+            }
+        });
+
+        // With -Dasteroids.stats=true, report how the game ran on exit
+        if (Boolean.getBoolean("asteroids.stats"))
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                public void run ()
+                {
+                    System.err.println(a.controller.getLoopStatistics());
+                    System.err.println(a.controller.getPresentStatistics());
+                    System.err.println(a.controller.getDirtyStatistics());
+                    System.err.println(a.controller.getSpriteStatistics());
+                    System.err.println(a.controller.getPhaseStatistics());
+                    System.err.println(a.controller.getCollisionStatistics());
+                    System.err.println(a.controller.getPoolStatistics());
+                    System.err.println(a.controller.getRewindStatistics());
+                }
+            });
+        }
+    }
+
+    // The controller running the game
+    private Controller controller;
+
+    // Label showing the user's score
+    private JLabel scoreLabel;
+
+    // Label showing the number of lives remaining
+    private JLabel livesLabel;
+
+    // Label showing the game level
+    private JLabel levelLabel;
+
+    // Button for pausing/resuming the game
+    private JButton pauseButton;
+
+    // Button for starting a new game
+    private JButton newGameButton;
+
+    /**
+     * Lays out the game and creates the controller
+     */
+    public Game ()
+    {
+        // Title at the top
+        setTitle(TITLE);
+
+        // Default behavior on closing
+        this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        // The engine that runs the game, the main playing area that displays
+        // it, and the controller
+        Engine engine = new Engine();
+        Screen screen = new Screen(engine);
+        // With -Dasteroids.active=true the screen is drawn directly by the
+        // simulation loop
+        screen.setActiveRendering(Boolean.getBoolean("asteroids.active"));
+
+        // With -Dasteroids.overlay=true the timing overlay starts out shown;
+        // F3 shows and hides it
+        screen.setOverlay(Boolean.getBoolean("asteroids.overlay"));
+
+        // With -Dasteroids.sprites=false outlines are stroked every frame
+        screen.setSprites(!"false".equals(System.getProperty(
+                "asteroids.sprites")));
+        // With -Dasteroids.record=file the game is recorded into the file, to
+        // be played back with asteroids.Replay
+        Recorder recorder = null;
+        String record = System.getProperty("asteroids.record");
+        if (record != null)
+        {
+            try
+            {
+                recorder = new Recorder(record, engine.getSeed());
+            }
+            catch (IOException e)
+            {
+                System.err.println("Can't record to " + record + ": " + e);
+            }
+        }
+        controller = new Controller(this, screen, recorder);
+
+        // With -Dasteroids.telemetry=file the participants of every tick are
+        // streamed into the file, to be read with asteroids.TelemetryReader
+        String telemetry = System.getProperty("asteroids.telemetry");
+        if (telemetry != null)
+        {
+            try
+            {
+                controller.setTelemetry(new Telemetry(telemetry, engine));
+            }
+            catch (IOException e)
+            {
+                System.err.println("Can't stream telemetry to " + telemetry
+                        + ": " + e);
+            }
+        }
+
+        // This panel contains the screen to prevent the screen from being
+        // resized
+        JPanel screenPanel = new JPanel();
+        screenPanel.setLayout(new GridBagLayout());
+        screenPanel.add(screen);
+
+        // This panel contains buttons and labels
+        JPanel controls = new JPanel();
+        controls.setLayout(new FlowLayout(FlowLayout.CENTER, 20, 1));
+
+        newGameButton = new JButton(START_LABEL);
+        controls.add(newGameButton);
+
+        // The score label. The initial score is 0
+        scoreLabel = new JLabel("Score: 0");
+        controls.add(scoreLabel);
+
+        // The lives-count label. Initially there are three lives
+        livesLabel = new JLabel("Lives: 3");
+        controls.add(livesLabel);
+
+        // The game-level label. The game beings on level 1
+        levelLabel = new JLabel("Level: 1");
+        controls.add(levelLabel);
+
+        // The button that pauses the game
+        pauseButton = new JButton(PAUSE_LABEL);
+        controls.add(pauseButton);
+
+        // Connect the controller to the pause button
+        pauseButton.addActionListener(controller);
+        pauseButton.setActionCommand("Pause");
+
+        // Organize everything
+        JPanel mainPanel = new JPanel();
+        mainPanel.setLayout(new BorderLayout());
+        mainPanel.add(screenPanel, "Center");
+        mainPanel.add(controls, "North");
+        setContentPane(mainPanel);
+        pack();
+
+        // Connect the controller to the start button
+        newGameButton.addActionListener(controller);
+        newGameButton.setActionCommand("Start");
+    }
+
+    /**
+     * Setter for updating the score label
+     */
+    public void setScore (String s)
+    {
+        setLabel(scoreLabel, s);
+    }
+
+    /**
+     * Setter for updating the lives label
+     */
+    public void setLives (String s)
+    {
+        setLabel(livesLabel, s);
+    }
+
+    /**
+     * Setter for updating the game-level label
+     */
+    public void setLevel (String s)
+    {
+        setLabel(levelLabel, s);
+    }
+
+    /**
+     * Changes the text of a label on the event dispatch thread. The score,
+     * lives and level are updated from the simulation thread.
+     */
+    private void setLabel (final JLabel label, final String s)
+    {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            public void run ()
+            {
+                label.setText(s);
+            }
+        });
+    }
+
+    /**
+     * Setter for changing the pause button label
+     */
+    public void setPauseLabel (String s)
+    {
+        pauseButton.setText(s);
+    }
+
+    /**
+     * Setter for changing the label of the new game button
+     */
+    public void setStartButtonLabel (String s)
+    {
+        newGameButton.setText(s);
+    }
+}
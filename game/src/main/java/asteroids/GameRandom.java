@@ -0,0 +1,67 @@
+package asteroids;
+
+import java.util.Random;
+
+/**
+ * A random number generator that produces exactly the same numbers as
+ * java.util.Random with the same seed, but whose state can be read and
+ * restored. This lets the state of a game be saved and restored without
+ * serializing the generator.
+ *
+ * @author Jackson Murphy
+ */
+class GameRandom extends Random
+{
+    // The constants of the linear congruential generator used by Random
+    private final static long MULTIPLIER = 0x5DEECE66DL;
+    private final static long ADDEND = 0xBL;
+    private final static long MASK = (1L << 48) - 1;
+
+    // The 48 bits of state
+    private long state;
+
+    /**
+     * Creates a generator with the given seed
+     */
+    public GameRandom (long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Sets the seed, as Random does. This is called by Random's constructor.
+     */
+    @Override
+    public synchronized void setSeed (long seed)
+    {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Returns the next bits of randomness, as Random does. All of the other
+     * methods are built on this one.
+     */
+    @Override
+    protected int next (int bits)
+    {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Returns the current state of the generator
+     */
+    long getState ()
+    {
+        return state;
+    }
+
+    /**
+     * Puts the generator back into a state returned by getState
+     */
+    void setState (long state)
+    {
+        this.state = state;
+    }
+}
@@ -0,0 +1,136 @@
+package asteroids;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often values, such as durations in nanoseconds, fall into each
+ * of a fixed set of buckets. Values below 16 have a bucket each. Above that,
+ * each power of two is split into 16 equal buckets, so a value is known to
+ * within about 6% whatever its size. Recording a value takes constant time
+ * and allocates nothing.
+ *
+ * @author Jackson Murphy
+ */
+public class Histogram
+{
+    // Number of buckets each power of two is split into, as a power of two
+    private final static int SUB_BITS = 4;
+    private final static int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Enough buckets for every non-negative long
+    private final static int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // Number of values recorded in each bucket
+    private long[] counts;
+
+    // Number of values recorded, and the largest of them
+    private long count;
+    private long max;
+
+    /**
+     * Creates an empty histogram
+     */
+    public Histogram ()
+    {
+        counts = new long[BUCKETS];
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    public void record (long value)
+    {
+        value = Math.max(0, value);
+        counts[getBucket(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the bucket that value belongs in
+     */
+    private static int getBucket (long value)
+    {
+        int top = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (top < SUB_BITS)
+        {
+            return (int) value;
+        }
+        int shift = top - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift)
+                - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the largest value that belongs in bucket b
+     */
+    private static long getLimit (int b)
+    {
+        if (b < SUB_BUCKETS)
+        {
+            return b;
+        }
+        int shift = b / SUB_BUCKETS - 1;
+        long low = (long) (b % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the number of values recorded
+     */
+    public long getCount ()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the largest value recorded, or 0 if there are none
+     */
+    public long getMax ()
+    {
+        return max;
+    }
+
+    /**
+     * Returns a value that at least the given fraction of the recorded
+     * values are no larger than, to within the width of a bucket. Returns 0
+     * if there are no values.
+     */
+    public long getPercentile (double fraction)
+    {
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS && seen < count; b++)
+        {
+            seen += counts[b];
+            if (seen >= rank && seen > 0)
+            {
+                return Math.min(getLimit(b), max);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records every value that has been recorded in other
+     */
+    public void add (Histogram other)
+    {
+        for (int b = 0; b < BUCKETS; b++)
+        {
+            counts[b] += other.counts[b];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every value recorded
+     */
+    public void reset ()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+}
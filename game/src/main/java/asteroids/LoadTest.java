@@ -0,0 +1,125 @@
+package asteroids;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+import static asteroids.Constants.*;
+
+/**
+ * Puts a multiplayer Server under load with many NetClients on one thread,
+ * each of which sends an input every tick, holding the same controls for a
+ * random number of ticks at a time. At the end it reports how long the
+ * server's ticks took, as the server reported them in its states, how much
+ * each client received, and how far off the clients' predictions of their
+ * own ships were.
+ *
+ * The arguments are the number of clients (default 32), the number of
+ * seconds to run (default 10), and the host and port of the server. If no
+ * host is given, a server is started in the same process, on the loopback
+ * interface.
+ *
+ * @author Jackson Murphy
+ */
+public class LoadTest
+{
+    /**
+     * Runs the load test
+     */
+    public static void main (String[] args) throws IOException
+    {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String host = args.length > 2 ? args[2] : null;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : SERVER_PORT;
+
+        Server server = null;
+        if (host == null)
+        {
+            server = new Server(0, 1);
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        NetClient[] clients = new NetClient[clientCount];
+        int[] inputs = new int[clientCount];
+        int[] holds = new int[clientCount];
+        for (int c = 0; c < clientCount; c++)
+        {
+            clients[c] = new NetClient(host, port);
+        }
+
+        // Send an input from every client once per tick
+        Random random = new Random(1);
+        long tickNanos = FRAME_INTERVAL * 1000000L;
+        long ticks = seconds * 1000L / FRAME_INTERVAL;
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++)
+        {
+            long wait = start + t * tickNanos - System.nanoTime();
+            if (wait > 0)
+            {
+                LockSupport.parkNanos(wait);
+            }
+            for (int c = 0; c < clientCount; c++)
+            {
+                if (--holds[c] <= 0)
+                {
+                    inputs[c] = random.nextInt(16);
+                    holds[c] = 1 + random.nextInt(20);
+                }
+                clients[c].update();
+                clients[c].send(inputs[c]);
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // Gather the results
+        Histogram errors = new Histogram();
+        Histogram serverTimes = new Histogram();
+        long bytes = 0;
+        long minBytes = Long.MAX_VALUE;
+        long maxBytes = 0;
+        long states = 0;
+        long skipped = 0;
+        for (NetClient client : clients)
+        {
+            errors.add(client.getErrors());
+            serverTimes.add(client.getServerTimes());
+            long b = client.getBytesReceived();
+            bytes += b;
+            minBytes = Math.min(minBytes, b);
+            maxBytes = Math.max(maxBytes, b);
+            states += client.getStates();
+            skipped += client.getSkipped();
+        }
+
+        System.out.printf("%d clients for %.1f s: %.1f states/s per client, "
+                + "%d ticks skipped%n", clientCount, elapsed, states
+                / elapsed / clientCount, skipped);
+        System.out.printf("server tick: p50 %.3f ms p99 %.3f ms max %.3f ms "
+                + "(budget %d ms)%n", serverTimes.getPercentile(0.5) / 1e3,
+                serverTimes.getPercentile(0.99) / 1e3,
+                serverTimes.getMax() / 1e3, FRAME_INTERVAL);
+        System.out.printf("bandwidth per client: mean %.1f KB/s, min %.1f "
+                + "KB/s, max %.1f KB/s%n", bytes / elapsed / clientCount
+                / 1024, minBytes / elapsed / 1024, maxBytes / elapsed / 1024);
+        System.out.printf("prediction error: p50 %.3f px p99 %.3f px max "
+                + "%.3f px over %d states%n", errors.getPercentile(0.5) / 1e3,
+                errors.getPercentile(0.99) / 1e3, errors.getMax() / 1e3,
+                errors.getCount());
+        if (server != null)
+        {
+            System.out.println(server);
+        }
+
+        for (NetClient client : clients)
+        {
+            client.close();
+        }
+        if (server != null)
+        {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package asteroids;
+
+/**
+ * Decides whether the borders of two participants overlap. This is the exact
+ * test applied to the pairs that survive the broad phase. Two borders overlap
+ * when their intersection has a non-zero area, so borders that merely touch
+ * do not overlap.
+ *
+ * Cheap tests are tried first: the bounding circles of the outlines, then the
+ * bounding boxes of the borders. A bullet-sized outline is then checked to see
+ * whether an interior point lies inside the other border. Only pairs that get
+ * past all of these are compared one convex piece at a time using separating
+ * axes.
+ *
+ * @author Jackson Murphy
+ */
+class NarrowPhase
+{
+    /**
+     * Reports whether the borders of the participants in slots a and b of
+     * store overlap.
+     */
+    public static boolean overlaps (EntityStore store, int a, int b)
+    {
+        // Bounding circles
+        double dx = store.borderX[a] - store.borderX[b];
+        double dy = store.borderY[a] - store.borderY[b];
+        double reach = store.radius[a] + store.radius[b];
+        if (dx * dx + dy * dy >= reach * reach)
+        {
+            return false;
+        }
+
+        // Bounding boxes
+        store.place(a);
+        store.place(b);
+        if (store.maxX[a] <= store.minX[b] || store.maxX[b] <= store.minX[a]
+                || store.maxY[a] <= store.minY[b]
+                || store.maxY[b] <= store.minY[a])
+        {
+            return false;
+        }
+
+        // A point inside a small border that also lies inside the other border
+        // has a neighborhood inside both
+        Outline oa = Outline.get(store.outline[a]);
+        Outline ob = Outline.get(store.outline[b]);
+        if (oa.isSmall() && containsProbe(store, b, a))
+        {
+            return true;
+        }
+        if (ob.isSmall() && containsProbe(store, a, b))
+        {
+            return true;
+        }
+
+        // Compare each convex piece of one with each convex piece of the other
+        double[] xs = store.worldXs, ys = store.worldYs;
+        int baseA = a * store.stride;
+        int baseB = b * store.stride;
+        for (int i = 0; i < oa.getPieceCount(); i++)
+        {
+            int[] pa = oa.getPiece(i);
+            for (int j = 0; j < ob.getPieceCount(); j++)
+            {
+                int[] pb = ob.getPiece(j);
+                if (!separates(xs, ys, pa, baseA, pb, baseB)
+                        && !separates(xs, ys, pb, baseB, pa, baseA))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports whether the interior point of the outline in slot small, placed
+     * where its border is, lies inside the border in slot s.
+     */
+    private static boolean containsProbe (EntityStore store, int s, int small)
+    {
+        Outline outline = Outline.get(store.outline[small]);
+        double cos = Math.cos(store.borderRotation[small]);
+        double sin = Math.sin(store.borderRotation[small]);
+        double px = store.borderX[small] + cos * outline.getProbeX() - sin
+                * outline.getProbeY();
+        double py = store.borderY[small] + sin * outline.getProbeX() + cos
+                * outline.getProbeY();
+        return contains(store.worldXs, store.worldYs, s * store.stride,
+                Outline.get(store.outline[s]).getVertexCount(), px, py);
+    }
+
+    /**
+     * Reports whether (px, py) lies inside the polygon whose n vertices start
+     * at index base, by counting how many edges a horizontal ray from the
+     * point crosses.
+     */
+    static boolean contains (double[] xs, double[] ys, int base, int n,
+            double px, double py)
+    {
+        boolean inside = false;
+        for (int i = base, j = base + n - 1; i < base + n; j = i++)
+        {
+            if ((ys[i] > py) != (ys[j] > py)
+                    && px < xs[j] + (py - ys[j]) * (xs[i] - xs[j])
+                            / (ys[i] - ys[j]))
+            {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Reports whether one of the edges of convex piece pa is parallel to a
+     * line that separates pa from convex piece pb. The vertex indices of each
+     * piece are relative to the given base index. Pieces that only touch
+     * along the line count as separated.
+     */
+    private static boolean separates (double[] xs, double[] ys, int[] pa,
+            int baseA, int[] pb, int baseB)
+    {
+        int n = pa.length;
+        for (int i = 0, j = n - 1; i < n; j = i++)
+        {
+            // The normal of the edge from vertex j to vertex i
+            double nx = ys[baseA + pa[i]] - ys[baseA + pa[j]];
+            double ny = xs[baseA + pa[j]] - xs[baseA + pa[i]];
+
+            double minA = Double.POSITIVE_INFINITY;
+            double maxA = Double.NEGATIVE_INFINITY;
+            for (int v : pa)
+            {
+                double d = nx * xs[baseA + v] + ny * ys[baseA + v];
+                minA = Math.min(minA, d);
+                maxA = Math.max(maxA, d);
+            }
+            double minB = Double.POSITIVE_INFINITY;
+            double maxB = Double.NEGATIVE_INFINITY;
+            for (int v : pb)
+            {
+                double d = nx * xs[baseB + v] + ny * ys[baseB + v];
+                minB = Math.min(minB, d);
+                maxB = Math.max(maxB, d);
+            }
+            if (maxA <= minB || maxB <= minA)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,443 @@
+package asteroids;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import static asteroids.Constants.*;
+
+/**
+ * A player's end of a connection to a multiplayer Server. Once each tick the
+ * client sends the state of the controls, and whenever update is called it
+ * takes in the states that the server has sent.
+ *
+ * The client doesn't wait for the server to say where the player's own ship
+ * has gone. It steers, thrusts and moves its own copy of the ship with each
+ * input as soon as it is sent, just as the server will, so the ship answers
+ * the controls at once. When a state arrives, the copy is put where the
+ * server says the ship was after the last input it used, and the inputs the
+ * server hasn't used yet are applied again. If the server and the client
+ * agree, this puts the copy back where it was; the distance between where
+ * the client had predicted the ship would be and where the server put it is
+ * recorded as the prediction error.
+ *
+ * The other participants are as the server last described them.
+ *
+ * @author Jackson Murphy
+ */
+public class NetClient
+{
+    // Number of inputs that are remembered until the server has used them,
+    // which must be a power of two
+    private final static int HISTORY = 64;
+
+    // The connection to the server
+    private SocketChannel channel;
+
+    // Bytes received that don't yet make up a whole frame, and bytes waiting
+    // to be sent
+    private ByteBuffer in;
+    private ByteBuffer out;
+
+    // The player this client plays, or -1 before the server has said
+    private int player;
+
+    // From the latest state: the tick, how long the server took over the
+    // tick before it in microseconds, the sequence number of the last input
+    // the server had used, the score and the number of deaths
+    private int tick;
+    private int serverMicros;
+    private int ack;
+    private int score;
+    private int deaths;
+
+    // The participants in the latest state: how many there are, and the
+    // type, position, rotation and asteroid shape or owner of each
+    private int count;
+    private byte[] types;
+    private float[] xs, ys, rotations;
+    private int[] extras;
+
+    // The client's copy of the player's ship, and whether the player has a
+    // ship in play
+    private Ship ship;
+    private boolean shipInPlay;
+
+    // The sequence number of the last input sent, and for each of the last
+    // HISTORY inputs: the input and where the copy of the ship was after it
+    private int sequence;
+    private int[] history;
+    private double[] predictedX, predictedY;
+
+    // Statistics: prediction errors in thousandths of a pixel, how long the
+    // server's ticks took in microseconds, the bytes and states received,
+    // and ticks that were skipped between states
+    private Histogram errors;
+    private Histogram serverTimes;
+    private long bytesReceived;
+    private long states;
+    private long skipped;
+
+    /**
+     * Connects to the server at the given host and port
+     */
+    public NetClient (String host, int port) throws IOException
+    {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        in = ByteBuffer.allocate(1 << 17);
+        out = ByteBuffer.allocate(Protocol.INPUT_BYTES * HISTORY);
+        player = -1;
+        types = new byte[64];
+        xs = new float[64];
+        ys = new float[64];
+        rotations = new float[64];
+        extras = new int[64];
+        ship = new Ship(new EntityStore());
+        history = new int[HISTORY];
+        predictedX = new double[HISTORY];
+        predictedY = new double[HISTORY];
+        errors = new Histogram();
+        serverTimes = new Histogram();
+    }
+
+    /**
+     * Sends the Engine input bits for the next tick, and moves the copy of
+     * the ship as the server will when it uses them
+     */
+    public void send (int inputs) throws IOException
+    {
+        sequence++;
+        int i = sequence & (HISTORY - 1);
+        history[i] = inputs;
+        if (shipInPlay)
+        {
+            predict(inputs);
+        }
+        predictedX[i] = ship.getX();
+        predictedY[i] = ship.getY();
+
+        if (out.remaining() >= Protocol.INPUT_BYTES)
+        {
+            out.putInt(sequence);
+            out.put((byte) inputs);
+        }
+        out.flip();
+        channel.write(out);
+        out.compact();
+    }
+
+    /**
+     * Takes in whatever the server has sent, and returns the number of states
+     * that were received
+     */
+    public int update () throws IOException
+    {
+        int received = 0;
+        while (true)
+        {
+            int n = channel.read(in);
+            if (n < 0)
+            {
+                throw new EOFException("The server has closed the connection");
+            }
+            bytesReceived += n;
+            in.flip();
+            while (in.remaining() >= 2
+                    && in.remaining() >= 2 + (in.getShort(in.position())
+                            & 0xFFFF))
+            {
+                int end = in.position() + 2 + (in.getShort() & 0xFFFF);
+                byte type = in.get();
+                if (type == Protocol.WELCOME)
+                {
+                    player = in.get();
+                }
+                else if (type == Protocol.STATE)
+                {
+                    readState();
+                    received++;
+                }
+                in.position(end);
+            }
+            in.compact();
+            if (n == 0 || in.hasRemaining())
+            {
+                return received;
+            }
+        }
+    }
+
+    /**
+     * Reads a state, which follows its type in the input, and reconciles the
+     * copy of the ship with it
+     */
+    private void readState ()
+    {
+        int t = in.getInt();
+        if (states > 0 && t - tick > 1)
+        {
+            skipped += t - tick - 1;
+        }
+        tick = t;
+        serverMicros = in.getInt();
+        serverTimes.record(serverMicros);
+        ack = in.getInt();
+        score = in.getInt();
+        deaths = in.getShort();
+
+        // A ship that has just been placed wasn't predicted, so there is no
+        // error to measure
+        boolean predicted = shipInPlay;
+        shipInPlay = in.get() != 0;
+        if (shipInPlay)
+        {
+            double x = in.getDouble();
+            double y = in.getDouble();
+            double speedX = in.getDouble();
+            double speedY = in.getDouble();
+            double rotation = in.getDouble();
+            reconcile(x, y, speedX, speedY, rotation, predicted);
+        }
+
+        count = in.getShort();
+        if (types.length < count)
+        {
+            int capacity = Math.max(count, types.length * 2);
+            types = new byte[capacity];
+            xs = new float[capacity];
+            ys = new float[capacity];
+            rotations = new float[capacity];
+            extras = new int[capacity];
+        }
+        for (int k = 0; k < count; k++)
+        {
+            types[k] = in.get();
+            xs[k] = (float) Protocol.decodePosition(in.getShort());
+            ys[k] = (float) Protocol.decodePosition(in.getShort());
+            rotations[k] = (float) Protocol.decodeAngle(in.get());
+            extras[k] = in.get() & 0xFF;
+        }
+        states++;
+    }
+
+    /**
+     * Puts the copy of the ship where the server says it was after the input
+     * ack, and applies the inputs that have been sent since. If the ship was
+     * predicted, the error in the prediction is recorded.
+     */
+    private void reconcile (double x, double y, double speedX, double speedY,
+            double rotation, boolean predicted)
+    {
+        // Only inputs that are still remembered can be compared or replayed
+        boolean known = sequence - ack < HISTORY;
+        if (known && predicted && ack > 0)
+        {
+            int i = ack & (HISTORY - 1);
+            double dx = wrap(x - predictedX[i]);
+            double dy = wrap(y - predictedY[i]);
+            errors.record(Math.round(Math.sqrt(dx * dx + dy * dy) * 1000));
+        }
+
+        ship.setPosition(x, y);
+        ship.setSpeedX(speedX);
+        ship.setSpeedY(speedY);
+        ship.setRotation(rotation);
+        if (known)
+        {
+            for (int s = ack + 1; s <= sequence; s++)
+            {
+                int i = s & (HISTORY - 1);
+                predict(history[i]);
+                predictedX[i] = ship.getX();
+                predictedY[i] = ship.getY();
+            }
+        }
+    }
+
+    /**
+     * Steers, thrusts and moves the copy of the ship as the Arena does
+     */
+    private void predict (int inputs)
+    {
+        if ((inputs & Engine.LEFT) != 0)
+        {
+            ship.rotate(-SHIP_TURN);
+        }
+        if ((inputs & Engine.RIGHT) != 0)
+        {
+            ship.rotate(SHIP_TURN);
+        }
+        if ((inputs & Engine.THRUST) != 0)
+        {
+            ship.accelerate(SHIP_THRUST);
+        }
+        ship.move();
+    }
+
+    /**
+     * Returns the offset d, measured the shortest way around the edges of the
+     * screen
+     */
+    private static double wrap (double d)
+    {
+        if (d > SIZE / 2)
+        {
+            return d - SIZE;
+        }
+        if (d < -SIZE / 2)
+        {
+            return d + SIZE;
+        }
+        return d;
+    }
+
+    /**
+     * Closes the connection
+     */
+    public void close () throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Returns the player this client plays, or -1 if the server hasn't said
+     */
+    public int getPlayer ()
+    {
+        return player;
+    }
+
+    /**
+     * Returns the tick of the latest state
+     */
+    public int getTick ()
+    {
+        return tick;
+    }
+
+    /**
+     * Returns the player's score
+     */
+    public int getScore ()
+    {
+        return score;
+    }
+
+    /**
+     * Returns the number of ships the player has lost
+     */
+    public int getDeaths ()
+    {
+        return deaths;
+    }
+
+    /**
+     * Returns the client's copy of the player's ship. It is only meaningful
+     * while isShipInPlay is true.
+     */
+    public Ship getShip ()
+    {
+        return ship;
+    }
+
+    /**
+     * Reports whether the player has a ship in play
+     */
+    public boolean isShipInPlay ()
+    {
+        return shipInPlay;
+    }
+
+    /**
+     * Returns the number of participants in the latest state
+     */
+    public int getParticipantCount ()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the type of the k'th participant, as in EntityStore
+     */
+    public byte getType (int k)
+    {
+        return types[k];
+    }
+
+    /**
+     * Returns the x coordinate of the k'th participant
+     */
+    public float getX (int k)
+    {
+        return xs[k];
+    }
+
+    /**
+     * Returns the y coordinate of the k'th participant
+     */
+    public float getY (int k)
+    {
+        return ys[k];
+    }
+
+    /**
+     * Returns the rotation of the k'th participant
+     */
+    public float getRotation (int k)
+    {
+        return rotations[k];
+    }
+
+    /**
+     * Returns the variety * 4 + size of the k'th participant if it is an
+     * asteroid, or the player who owns it if it is a ship or a bullet
+     */
+    public int getExtra (int k)
+    {
+        return extras[k];
+    }
+
+    /**
+     * Returns the prediction errors, in thousandths of a pixel
+     */
+    public Histogram getErrors ()
+    {
+        return errors;
+    }
+
+    /**
+     * Returns how long the server's ticks took, in microseconds
+     */
+    public Histogram getServerTimes ()
+    {
+        return serverTimes;
+    }
+
+    /**
+     * Returns the number of bytes received
+     */
+    public long getBytesReceived ()
+    {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns the number of states received
+     */
+    public long getStates ()
+    {
+        return states;
+    }
+
+    /**
+     * Returns the number of ticks for which no state was received
+     */
+    public long getSkipped ()
+    {
+        return skipped;
+    }
+}
@@ -0,0 +1,395 @@
+package asteroids;
+
+import java.awt.Shape;
+import java.awt.geom.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * The outline of a participant in the form used for collision detection: a
+ * simple polygon centered at (0,0), its bounding radius, and a decomposition
+ * of the polygon into convex pieces. Building an outline is relatively
+ * expensive, so there is one Outline for each distinct Shape, obtained with
+ * Outline.of.
+ *
+ * @author Jackson Murphy
+ */
+public class Outline
+{
+    // Outlines that have been built so far, keyed by the Shape they describe
+    private final static IdentityHashMap<Shape, Outline> cache =
+            new IdentityHashMap<Shape, Outline>();
+
+    // Outlines that have been built so far, indexed by id
+    private static volatile Outline[] byId = new Outline[0];
+
+    // Outlines that fit within this distance of (0,0), such as bullets and
+    // dust, are tested as points before being tested as polygons
+    private final static double SMALL_RADIUS = 1.5;
+
+    // A small number identifying this outline
+    private int id;
+
+    // The shape that was used to build the outline
+    private Shape shape;
+
+    // The vertices of the polygon, ordered so that its signed area is
+    // positive
+    private double[] xs, ys;
+
+    // Distance from (0,0) to the farthest vertex
+    private double radius;
+
+    // The vertex indices of each convex piece, in the same order as the
+    // polygon's vertices
+    private int[][] pieces;
+
+    // A point strictly inside the polygon
+    private double probeX, probeY;
+
+    /**
+     * Returns the outline that describes shape, building it on first use. The
+     * shape should be a single closed polygon that does not cross itself.
+     */
+    public static synchronized Outline of (Shape shape)
+    {
+        Outline outline = cache.get(shape);
+        if (outline == null)
+        {
+            outline = new Outline(shape, cache.size());
+            cache.put(shape, outline);
+            Outline[] outlines = Arrays.copyOf(byId, byId.length + 1);
+            outlines[outline.id] = outline;
+            byId = outlines;
+        }
+        return outline;
+    }
+
+    /**
+     * Returns the outline with the specified id
+     */
+    public static Outline get (int id)
+    {
+        return byId[id];
+    }
+
+    /**
+     * Builds the outline of shape, giving it the specified id.
+     */
+    private Outline (Shape shape, int id)
+    {
+        this.id = id;
+        this.shape = shape;
+        readVertices(shape);
+        for (int i = 0; i < xs.length; i++)
+        {
+            radius = Math.max(radius, Math.hypot(xs[i], ys[i]));
+        }
+        pieces = decompose();
+
+        // The centroid of a convex piece lies strictly inside it
+        int[] piece = pieces[0];
+        for (int v : piece)
+        {
+            probeX += xs[v] / piece.length;
+            probeY += ys[v] / piece.length;
+        }
+    }
+
+    /**
+     * Returns the number that identifies this outline
+     */
+    public int getId ()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the shape this outline was built from
+     */
+    public Shape getShape ()
+    {
+        return shape;
+    }
+
+    /**
+     * Returns the number of vertices in the polygon
+     */
+    public int getVertexCount ()
+    {
+        return xs.length;
+    }
+
+    /**
+     * Returns the x coordinate of vertex i
+     */
+    public double getX (int i)
+    {
+        return xs[i];
+    }
+
+    /**
+     * Returns the y coordinate of vertex i
+     */
+    public double getY (int i)
+    {
+        return ys[i];
+    }
+
+    /**
+     * Returns the distance from (0,0) to the farthest vertex
+     */
+    public double getRadius ()
+    {
+        return radius;
+    }
+
+    /**
+     * Reports whether the outline is small enough that collisions with it are
+     * best tested by first checking whether one of its points lies inside the
+     * other polygon.
+     */
+    public boolean isSmall ()
+    {
+        return radius <= SMALL_RADIUS;
+    }
+
+    /**
+     * Returns the x coordinate of a point strictly inside the polygon
+     */
+    public double getProbeX ()
+    {
+        return probeX;
+    }
+
+    /**
+     * Returns the y coordinate of a point strictly inside the polygon
+     */
+    public double getProbeY ()
+    {
+        return probeY;
+    }
+
+    /**
+     * Returns the number of convex pieces that make up the polygon
+     */
+    public int getPieceCount ()
+    {
+        return pieces.length;
+    }
+
+    /**
+     * Returns the vertex indices of convex piece k. The array must not be
+     * modified.
+     */
+    int[] getPiece (int k)
+    {
+        return pieces[k];
+    }
+
+    /**
+     * Copies the vertices of shape, dropping repeated points, and orders them
+     * so that the polygon has positive signed area.
+     */
+    private void readVertices (Shape shape)
+    {
+        ArrayList<double[]> points = new ArrayList<double[]>();
+        double[] coords = new double[6];
+        for (PathIterator iter = shape.getPathIterator(null, 0.5); !iter
+                .isDone(); iter.next())
+        {
+            int type = iter.currentSegment(coords);
+            if (type == PathIterator.SEG_CLOSE)
+            {
+                continue;
+            }
+            if (!points.isEmpty())
+            {
+                double[] last = points.get(points.size() - 1);
+                if (last[0] == coords[0] && last[1] == coords[1])
+                {
+                    continue;
+                }
+            }
+            points.add(new double[] { coords[0], coords[1] });
+        }
+        int n = points.size();
+        if (n > 1 && points.get(0)[0] == points.get(n - 1)[0]
+                && points.get(0)[1] == points.get(n - 1)[1])
+        {
+            points.remove(--n);
+        }
+        if (n < 3)
+        {
+            throw new IllegalArgumentException("Outline needs three vertices");
+        }
+
+        double area = 0;
+        for (int i = 0; i < n; i++)
+        {
+            double[] a = points.get(i);
+            double[] b = points.get((i + 1) % n);
+            area += a[0] * b[1] - b[0] * a[1];
+        }
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            double[] p = points.get(area > 0 ? i : n - 1 - i);
+            xs[i] = p[0];
+            ys[i] = p[1];
+        }
+    }
+
+    /**
+     * Splits the polygon into convex pieces. The polygon is first cut into
+     * triangles by clipping ears, and then neighboring pieces are merged
+     * whenever the result is still convex.
+     */
+    private int[][] decompose ()
+    {
+        ArrayList<int[]> result = new ArrayList<int[]>();
+
+        // Clip ears until only a triangle remains
+        ArrayList<Integer> remaining = new ArrayList<Integer>();
+        for (int i = 0; i < xs.length; i++)
+        {
+            remaining.add(i);
+        }
+        while (remaining.size() > 3)
+        {
+            int n = remaining.size();
+            int ear = -1;
+            for (int i = 0; i < n && ear < 0; i++)
+            {
+                if (isEar(remaining, i))
+                {
+                    ear = i;
+                }
+            }
+            if (ear < 0)
+            {
+                // Only possible with collinear vertices; clip anything
+                ear = 0;
+            }
+            int a = remaining.get((ear + n - 1) % n);
+            int b = remaining.get(ear);
+            int c = remaining.get((ear + 1) % n);
+            if (cross(a, b, c) > 0)
+            {
+                result.add(new int[] { a, b, c });
+            }
+            remaining.remove(ear);
+        }
+        int a = remaining.get(0), b = remaining.get(1), c = remaining.get(2);
+        if (cross(a, b, c) > 0 || result.isEmpty())
+        {
+            result.add(new int[] { a, b, c });
+        }
+
+        // Merge pieces across shared edges while they stay convex
+        boolean merged = true;
+        while (merged)
+        {
+            merged = false;
+            for (int i = 0; i < result.size() && !merged; i++)
+            {
+                for (int j = i + 1; j < result.size() && !merged; j++)
+                {
+                    int[] union = merge(result.get(i), result.get(j));
+                    if (union != null)
+                    {
+                        result.set(i, union);
+                        result.remove(j);
+                        merged = true;
+                    }
+                }
+            }
+        }
+        return result.toArray(new int[result.size()][]);
+    }
+
+    /**
+     * Reports whether the i'th of the remaining vertices is an ear: a convex
+     * vertex whose triangle with its neighbors contains no other vertex.
+     */
+    private boolean isEar (ArrayList<Integer> remaining, int i)
+    {
+        int n = remaining.size();
+        int a = remaining.get((i + n - 1) % n);
+        int b = remaining.get(i);
+        int c = remaining.get((i + 1) % n);
+        if (cross(a, b, c) <= 0)
+        {
+            return false;
+        }
+        for (int v : remaining)
+        {
+            if (v != a && v != b && v != c && cross(a, b, v) >= 0
+                    && cross(b, c, v) >= 0 && cross(c, a, v) >= 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If pieces p and q share an edge and their union is convex, returns the
+     * union. Otherwise returns null.
+     */
+    private int[] merge (int[] p, int[] q)
+    {
+        for (int i = 0; i < p.length; i++)
+        {
+            int u = p[i];
+            int v = p[(i + 1) % p.length];
+            for (int j = 0; j < q.length; j++)
+            {
+                if (q[j] == v && q[(j + 1) % q.length] == u)
+                {
+                    // Walk p from v around to u, then q from u around to v
+                    int[] union = new int[p.length + q.length - 2];
+                    int k = 0;
+                    for (int s = 1; s <= p.length; s++)
+                    {
+                        union[k++] = p[(i + s) % p.length];
+                    }
+                    for (int s = 2; s < q.length; s++)
+                    {
+                        union[k++] = q[(j + s) % q.length];
+                    }
+                    return isConvex(union) ? union : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reports whether the polygon with the given vertex indices is convex.
+     */
+    private boolean isConvex (int[] piece)
+    {
+        int n = piece.length;
+        for (int i = 0; i < n; i++)
+        {
+            if (cross(piece[i], piece[(i + 1) % n], piece[(i + 2) % n]) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the cross product of (b - a) and (c - b), which is positive when
+     * a, b, c turn the same way as the polygon.
+     */
+    private double cross (int a, int b, int c)
+    {
+        return (xs[b] - xs[a]) * (ys[c] - ys[b]) - (ys[b] - ys[a])
+                * (xs[c] - xs[b]);
+    }
+}
@@ -0,0 +1,239 @@
+package asteroids;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds collisions using the threads of a ForkJoinPool, for games with enough
+ * participants to make it worthwhile. The broad phase is split across the
+ * threads by the grid. The borders of all the participants are then placed,
+ * each by one thread, so that the exact tests only read shared state. Finally
+ * the candidate pairs are divided into contiguous parts and tested, each part
+ * recording its collisions in a buffer of its own. Pairs of types that the
+ * CollisionTable has no handler for when the search starts, and pairs with a
+ * participant already marked to be removed, are skipped without being
+ * tested. Neither changes while the threads are working, so they can be read
+ * safely.
+ *
+ * The buffers are combined in order, so the collisions come out in the same
+ * order as they would from a single thread. The engine then goes through the
+ * pairs on its own thread, skipping those that a collision handled earlier
+ * in the pass has made irrelevant, counting the tests and notifying its
+ * listeners just as it would without the threads.
+ *
+ * @author Jackson Murphy
+ */
+class ParallelCollider
+{
+    // Number of parts each thread is given, so that threads that finish
+    // early can take on more work
+    private final static int PARTS_PER_THREAD = 4;
+
+    // The pool whose threads do the work
+    private ForkJoinPool pool;
+
+    // The store, grid and grid items being worked on
+    private EntityStore store;
+    private SpatialHash grid;
+    private int[] colliders;
+
+    // Number of candidate pairs and the number of parts they are divided
+    // into
+    private int pairCount;
+    private int parts;
+
+    // For each ordered pair of types, whether the table had a handler for it
+    // when the search started, so that its pairs were tested
+    private boolean[] tested;
+
+    // Indices of the colliding pairs found by each part
+    private int[][] partHits;
+    private int[] partCounts;
+
+    // Indices of all the colliding pairs, in order
+    private int[] hits;
+
+    /**
+     * Creates a collider that uses the threads of pool
+     */
+    public ParallelCollider (ForkJoinPool pool)
+    {
+        this.pool = pool;
+        partHits = new int[0][];
+        partCounts = new int[0];
+        tested = new boolean[CollisionTable.TYPES * CollisionTable.TYPES];
+        hits = new int[64];
+    }
+
+    /**
+     * Returns the pool whose threads do the work
+     */
+    public ForkJoinPool getPool ()
+    {
+        return pool;
+    }
+
+    /**
+     * Finds the pairs of grid items that collide, where item i is the
+     * participant in slot colliders[i] of store, among the pairs whose types
+     * table has handlers for. Returns how many pairs collide; the index in
+     * the grid of the k'th colliding pair is getHit(k). The tests made are
+     * not counted.
+     */
+    int findCollisions (EntityStore store, SpatialHash grid, int[] colliders,
+            CollisionTable table)
+    {
+        this.store = store;
+        this.grid = grid;
+        this.colliders = colliders;
+        for (int t1 = 0; t1 < CollisionTable.TYPES; t1++)
+        {
+            for (int t2 = 0; t2 < CollisionTable.TYPES; t2++)
+            {
+                tested[t1 * CollisionTable.TYPES + t2] =
+                        table.isHandled(t1, t2);
+            }
+        }
+        parts = pool.getParallelism() * PARTS_PER_THREAD;
+        if (partHits.length < parts)
+        {
+            int old = partHits.length;
+            partHits = Arrays.copyOf(partHits, parts);
+            partCounts = Arrays.copyOf(partCounts, parts);
+            for (int p = old; p < parts; p++)
+            {
+                partHits[p] = new int[16];
+            }
+        }
+
+        pairCount = grid.findPairs(pool, PARTS_PER_THREAD);
+        pool.invoke(new Work(0, parts, false));
+        pool.invoke(new Work(0, parts, true));
+
+        // Combine the parts in order
+        int count = 0;
+        for (int p = 0; p < parts; p++)
+        {
+            if (hits.length < count + partCounts[p])
+            {
+                hits = Arrays.copyOf(hits, Math.max(count + partCounts[p],
+                        hits.length * 2));
+            }
+            System.arraycopy(partHits[p], 0, hits, count, partCounts[p]);
+            count += partCounts[p];
+        }
+        this.store = null;
+        this.grid = null;
+        this.colliders = null;
+        return count;
+    }
+
+    /**
+     * Returns the number of candidate pairs found by findCollisions
+     */
+    int getPairCount ()
+    {
+        return pairCount;
+    }
+
+    /**
+     * Reports whether findCollisions tested the pairs of participants of
+     * types t1 and t2, rather than skipping them because their types had no
+     * handler
+     */
+    boolean wasTested (int t1, int t2)
+    {
+        return tested[t1 * CollisionTable.TYPES + t2];
+    }
+
+    /**
+     * Returns the index in the grid of the k'th colliding pair found by
+     * findCollisions
+     */
+    int getHit (int k)
+    {
+        return hits[k];
+    }
+
+    /**
+     * Places the borders of the live participants in part p.
+     */
+    private void place (int p)
+    {
+        int n = store.liveCount;
+        int to = (int) ((long) n * (p + 1) / parts);
+        for (int k = (int) ((long) n * p / parts); k < to; k++)
+        {
+            store.place(store.live[k]);
+        }
+    }
+
+    /**
+     * Tests the candidate pairs in part p, recording the ones that collide.
+     */
+    private void test (int p)
+    {
+        int[] found = partHits[p];
+        byte[] type = store.type;
+        int count = 0;
+        int to = (int) ((long) pairCount * (p + 1) / parts);
+        for (int k = (int) ((long) pairCount * p / parts); k < to; k++)
+        {
+            int s1 = colliders[grid.getFirst(k)];
+            int s2 = colliders[grid.getSecond(k)];
+            if (!tested[type[s1] * CollisionTable.TYPES + type[s2]]
+                    || store.isPendingRemoval(s1)
+                    || store.isPendingRemoval(s2))
+            {
+                continue;
+            }
+            if (NarrowPhase.overlaps(store, s1, s2))
+            {
+                if (count == found.length)
+                {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = k;
+            }
+        }
+        partHits[p] = found;
+        partCounts[p] = count;
+    }
+
+    /**
+     * Places borders or tests pairs in parts first through last - 1,
+     * splitting the work in half until there is only one part.
+     */
+    private class Work extends RecursiveAction
+    {
+        private int first, last;
+        private boolean testing;
+
+        Work (int first, int last, boolean testing)
+        {
+            this.first = first;
+            this.last = last;
+            this.testing = testing;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if (last - first > 1)
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new Work(first, middle, testing), new Work(middle,
+                        last, testing));
+            }
+            else if (testing)
+            {
+                test(first);
+            }
+            else
+            {
+                place(first);
+            }
+        }
+    }
+}
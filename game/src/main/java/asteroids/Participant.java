@@ -0,0 +1,326 @@
+package asteroids;
+
+import java.awt.*;
+import java.awt.geom.*;
+
+/**
+ * Represents a single moving element in an asteroids game. This is an abstract
+ * class, so it can be used only by extending it and passing the outline of the
+ * element to the constructor.
+ * 
+ * The state of the element is kept in an EntityStore along with the state of
+ * every other element, and a Participant is a handle onto its slot in the
+ * store. When the element is removed from the game its slot is freed, and the
+ * Participant can no longer be used.
+ * 
+ * @author Joe Zachary
+ */
+abstract public class Participant
+{
+    // The store that holds the state of this participant
+    private EntityStore store;
+
+    // This participant's slot in the store, or -1 once it has been removed
+    // from the game
+    private int slot;
+
+    // The type and outline given to the constructor, used again if the
+    // participant is recycled
+    private byte type;
+    private Outline initialOutline;
+
+    // The pool that this participant came from, if any, and whether whoever
+    // acquired it has released it
+    private ParticipantPool<?> pool;
+    private boolean released;
+
+    /**
+     * Constructs a participant of the given type, with the given outline, whose
+     * state is held in store. The center of the outline should be at
+     * coordinate (0,0). The center is the reference used when the outline is
+     * moved or rotated. The outline will not be modified, so it can be shared.
+     */
+    protected Participant (EntityStore store, byte type, Shape outline)
+    {
+        this.store = store;
+        this.type = type;
+        initialOutline = Outline.of(outline);
+        slot = store.allocate(this, type, initialOutline);
+    }
+
+    /**
+     * Returns the store that holds this participant's state
+     */
+    EntityStore getStore ()
+    {
+        return store;
+    }
+
+    /**
+     * Returns this participant's slot in its store, or -1 if it has been
+     * removed from the game.
+     */
+    int getSlot ()
+    {
+        return slot;
+    }
+
+    /**
+     * Called by the store when this participant's slot is freed. If the
+     * participant has already been released to its pool, it goes back in.
+     */
+    void detach ()
+    {
+        slot = -1;
+        if (released && pool != null)
+        {
+            pool.recycle(this);
+        }
+    }
+
+    /**
+     * Gives a recycled participant a new slot in its store, with the type and
+     * outline it was constructed with and all other state zero.
+     */
+    void reattach ()
+    {
+        slot = store.allocate(this, type, initialOutline);
+    }
+
+    /**
+     * Records that this participant was handed out by pool.
+     */
+    void setPool (ParticipantPool<?> pool)
+    {
+        this.pool = pool;
+        released = false;
+    }
+
+    /**
+     * Records that this participant has been released to its pool. Returns
+     * false if it had already been released.
+     */
+    boolean setReleased ()
+    {
+        if (released)
+        {
+            return false;
+        }
+        released = true;
+        return true;
+    }
+
+    /**
+     * Replaces the outline of this participant.
+     */
+    void setOutline (Shape outline)
+    {
+        store.setOutline(slot, Outline.of(outline));
+    }
+
+    /**
+     * Sets the two components of the participant's velocity. The speed is in
+     * pixels per frame refresh and the direction is in radians.
+     */
+    public void setVelocity (double speed, double direction)
+    {
+        store.speedX[slot] = Math.cos(direction) * speed;
+        store.speedY[slot] = Math.sin(direction) * speed;
+    }
+    
+    /**
+     * Sets the x component of the participant's speed. 
+     */
+    public void setSpeedX (double s)
+    {
+        store.speedX[slot] = s;
+    }
+    
+    /**
+     * Sets the y component of the participant's speed.
+     */
+    public void setSpeedY (double s)
+    {
+        store.speedY[slot] = s;
+    }
+    
+    /**
+     * Gets the x component of the participant's speed
+     */
+    public double getSpeedX ()
+    {
+        return store.speedX[slot];
+    }
+    
+    /**
+     * Gets the y component of the participant's speed
+     */
+    public double getSpeedY ()
+    {
+        return store.speedY[slot];
+    }
+    
+    /**
+     * Sets the rotation (in radians) of the participant
+     */
+    public void setRotation (double radians)
+    {
+        store.rotation[slot] = radians;
+    }
+
+    /**
+     * Rotates the participant by delta radians.
+     */
+    public void rotate (double delta)
+    {
+        store.rotation[slot] += delta;
+    }
+
+    /**
+     * Gets the current rotation of the participant
+     * 
+     * @return
+     */
+    public double getRotation ()
+    {
+        return store.rotation[slot];
+    }
+
+    /**
+     * Accelerates in the direction that the participant is oriented.
+     * Participants cannot accelerate beyond the speed limit.
+     */
+    public void accelerate (double delta)
+    {
+        store.accelerate(slot, delta);
+    }
+
+    /**
+     * Simulates friction by accelerating the participant opposite to its
+     * direction of motion.
+     */
+    public void friction ()
+    {
+        store.friction(slot);
+    }
+
+    /**
+     * Sets the position of the center of the participant
+     */
+    public void setPosition (double x, double y)
+    {
+        store.x[slot] = x;
+        store.y[slot] = y;
+    }
+
+    /**
+     * Gets the x coordinate of the center of the participant
+     */
+    public double getX ()
+    {
+        return store.x[slot];
+    }
+
+    /**
+     * Gets the y coordinate of the center of the participant
+     */
+    public double getY ()
+    {
+        return store.y[slot];
+    }
+
+    /**
+     * Returns a Shape object that describes the outline of the participant,
+     * as passed to the constructor.
+     */
+    Shape getOutline ()
+    {
+        return getPolygon().getShape();
+    }
+
+    /**
+     * Returns the polygon version of the outline.
+     */
+    Outline getPolygon ()
+    {
+        return Outline.get(store.outline[slot]);
+    }
+
+    /**
+     * Returns the type of participant, one of the type constants in
+     * EntityStore
+     */
+    byte getType ()
+    {
+        return store.type[slot];
+    }
+
+    /**
+     * Sets or clears the given flag, one of the flag constants in EntityStore
+     */
+    void setFlag (byte flag, boolean on)
+    {
+        if (on)
+        {
+            store.flags[slot] |= flag;
+        }
+        else
+        {
+            store.flags[slot] &= ~flag;
+        }
+    }
+
+    /**
+     * Limits the lifetime of this participant. Once the engine has run the
+     * given number of ticks, not counting ticks while the game is paused, the
+     * participant is removed from the game.
+     */
+    public void setLifetime (int ticks)
+    {
+        store.setLifetime(slot, ticks);
+    }
+
+    /**
+     * Moves this participant to reflect one tick of the clock. The engine
+     * moves all of its participants at once through the store, so this is
+     * not called while a game is running.
+     */
+    public void move ()
+    {
+        store.move(slot);
+    }
+
+    /**
+     * Transforms the point just like the participant is transformed before it
+     * is displayed. This can be used to figure out where some point of the
+     * participant is going to be located after it is transformed. (This can be
+     * useful for computing the tip of a ship, for example.)
+     */
+    public void transformPoint (Point2D.Double point)
+    {
+        double cos = Math.cos(getRotation());
+        double sin = Math.sin(getRotation());
+        double px = point.x;
+        double py = point.y;
+        point.x = getX() + cos * px - sin * py;
+        point.y = getY() + sin * px + cos * py;
+    }
+
+    /**
+     * Reports whether this participant overlaps with p.
+     */
+    public boolean overlaps (Participant p)
+    {
+        return NarrowPhase.overlaps(store, slot, p.slot);
+    }
+
+    /**
+     * Draws this participant
+     */
+    public void draw (Graphics2D g)
+    {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g.draw(store.getBorder(slot, store.interpolation));
+    }
+}
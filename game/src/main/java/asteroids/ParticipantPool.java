@@ -0,0 +1,157 @@
+package asteroids;
+
+/**
+ * Keeps participants that have left the game so that they can be used again
+ * instead of being garbage collected. The pool holds at most a fixed number of
+ * idle participants; any beyond that are simply dropped.
+ *
+ * A participant goes back into its pool only when two things have happened:
+ * whoever acquired it has released it, and the engine has removed it from
+ * the game (which frees its slot in the store). Until then it may still be in
+ * use, so it can't be handed out again.
+ *
+ * Derived classes say how to create a participant when the pool is empty.
+ *
+ * @author Jackson Murphy
+ */
+abstract class ParticipantPool<T extends Participant>
+{
+    // Name used when reporting statistics
+    private String name;
+
+    // Idle participants, ready to be handed out
+    private Participant[] idle;
+    private int idleCount;
+
+    // Number of participants handed out and not yet back in the pool
+    private int outstanding;
+
+    // Statistics: acquisitions satisfied from the pool, acquisitions that
+    // needed a new participant, the largest number outstanding at once, and
+    // participants dropped because the pool was full
+    private long hits, misses, drops;
+    private int highWater;
+
+    /**
+     * Creates an empty pool with the given name that will hold up to capacity
+     * idle participants.
+     */
+    public ParticipantPool (String name, int capacity)
+    {
+        this.name = name;
+        idle = new Participant[capacity];
+    }
+
+    /**
+     * Creates a new participant for the pool to hand out.
+     */
+    protected abstract T create ();
+
+    /**
+     * Returns a participant that is ready to be configured and added to the
+     * engine. It is either a recycled participant, which starts out with all
+     * of its state set to zero, or a new one.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire ()
+    {
+        T p;
+        if (idleCount > 0)
+        {
+            hits++;
+            p = (T) idle[--idleCount];
+            idle[idleCount] = null;
+            p.reattach();
+        }
+        else
+        {
+            misses++;
+            p = create();
+        }
+        p.setPool(this);
+        outstanding++;
+        highWater = Math.max(highWater, outstanding);
+        return p;
+    }
+
+    /**
+     * Reports that the caller is finished with p. It will return to the pool
+     * once it has also been removed from the game.
+     */
+    public void release (T p)
+    {
+        if (p.setReleased() && p.getSlot() < 0)
+        {
+            recycle(p);
+        }
+    }
+
+    /**
+     * Takes back p, which has been both released and removed from the game.
+     */
+    void recycle (Participant p)
+    {
+        outstanding--;
+        if (idleCount < idle.length)
+        {
+            idle[idleCount++] = p;
+        }
+        else
+        {
+            drops++;
+        }
+    }
+
+    /**
+     * Returns the number of acquisitions that were satisfied from the pool
+     */
+    public long getHits ()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of acquisitions that needed a new participant
+     */
+    public long getMisses ()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of released participants that were dropped because
+     * the pool was full
+     */
+    public long getDrops ()
+    {
+        return drops;
+    }
+
+    /**
+     * Returns the largest number of participants that have been handed out
+     * and not yet returned at the same time
+     */
+    public int getHighWater ()
+    {
+        return highWater;
+    }
+
+    /**
+     * Returns the number of idle participants in the pool
+     */
+    public int getIdleCount ()
+    {
+        return idleCount;
+    }
+
+    /**
+     * Summarizes the pool's statistics
+     */
+    @Override
+    public String toString ()
+    {
+        return name + ": " + hits + " hits, " + misses + " misses, " + drops
+                + " drops, high water " + highWater + ", " + idleCount
+                + "/" + idle.length + " idle";
+    }
+}
@@ -0,0 +1,110 @@
+package asteroids;
+
+/**
+ * Records how long each phase of a tick, and the painting of each frame,
+ * takes, in a histogram per phase. The phases are timed with System.nanoTime
+ * and recording a time allocates nothing, so the timer can be left on.
+ *
+ * The timer is not thread safe. The engine and the screen use it while
+ * holding the engine's lock.
+ *
+ * @author Jackson Murphy
+ */
+public class PhaseTimer
+{
+    /**
+     * Phases that are timed: completing adds and removes, expiring
+     * participants, moving them, finding collisions, notifying collision
+     * listeners, and painting the screen
+     */
+    public final static int ADDS_AND_REMOVES = 0, EXPIRE = 1, MOVE = 2,
+            COLLISIONS = 3, CALLBACKS = 4, PAINT = 5;
+
+    // Names of the phases
+    private final static String[] NAMES = { "adds/removes", "expire", "move",
+            "collisions", "callbacks", "paint" };
+
+    // Durations of each phase in nanoseconds
+    private Histogram[] histograms;
+
+    /**
+     * Creates a timer with nothing recorded
+     */
+    public PhaseTimer ()
+    {
+        histograms = new Histogram[NAMES.length];
+        for (int p = 0; p < histograms.length; p++)
+        {
+            histograms[p] = new Histogram();
+        }
+    }
+
+    /**
+     * Returns the number of phases
+     */
+    public int getPhaseCount ()
+    {
+        return NAMES.length;
+    }
+
+    /**
+     * Returns the name of the phase
+     */
+    public String getName (int phase)
+    {
+        return NAMES[phase];
+    }
+
+    /**
+     * Records that the phase took the specified number of nanoseconds
+     */
+    public void record (int phase, long nanos)
+    {
+        histograms[phase].record(nanos);
+    }
+
+    /**
+     * Returns the durations of the phase in nanoseconds
+     */
+    public Histogram getHistogram (int phase)
+    {
+        return histograms[phase];
+    }
+
+    /**
+     * Forgets every duration recorded
+     */
+    public void reset ()
+    {
+        for (Histogram h : histograms)
+        {
+            h.reset();
+        }
+    }
+
+    /**
+     * Summarizes the phase in milliseconds, as its name followed by its 50th
+     * and 99th percentiles and its maximum
+     */
+    public String describe (int phase)
+    {
+        Histogram h = histograms[phase];
+        return String.format("%-12s p50 %7.3f  p99 %7.3f  max %7.3f",
+                NAMES[phase], h.getPercentile(0.5) / 1e6, h
+                        .getPercentile(0.99) / 1e6, h.getMax() / 1e6);
+    }
+
+    /**
+     * Summarizes every phase, one per line, in milliseconds
+     */
+    @Override
+    public String toString ()
+    {
+        StringBuilder s = new StringBuilder("phases (ms):");
+        for (int p = 0; p < NAMES.length; p++)
+        {
+            s.append("\n  ").append(describe(p));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package asteroids;
+
+/**
+ * The messages exchanged by a multiplayer Server and its NetClients over TCP.
+ * Everything is big-endian.
+ *
+ * A client sends one input message for each tick: the int sequence number of
+ * the message, counting from 1, and a byte of Engine input bits. Inputs are
+ * sent ahead of when they are needed, and the server uses one per tick in the
+ * order they arrive.
+ *
+ * The server sends frames, each of which starts with an unsigned short giving
+ * the number of bytes that follow it, and then a byte giving its type:
+ * <ul>
+ * <li>WELCOME: the byte number of the player the client plays</li>
+ * <li>STATE, sent after every tick: the int tick, the int number of
+ * microseconds the server took over the previous tick, the int sequence
+ * number of the last input it has used, the player's int score and short
+ * number of deaths, then a byte that is 1 if the player has a ship, in which
+ * case the ship's x, y, x speed, y speed and rotation follow as doubles.
+ * Then comes the short number of participants in play, and for each its
+ * type as in EntityStore, its x and y in units of 1/POSITION_SCALE pixels as
+ * shorts, its rotation in 256ths of a turn as a byte, and a byte that holds
+ * the variety * 4 + size of an asteroid or the player who owns a ship or a
+ * bullet.</li>
+ * </ul>
+ * The player's own ship is sent in full so that the client can predict where
+ * it goes exactly as the server will. Each state describes the whole game, so
+ * a state that a client can't keep up with can be dropped.
+ *
+ * @author Jackson Murphy
+ */
+final class Protocol
+{
+    /**
+     * The number of bytes in an input message
+     */
+    final static int INPUT_BYTES = 5;
+
+    /**
+     * The types of frame
+     */
+    final static byte WELCOME = 1, STATE = 2;
+
+    /**
+     * The number of bytes in a STATE frame before the participants, without
+     * and with the player's ship
+     */
+    final static int STATE_HEADER_BYTES = 2 + 1 + 4 + 4 + 4 + 4 + 2 + 1 + 2;
+    final static int SHIP_BYTES = 5 * 8;
+
+    /**
+     * The number of bytes that describe each participant
+     */
+    final static int PARTICIPANT_BYTES = 7;
+
+    /**
+     * The largest number of participants sent in one STATE frame, so that
+     * its length fits in an unsigned short
+     */
+    final static int MAX_PARTICIPANTS = (65535 - STATE_HEADER_BYTES
+            - SHIP_BYTES) / PARTICIPANT_BYTES;
+
+    /**
+     * The number of position units per pixel
+     */
+    final static int POSITION_SCALE = 32;
+
+    /**
+     * Returns a position in pixels as a number of position units
+     */
+    static short encodePosition (double position)
+    {
+        return (short) Math.round(position * POSITION_SCALE);
+    }
+
+    /**
+     * Returns a number of position units as a position in pixels
+     */
+    static double decodePosition (short position)
+    {
+        return position / (double) POSITION_SCALE;
+    }
+
+    /**
+     * Returns an angle in radians as a number of 256ths of a turn
+     */
+    static byte encodeAngle (double radians)
+    {
+        return (byte) Math.round(radians * (128 / Math.PI));
+    }
+
+    /**
+     * Returns a number of 256ths of a turn as an angle in radians
+     */
+    static double decodeAngle (byte angle)
+    {
+        return angle * (Math.PI / 128);
+    }
+
+    /**
+     * There are no instances
+     */
+    private Protocol ()
+    {
+    }
+}
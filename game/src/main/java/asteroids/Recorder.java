@@ -0,0 +1,120 @@
+package asteroids;
+
+import java.io.*;
+
+/**
+ * Records a game so that it can be replayed exactly. The engine is
+ * deterministic given its seed, so a recording is just the seed followed by
+ * everything the engine was told to do: the inputs of every tick, and when a
+ * new game was started, the game paused and the game resumed.
+ *
+ * A recording is a binary file. It starts with the int MAGIC, the int
+ * VERSION and the long seed. Then comes one byte for each event:
+ * <ul>
+ * <li>0rrriiii: a run of rrr + 1 ticks, each with the inputs iiii, which are
+ * the Engine input bits</li>
+ * <li>NEW_GAME, PAUSE or RESUME: a command given between ticks</li>
+ * <li>END: the end of the recording, followed by the long number of ticks
+ * and the int score and level at the end, so that a replay can be
+ * checked</li>
+ * </ul>
+ * Since the controls usually stay the same for many ticks in a row, a
+ * recording takes well under a byte per tick.
+ *
+ * @author Jackson Murphy
+ */
+public class Recorder
+{
+    /**
+     * The first four bytes of a recording, "ASTR"
+     */
+    public final static int MAGIC = 0x41535452;
+
+    /**
+     * The version of the format
+     */
+    public final static int VERSION = 1;
+
+    /**
+     * Bytes that mark commands and the end of a recording
+     */
+    public final static int NEW_GAME = 0x80, PAUSE = 0x81, RESUME = 0x82,
+            END = 0xFF;
+
+    // Longest run of ticks that fits in one byte
+    private final static int MAX_RUN = 8;
+
+    // Where the recording is written
+    private DataOutputStream out;
+
+    // Inputs of the run of ticks not yet written, and how long it is
+    private int runInputs;
+    private int runLength;
+
+    // Number of ticks recorded
+    private long ticks;
+
+    /**
+     * Starts a recording in the named file of a game played by an engine
+     * with the given seed
+     */
+    public Recorder (String file, long seed) throws IOException
+    {
+        out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(seed);
+    }
+
+    /**
+     * Records a tick with the given Engine input bits
+     */
+    public void recordTick (int inputs) throws IOException
+    {
+        inputs &= 0x0F;
+        if (runLength > 0 && (inputs != runInputs || runLength == MAX_RUN))
+        {
+            flushRun();
+        }
+        runInputs = inputs;
+        runLength++;
+        ticks++;
+    }
+
+    /**
+     * Records a command, NEW_GAME, PAUSE or RESUME, given before the next
+     * tick
+     */
+    public void recordCommand (int command) throws IOException
+    {
+        flushRun();
+        out.writeByte(command);
+    }
+
+    /**
+     * Ends the recording with the score and level reached, and closes the
+     * file
+     */
+    public void close (int score, int level) throws IOException
+    {
+        flushRun();
+        out.writeByte(END);
+        out.writeLong(ticks);
+        out.writeInt(score);
+        out.writeInt(level);
+        out.close();
+    }
+
+    /**
+     * Writes the run of ticks not yet written, if there is one
+     */
+    private void flushRun () throws IOException
+    {
+        if (runLength > 0)
+        {
+            out.writeByte((runLength - 1) << 4 | runInputs);
+            runLength = 0;
+        }
+    }
+}
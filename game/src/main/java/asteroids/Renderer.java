@@ -0,0 +1,170 @@
+package asteroids;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+
+/**
+ * Draws all of the participants in a store in a single pass, setting up the
+ * graphics state once per pass rather than once per participant.
+ *
+ * Without antialiasing the cost of drawing many small outlines such as
+ * bullets and dust is mostly the per-call overhead of the Java2D pipeline,
+ * so the borders of each type of participant are gathered into one path and
+ * each path is drawn with a single call. With antialiasing the cost is
+ * mostly in computing coverage, which grows with the area a path spans, so
+ * one large path is no cheaper than many small ones and the borders are
+ * drawn one at a time.
+ *
+ * If the renderer has a sprite cache, antialiased outlines are instead copied
+ * from pre-rendered images, which is cheaper than stroking them. The sprites
+ * are drawn at whole pixel positions and at a limited number of rotations.
+ *
+ * Participants that lie entirely outside the clip of the graphics are
+ * skipped.
+ *
+ * @author Jackson Murphy
+ */
+class Renderer
+{
+    // The borders of each type of participant, refilled for each pass
+    private Path2D.Double[] batches;
+
+    // Whether outlines are antialiased
+    private boolean antialiased;
+
+    // Images of the outlines to draw antialiased participants with, or null
+    // to stroke them
+    private SpriteCache sprites;
+
+    // Scratch rectangle for the bounds of a participant
+    private Rectangle bounds;
+
+    /**
+     * Creates a renderer
+     */
+    public Renderer ()
+    {
+        antialiased = true;
+        bounds = new Rectangle();
+        batches = new Path2D.Double[EntityStore.OTHER + 1];
+        for (int t = 0; t < batches.length; t++)
+        {
+            batches[t] = new Path2D.Double(Path2D.WIND_NON_ZERO, 1024);
+        }
+    }
+
+    /**
+     * Sets whether outlines are antialiased
+     */
+    public void setAntialiased (boolean antialiased)
+    {
+        this.antialiased = antialiased;
+    }
+
+    /**
+     * Returns whether outlines are antialiased
+     */
+    public boolean isAntialiased ()
+    {
+        return antialiased;
+    }
+
+    /**
+     * Sets the cache of sprites to draw antialiased participants with, or
+     * null to stroke their outlines
+     */
+    public void setSpriteCache (SpriteCache sprites)
+    {
+        this.sprites = sprites;
+    }
+
+    /**
+     * Returns the cache of sprites used to draw antialiased participants, or
+     * null if their outlines are stroked
+     */
+    public SpriteCache getSpriteCache ()
+    {
+        return sprites;
+    }
+
+    /**
+     * Draws the border of every live participant in store onto g, part of the
+     * way between its last two positions as given by store.interpolation.
+     */
+    public void draw (Graphics2D g, EntityStore store)
+    {
+        double alpha = store.interpolation;
+        Rectangle clip = g.getClipBounds();
+        if (antialiased && sprites != null)
+        {
+            for (int k = 0; k < store.liveCount; k++)
+            {
+                int s = store.live[k];
+                if (isVisible(store, s, alpha, clip))
+                {
+                    SpriteCache.Sprite sprite = sprites.get(store.outline[s],
+                            store.getDrawnRotation(s, alpha));
+                    int x = (int) Math.round(store.getDrawnX(s, alpha));
+                    int y = (int) Math.round(store.getDrawnY(s, alpha));
+                    g.drawImage(sprite.getImage(), x - sprite.getCenter(), y
+                            - sprite.getCenter(), null);
+                }
+            }
+            return;
+        }
+        if (antialiased)
+        {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int k = 0; k < store.liveCount; k++)
+            {
+                int s = store.live[k];
+                if (isVisible(store, s, alpha, clip))
+                {
+                    g.draw(store.getBorder(s, alpha));
+                }
+            }
+            return;
+        }
+
+        for (Path2D.Double batch : batches)
+        {
+            batch.reset();
+        }
+        for (int k = 0; k < store.liveCount; k++)
+        {
+            int s = store.live[k];
+            if (isVisible(store, s, alpha, clip))
+            {
+                store.appendBorder(s, alpha, batches[store.type[s]]);
+            }
+        }
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_OFF);
+        for (Path2D.Double batch : batches)
+        {
+            if (batch.getCurrentPoint() != null)
+            {
+                g.draw(batch);
+            }
+        }
+    }
+
+    /**
+     * Returns whether any of the border of slot s can lie inside clip, which
+     * is null if nothing is clipped.
+     */
+    private boolean isVisible (EntityStore store, int s, double alpha,
+            Rectangle clip)
+    {
+        if (clip == null)
+        {
+            return true;
+        }
+        store.getDrawnBounds(s, alpha, bounds);
+        return bounds.intersects(clip);
+    }
+}
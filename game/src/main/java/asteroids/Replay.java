@@ -0,0 +1,143 @@
+package asteroids;
+
+import java.io.*;
+
+/**
+ * Replays a recording made by a Recorder, headlessly and as fast as
+ * possible, and checks that it ends with the recorded score and level.
+ * Usage: java -cp asteroids.jar asteroids.Replay recording
+ *
+ * @author Jackson Murphy
+ */
+public class Replay
+{
+    // The engine replaying the game
+    private Engine engine;
+
+    // Number of ticks replayed
+    private long ticks;
+
+    // The number of ticks, score and level at the end of the recording
+    private long recordedTicks;
+    private int recordedScore;
+    private int recordedLevel;
+
+    /**
+     * Replays the recording named on the command line and reports how it went
+     */
+    public static void main (String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("usage: java asteroids.Replay recording");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        Replay replay = new Replay(args[0]);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(replay);
+        System.out.printf("replayed in %.3f s (%.0f ticks/s)%n", seconds,
+                replay.getTicks() / seconds);
+        System.exit(replay.matches() ? 0 : 1);
+    }
+
+    /**
+     * Replays the recording in the named file to its end
+     */
+    public Replay (String file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != Recorder.MAGIC)
+            {
+                throw new IOException(file + " is not a recording");
+            }
+            int version = in.readInt();
+            if (version != Recorder.VERSION)
+            {
+                throw new IOException(file + " has unknown version "
+                        + version);
+            }
+            engine = new Engine(in.readLong());
+
+            int event;
+            while ((event = in.readUnsignedByte()) != Recorder.END)
+            {
+                if (event < 0x80)
+                {
+                    int inputs = event & 0x0F;
+                    for (int run = (event >> 4) + 1; run > 0; run--)
+                    {
+                        engine.step(inputs);
+                        ticks++;
+                    }
+                }
+                else if (event == Recorder.NEW_GAME)
+                {
+                    engine.newGame();
+                }
+                else if (event == Recorder.PAUSE)
+                {
+                    engine.setPaused(true);
+                }
+                else if (event == Recorder.RESUME)
+                {
+                    engine.setPaused(false);
+                }
+                else
+                {
+                    throw new IOException("unknown event " + event + " in "
+                            + file);
+                }
+            }
+            recordedTicks = in.readLong();
+            recordedScore = in.readInt();
+            recordedLevel = in.readInt();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the engine after the replay
+     */
+    public Engine getEngine ()
+    {
+        return engine;
+    }
+
+    /**
+     * Returns the number of ticks replayed
+     */
+    public long getTicks ()
+    {
+        return ticks;
+    }
+
+    /**
+     * Reports whether the replay ended with the recorded number of ticks,
+     * score and level
+     */
+    public boolean matches ()
+    {
+        return ticks == recordedTicks && engine.getScore() == recordedScore
+                && engine.getLevel() == recordedLevel;
+    }
+
+    /**
+     * Compares the end of the replay with the end of the recording
+     */
+    @Override
+    public String toString ()
+    {
+        return String.format("replay: %d ticks, score %d, level %d; "
+                + "recorded %d ticks, score %d, level %d: %s", ticks,
+                engine.getScore(), engine.getLevel(), recordedTicks,
+                recordedScore, recordedLevel, matches() ? "match"
+                        : "MISMATCH");
+    }
+}
@@ -0,0 +1,339 @@
+package asteroids;
+
+import java.nio.ByteBuffer;
+import static asteroids.Constants.*;
+
+/**
+ * Keeps the recent history of a game so that it can be rewound to any tick in
+ * a window of the last few seconds.
+ *
+ * Since the engine is deterministic, the only thing that changes from one
+ * tick to the next that can't be worked out is what the engine is told to do.
+ * The history is therefore a ring of one byte per event, as in a Recorder:
+ * the inputs of each tick, or a command given between ticks. Every so many
+ * ticks a keyframe, which is a Snapshot of the engine, is taken. To rewind to
+ * a tick, the engine is restored from the last keyframe at or before it and
+ * stepped forward through the events that followed.
+ *
+ * All of the memory is allocated up front: the keyframes are laid end to end
+ * around a ring in one direct buffer, and the oldest ones are dropped to make
+ * room. Rewinding reuses the engine's participants, so it doesn't allocate
+ * either as long as the pools are big enough.
+ *
+ * The caller should hold the engine's lock.
+ *
+ * @author Jackson Murphy
+ */
+public class Rewind
+{
+    // The engine whose history is kept
+    private Engine engine;
+
+    // Number of ticks of history to keep, and the number of ticks between
+    // keyframes
+    private int window;
+    private int interval;
+
+    // Encodes and decodes the keyframes
+    private Snapshot snapshot;
+
+    // The keyframes, laid end to end around a ring
+    private ByteBuffer frames;
+
+    // For each keyframe, from the oldest around a ring of their own: where it
+    // starts in frames, its length, the tick it was taken before, and the
+    // number of events that had been recorded when it was taken
+    private int[] frameStart;
+    private int[] frameLength;
+    private long[] frameTick;
+    private long[] frameEvent;
+    private int firstFrame;
+    private int frameCount;
+
+    // The events since the oldest keyframe, around a ring, and the number of
+    // events and ticks that have been recorded
+    private byte[] events;
+    private long eventCount;
+    private long tick;
+
+    // Statistics: keyframes taken, rewinds, and keyframes that didn't fit
+    private long keyframes;
+    private long rewinds;
+    private long overflows;
+
+    /**
+     * Creates a history of the given number of ticks for engine, with a
+     * keyframe every interval ticks, in a buffer of the given number of bytes.
+     * If the keyframes don't fit in the buffer, less history is kept.
+     */
+    public Rewind (Engine engine, int window, int interval, int bytes)
+    {
+        this.engine = engine;
+        this.window = window;
+        this.interval = interval;
+        snapshot = new Snapshot();
+        frames = ByteBuffer.allocateDirect(bytes);
+        int capacity = window / interval + 2;
+        frameStart = new int[capacity];
+        frameLength = new int[capacity];
+        frameTick = new long[capacity];
+        frameEvent = new long[capacity];
+        events = new byte[2 * (window + interval)];
+    }
+
+    /**
+     * Records a tick with the given Engine input bits. This must be called
+     * just before the engine is stepped with them.
+     */
+    public void recordTick (int inputs)
+    {
+        if (tick % interval == 0
+                && (frameCount == 0 || frameTick[newest()] != tick))
+        {
+            takeKeyframe();
+        }
+        recordEvent(inputs & 0x0F);
+        tick++;
+    }
+
+    /**
+     * Records a command, Recorder.NEW_GAME, PAUSE or RESUME. This must be
+     * called just after the engine has carried it out.
+     */
+    public void recordCommand (int command)
+    {
+        recordEvent(command);
+    }
+
+    /**
+     * Forgets the history, as when the game has jumped somewhere that the
+     * history doesn't lead to
+     */
+    public void clear ()
+    {
+        frameCount = 0;
+    }
+
+    /**
+     * Returns the number of ticks that have been recorded
+     */
+    public long getTick ()
+    {
+        return tick;
+    }
+
+    /**
+     * Returns the earliest tick that the game can be rewound to, or -1 if
+     * there isn't one
+     */
+    public long getOldestTick ()
+    {
+        return frameCount == 0 ? -1 : frameTick[firstFrame];
+    }
+
+    /**
+     * Reports whether the game can be rewound to the given tick
+     */
+    public boolean canRewindTo (long target)
+    {
+        return frameCount > 0 && target >= frameTick[firstFrame]
+                && target <= tick;
+    }
+
+    /**
+     * Puts the engine back the way it was just before the given tick, and
+     * forgets the history after it. Returns false, leaving everything as it
+     * was, if the tick is outside the history.
+     */
+    public boolean rewindTo (long target)
+    {
+        if (!canRewindTo(target))
+        {
+            return false;
+        }
+
+        // Find the last keyframe at or before the target
+        int k = frameCount - 1;
+        while (frameTick[ring(k)] > target)
+        {
+            k--;
+        }
+        int f = ring(k);
+        frames.limit(frames.capacity());
+        frames.position(frameStart[f]);
+        snapshot.read(frames, engine);
+
+        // Step forward to the target
+        long e = frameEvent[f];
+        long t = frameTick[f];
+        while (e < eventCount)
+        {
+            int event = events[(int) (e % events.length)] & 0xFF;
+            if (event < Recorder.NEW_GAME)
+            {
+                if (t == target)
+                {
+                    break;
+                }
+                engine.step(event);
+                t++;
+            }
+            else if (event == Recorder.NEW_GAME)
+            {
+                engine.newGame();
+            }
+            else
+            {
+                engine.setPaused(event == Recorder.PAUSE);
+            }
+            e++;
+        }
+
+        // The history carries on from here
+        frameCount = k + 1;
+        eventCount = e;
+        tick = target;
+        rewinds++;
+        return true;
+    }
+
+    /**
+     * Takes a keyframe of the engine as it is now, dropping the oldest
+     * keyframes to make room for it
+     */
+    private void takeKeyframe ()
+    {
+        long length = snapshot.measure(engine);
+        if (length > frames.capacity())
+        {
+            overflows++;
+            frameCount = 0;
+            return;
+        }
+
+        // The keyframe goes after the newest one, or at the start of the
+        // buffer if there isn't room at the end. The keyframes it would
+        // overlap are dropped.
+        int start = 0;
+        if (frameCount > 0)
+        {
+            int last = newest();
+            start = frameStart[last] + frameLength[last];
+            if (start + length > frames.capacity())
+            {
+                while (frameCount > 0 && frameStart[firstFrame] >= start)
+                {
+                    dropOldest();
+                }
+                start = 0;
+            }
+        }
+        while (frameCount > 0 && frameStart[firstFrame] < start + length
+                && start < frameStart[firstFrame] + frameLength[firstFrame])
+        {
+            dropOldest();
+        }
+        if (frameCount == frameStart.length)
+        {
+            dropOldest();
+        }
+
+        int f = ring(frameCount++);
+        frameStart[f] = start;
+        frameLength[f] = (int) length;
+        frameTick[f] = tick;
+        frameEvent[f] = eventCount;
+        frames.limit(frames.capacity());
+        frames.position(start);
+        snapshot.write(engine, frames);
+        keyframes++;
+
+        // Keep only the keyframes needed to cover the window
+        while (frameCount > 1 && frameTick[ring(1)] <= tick - window)
+        {
+            dropOldest();
+        }
+    }
+
+    /**
+     * Adds an event to the ring, dropping the oldest keyframes if the events
+     * that follow them would no longer fit
+     */
+    private void recordEvent (int event)
+    {
+        while (frameCount > 0
+                && eventCount - frameEvent[firstFrame] >= events.length)
+        {
+            dropOldest();
+        }
+        events[(int) (eventCount % events.length)] = (byte) event;
+        eventCount++;
+    }
+
+    /**
+     * Forgets the oldest keyframe
+     */
+    private void dropOldest ()
+    {
+        firstFrame = ring(1);
+        frameCount--;
+    }
+
+    /**
+     * Returns the position in the keyframe ring of the k'th oldest keyframe
+     */
+    private int ring (int k)
+    {
+        return (firstFrame + k) % frameStart.length;
+    }
+
+    /**
+     * Returns the position in the keyframe ring of the newest keyframe
+     */
+    private int newest ()
+    {
+        return ring(frameCount - 1);
+    }
+
+    /**
+     * Returns the number of bytes taken by the history that is kept
+     */
+    public long getBytes ()
+    {
+        if (frameCount == 0)
+        {
+            return 0;
+        }
+        long bytes = eventCount - frameEvent[firstFrame];
+        for (int k = 0; k < frameCount; k++)
+        {
+            bytes += frameLength[ring(k)];
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of bytes of history kept per second of play
+     */
+    public double getBytesPerSecond ()
+    {
+        long ticks = frameCount == 0 ? 0 : tick - frameTick[firstFrame];
+        return ticks == 0 ? 0 : getBytes() * 1000.0 / (ticks * FRAME_INTERVAL);
+    }
+
+    /**
+     * Summarizes how much history is kept and what it costs
+     */
+    @Override
+    public String toString ()
+    {
+        long ticks = frameCount == 0 ? 0 : tick - frameTick[firstFrame];
+        return String.format("rewind: %.1f s of history in %.1f KB "
+                + "(%.1f KB/s), %d keyframes kept of %d taken, %d KB "
+                + "reserved, %d rewinds, %d keyframes too big",
+                ticks * FRAME_INTERVAL / 1000.0, getBytes() / 1024.0,
+                getBytesPerSecond() / 1024.0, frameCount, keyframes,
+                (frames.capacity() + events.length) / 1024, rewinds,
+                overflows);
+    }
+}
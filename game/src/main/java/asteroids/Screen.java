@@ -0,0 +1,540 @@
+package asteroids;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import javax.swing.*;
+import static asteroids.Constants.*;
+
+/**
+ * The area in which the game is displayed. The screen is a view of an engine,
+ * which holds the state of the game. The engine is stepped on the simulation
+ * thread and painted on the event dispatch thread, so anything that reads or
+ * changes the game holds the engine's lock.
+ *
+ * Each frame is drawn into a VolatileImage that is kept from one frame to the
+ * next, while holding the engine's lock, so that all of it shows the game as
+ * it was at one moment. Only the parts of the screen that have changed since
+ * the last frame are cleared and redrawn, unless so much has changed that it
+ * is cheaper to redraw everything.
+ *
+ * Normally only those parts are then repainted by asking Swing to do it,
+ * which copies them from the image. When a frame appears depends on how the
+ * RepaintManager coalesces requests. With active rendering the simulation
+ * loop instead copies them onto the screen itself, so every frame it asks
+ * for is shown as soon as it is drawn. If the image can't be made, or its
+ * contents are lost, Swing paints the game as it is when it gets round to it.
+ *
+ * Participants are drawn from pre-rendered sprites unless sprites are turned
+ * off, in which case their outlines are stroked.
+ *
+ * An overlay in the top corner can show how long each phase of a tick and
+ * painting are taking, along with how many participants of each type there
+ * are.
+ *
+ * @author Joe Zachary, Jackson Murphy
+ */
+public class Screen extends JPanel
+{
+    // The game being displayed
+    private Engine engine;
+
+    // Draws the participants
+    private Renderer renderer;
+
+    // Whether frames are drawn and shown by the simulation loop rather than
+    // by asking Swing to repaint
+    private volatile boolean active;
+
+    // Back buffer holding the last frame drawn, created when first needed,
+    // whether it holds all of that frame rather than having been lost or
+    // not yet drawn in full, and whether the whole of that frame was drawn
+    // rather than just its dirty regions. The buffer is drawn into and
+    // copied from while holding the engine's lock, except by present.
+    private VolatileImage buffer;
+    private boolean bufferCurrent;
+    private boolean drawnWhole;
+
+    // Held while a frame is drawn and shown, so that frames asked for on
+    // different threads don't interleave
+    private final Object frameLock = new Object();
+
+    // The parts of the screen that have changed since the last frame
+    private DirtyRegions dirty;
+
+    // The legend shown in the last frame
+    private String shownLegend;
+
+    // Font of the timing overlay, whether it is shown, and whether it was
+    // shown in the last frame
+    private Font overlayFont;
+    private volatile boolean overlay;
+    private boolean shownOverlay;
+
+    // Scratch rectangle for a dirty region
+    private Rectangle region;
+
+    // Statistics for active rendering: frames shown, when the last one was
+    // shown, and the intervals between them (total, sum of squares, minimum
+    // and maximum, in nanoseconds)
+    private final Object statistics = new Object();
+    private long presents;
+    private long lastPresent;
+    private double intervalTotal, intervalSquares;
+    private long intervalMin, intervalMax;
+
+    /**
+     * Creates a screen that displays the engine's game
+     */
+    public Screen (Engine engine)
+    {
+        this.engine = engine;
+        renderer = new Renderer();
+        renderer.setSpriteCache(new SpriteCache());
+        dirty = new DirtyRegions();
+        shownLegend = "";
+        overlayFont = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        region = new Rectangle();
+        setPreferredSize(new Dimension(SIZE, SIZE));
+        setMinimumSize(new Dimension(SIZE, SIZE));
+        setBackground(Color.black);
+        setForeground(Color.white);
+        setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 120));
+        setFocusable(true);
+    }
+
+    /**
+     * Returns the engine whose game is displayed
+     */
+    public Engine getEngine ()
+    {
+        return engine;
+    }
+
+    /**
+     * Sets whether frames are drawn and shown by the simulation loop rather
+     * than by asking Swing to repaint
+     */
+    public void setActiveRendering (boolean active)
+    {
+        this.active = active;
+        dirty.invalidate();
+        synchronized (statistics)
+        {
+            presents = 0;
+            intervalTotal = intervalSquares = 0;
+            intervalMin = Long.MAX_VALUE;
+            intervalMax = 0;
+        }
+    }
+
+    /**
+     * Returns whether frames are drawn and shown by the simulation loop
+     */
+    public boolean isActiveRendering ()
+    {
+        return active;
+    }
+
+    /**
+     * Sets whether participants are drawn from pre-rendered sprites rather
+     * than by stroking their outlines
+     */
+    public void setSprites (boolean sprites)
+    {
+        synchronized (engine)
+        {
+            if (sprites != (renderer.getSpriteCache() != null))
+            {
+                renderer.setSpriteCache(sprites ? new SpriteCache() : null);
+                dirty.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Sets whether the timing overlay is shown
+     */
+    public void setOverlay (boolean overlay)
+    {
+        this.overlay = overlay;
+    }
+
+    /**
+     * Returns whether the timing overlay is shown
+     */
+    public boolean isOverlay ()
+    {
+        return overlay;
+    }
+
+    /**
+     * Paint the participants onto this panel. The part being repainted is
+     * copied from the last frame drawn, if the back buffer still holds it.
+     */
+    @Override
+    public void paintComponent (Graphics g)
+    {
+        long start = System.nanoTime();
+        synchronized (engine)
+        {
+            if (copyFrame(g))
+            {
+                return;
+            }
+
+            // Do the default painting
+            super.paintComponent(g);
+            paintGame((Graphics2D) g);
+            engine.getTimer().record(PhaseTimer.PAINT, System.nanoTime()
+                    - start);
+        }
+
+        // The game may have moved on since the rest of the screen was drawn
+        Rectangle clip = g.getClipBounds();
+        if (clip != null && !clip.contains(0, 0, SIZE, SIZE))
+        {
+            repaint();
+        }
+    }
+
+    /**
+     * Copies the part of the back buffer that g is clipped to onto g.
+     * Returns false if the buffer doesn't hold the last frame, in which case
+     * the next frame is drawn in full. Called while holding the engine's
+     * lock.
+     */
+    private boolean copyFrame (Graphics g)
+    {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (bufferCurrent && config != null
+                && buffer.validate(config) == VolatileImage.IMAGE_OK)
+        {
+            g.drawImage(buffer, 0, 0, null);
+            if (!buffer.contentsLost())
+            {
+                return true;
+            }
+        }
+        bufferCurrent = false;
+        dirty.invalidate();
+        return false;
+    }
+
+    /**
+     * Draws the participants, the legend and the overlay onto g, which has
+     * already been cleared
+     */
+    private void paintGame (Graphics2D g)
+    {
+        synchronized (engine)
+        {
+            // Draw each participant in its proper place
+            renderer.draw(g, engine.getEntities());
+
+            // Draws the legend across the middle of the panel
+            String legend = engine.getLegend();
+            int size = g.getFontMetrics().stringWidth(legend);
+            g.drawString(legend, (SIZE - size) / 2, SIZE / 2);
+
+            if (overlay)
+            {
+                paintOverlay(g);
+            }
+        }
+    }
+
+    /**
+     * Draws the timing overlay in the top corner of g. Each phase is shown
+     * with the 50th and 99th percentiles and the maximum of its durations,
+     * followed by the number of participants of each type.
+     */
+    private void paintOverlay (Graphics2D g)
+    {
+        Font font = g.getFont();
+        g.setFont(overlayFont);
+        int height = g.getFontMetrics().getHeight();
+        PhaseTimer timer = engine.getTimer();
+        int y = height;
+        g.drawString("phase (ms)", 4, y);
+        for (int p = 0; p < timer.getPhaseCount(); p++)
+        {
+            y += height;
+            g.drawString(timer.describe(p), 4, y);
+        }
+        int[] counts = engine.getTypeCounts();
+        y += height;
+        g.drawString(String.format("ship %d  asteroids %d  bullets %d  "
+                + "dust %d  debris %d", counts[EntityStore.SHIP],
+                counts[EntityStore.ASTEROID], counts[EntityStore.BULLET],
+                counts[EntityStore.DUST], counts[EntityStore.DEBRIS]), 4, y);
+        g.setFont(font);
+    }
+
+    /**
+     * Returns the area of the screen covered by the timing overlay
+     */
+    private Rectangle getOverlayBounds ()
+    {
+        FontMetrics metrics = getFontMetrics(overlayFont);
+        int lines = engine.getTimer().getPhaseCount() + 2;
+        return new Rectangle(0, 0, SIZE, lines * metrics.getHeight()
+                + metrics.getDescent());
+    }
+
+    /**
+     * Draws the screen with participants the given fraction of the way
+     * between where they were before the last tick and where they are now.
+     * The changed parts of the frame are drawn into the back buffer. With
+     * active rendering they are shown right away; otherwise they are asked
+     * to be repainted.
+     */
+    public void render (double alpha)
+    {
+        boolean direct = active;
+        synchronized (frameLock)
+        {
+            boolean drawn;
+            synchronized (engine)
+            {
+                long start = System.nanoTime();
+                EntityStore entities = engine.getEntities();
+                entities.interpolation = alpha;
+
+                // The band across the middle holding the legend changes when
+                // the legend does
+                Rectangle band = null;
+                String legend = engine.getLegend();
+                if (!legend.equals(shownLegend))
+                {
+                    FontMetrics metrics = getFontMetrics(getFont());
+                    band = new Rectangle(0, SIZE / 2 - metrics.getAscent(),
+                            SIZE, metrics.getAscent() + metrics.getDescent());
+                    shownLegend = legend;
+                }
+
+                // The overlay changes every frame while it is shown
+                if (overlay || shownOverlay)
+                {
+                    if (band == null)
+                    {
+                        band = getOverlayBounds();
+                    }
+                    else
+                    {
+                        band.add(getOverlayBounds());
+                    }
+                    shownOverlay = overlay;
+                }
+                dirty.update(entities, alpha, band);
+                drawn = drawFrame();
+                if (drawn)
+                {
+                    engine.getTimer().record(PhaseTimer.PAINT,
+                            System.nanoTime() - start);
+                }
+            }
+
+            // Without a buffer, Swing paints the whole game as it is when it
+            // gets round to it
+            if (!drawn)
+            {
+                dirty.invalidate();
+                repaint();
+            }
+            else if (!direct || !present())
+            {
+                int count = drawnWhole ? 1 : dirty.getCount();
+                for (int k = 0; k < count; k++)
+                {
+                    getRegion(drawnWhole, k);
+                    repaint(region);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the dirty parts of a frame into the back buffer. If the buffer is
+     * new or its contents have been lost, the whole frame is drawn instead.
+     * Returns false if the buffer can't be made, in which case nothing is
+     * drawn. Called while holding the engine's lock.
+     */
+    private boolean drawFrame ()
+    {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config == null)
+        {
+            bufferCurrent = false;
+            return false;
+        }
+        drawnWhole = dirty.isFull() || !bufferCurrent;
+        do
+        {
+            int status = buffer == null ? VolatileImage.IMAGE_INCOMPATIBLE
+                    : buffer.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE)
+            {
+                buffer = createVolatileImage(SIZE, SIZE);
+                if (buffer == null)
+                {
+                    bufferCurrent = false;
+                    return false;
+                }
+            }
+            if (status != VolatileImage.IMAGE_OK)
+            {
+                drawnWhole = true;
+            }
+
+            Graphics2D g = buffer.createGraphics();
+            try
+            {
+                g.setFont(getFont());
+                int count = drawnWhole ? 1 : dirty.getCount();
+                for (int k = 0; k < count; k++)
+                {
+                    getRegion(drawnWhole, k);
+                    g.setClip(region);
+                    g.setColor(getBackground());
+                    g.fillRect(region.x, region.y, region.width,
+                            region.height);
+                    g.setColor(getForeground());
+                    paintGame(g);
+                }
+            }
+            finally
+            {
+                g.dispose();
+            }
+            if (buffer.contentsLost())
+            {
+                drawnWhole = true;
+            }
+        }
+        while (buffer.contentsLost());
+        bufferCurrent = true;
+        return true;
+    }
+
+    /**
+     * Copies the parts of the back buffer drawn in the last frame onto the
+     * screen. Returns false if the screen isn't showing or the buffer's
+     * contents were lost, in which case they have to be repainted instead.
+     * Called without the engine's lock, so that a slow display doesn't hold
+     * up the game; nothing else draws into the buffer meanwhile.
+     */
+    private boolean present ()
+    {
+        if (!isShowing())
+        {
+            return false;
+        }
+        Graphics screen = getGraphics();
+        if (screen == null)
+        {
+            return false;
+        }
+        try
+        {
+            int count = drawnWhole ? 1 : dirty.getCount();
+            for (int k = 0; k < count; k++)
+            {
+                getRegion(drawnWhole, k);
+                int x1 = region.x + region.width;
+                int y1 = region.y + region.height;
+                screen.drawImage(buffer, region.x, region.y, x1, y1,
+                        region.x, region.y, x1, y1, null);
+            }
+        }
+        finally
+        {
+            screen.dispose();
+        }
+        if (buffer.contentsLost())
+        {
+            return false;
+        }
+
+        // Make sure the frame has actually reached the display before timing
+        // it
+        Toolkit.getDefaultToolkit().sync();
+        recordPresent(System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Sets region to the k'th dirty region, or to the whole screen if whole
+     * is true
+     */
+    private void getRegion (boolean whole, int k)
+    {
+        if (whole)
+        {
+            region.setBounds(0, 0, SIZE, SIZE);
+        }
+        else
+        {
+            dirty.getRegion(k, region);
+        }
+    }
+
+    /**
+     * Adds a frame shown at time now to the statistics
+     */
+    private void recordPresent (long now)
+    {
+        synchronized (statistics)
+        {
+            if (presents > 0)
+            {
+                long interval = now - lastPresent;
+                intervalTotal += interval;
+                intervalSquares += (double) interval * interval;
+                intervalMin = Math.min(intervalMin, interval);
+                intervalMax = Math.max(intervalMax, interval);
+            }
+            presents++;
+            lastPresent = now;
+        }
+    }
+
+    /**
+     * Summarizes the intervals between frames shown by active rendering, in
+     * milliseconds
+     */
+    public String getPresentStatistics ()
+    {
+        synchronized (statistics)
+        {
+            if (!active)
+            {
+                return "presents: active rendering is off";
+            }
+            long n = presents - 1;
+            double mean = n <= 0 ? 0 : intervalTotal / n;
+            double sd = n <= 0 ? 0 : Math.sqrt(Math.max(0, intervalSquares / n
+                    - mean * mean));
+            return String.format("presents: %d frames, interval mean %.3f ms, "
+                    + "sd %.3f ms, min %.3f ms, max %.3f ms", presents,
+                    mean / 1e6, sd / 1e6, n <= 0 ? 0 : intervalMin / 1e6,
+                    intervalMax / 1e6);
+        }
+    }
+
+    /**
+     * Summarizes how much of the screen has been redrawn each frame
+     */
+    public String getDirtyStatistics ()
+    {
+        return dirty.toString();
+    }
+
+    /**
+     * Summarizes how well the sprite cache is working
+     */
+    public String getSpriteStatistics ()
+    {
+        SpriteCache sprites = renderer.getSpriteCache();
+        return sprites == null ? "sprites: off" : sprites.toString();
+    }
+}
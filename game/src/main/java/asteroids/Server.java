@@ -0,0 +1,639 @@
+package asteroids;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import static asteroids.Constants.*;
+
+/**
+ * Plays an Arena for players connected over TCP, as the authority on how the
+ * game goes. The server runs on a single thread, with a Selector and
+ * non-blocking channels, so that it never waits on a client. It ticks every
+ * FRAME_INTERVAL milliseconds, like the single player SimulationLoop. Between
+ * ticks it accepts players and reads their inputs; on each tick it steps the
+ * arena with one input from each player and sends every player the state
+ * that results, as described in Protocol.
+ *
+ * The participants in play are encoded once per tick and copied into each
+ * player's output buffer behind a header of their own. A player whose buffer
+ * is too full for the next state, because their connection is slower than
+ * the game, misses that state rather than holding up the others.
+ *
+ * @author Jackson Murphy
+ */
+public class Server implements Runnable
+{
+    // Number of inputs that are kept for each player waiting to be used
+    private final static int INPUT_QUEUE = 8;
+
+    // Number of bytes each player's output buffer holds
+    private final static int OUTPUT_BYTES = 256 << 10;
+
+    // The game being played
+    private Arena arena;
+
+    // The channel on which players connect, and the selector that watches it
+    // and the players' channels
+    private ServerSocketChannel listener;
+    private Selector selector;
+
+    // The listener's key, and whether accepting has been failing. After a
+    // failure, new players aren't accepted again until the next tick, and
+    // only the first failure in a row is reported.
+    private SelectionKey acceptKey;
+    private boolean acceptFailing;
+
+    // The connection of each player, or null
+    private Connection[] connections;
+
+    // The inputs each player uses during the current tick
+    private int[] inputs;
+
+    // The participants in play, encoded once per tick, and how many there are
+    private ByteBuffer participants;
+    private int participantCount;
+
+    // Nanoseconds between ticks
+    private long tickNanos;
+
+    // The thread running the server, or null if it isn't running
+    private volatile Thread thread;
+
+    // Statistics: how long the ticks took in nanoseconds, the last one in
+    // microseconds, ticks that took longer than the timestep and ticks
+    // dropped because the server fell behind, bytes sent, states that were
+    // dropped because a player's buffer was full, and players that have
+    // connected
+    private Histogram tickTimes;
+    private int lastTickMicros;
+    private long overruns, dropped;
+    private long bytesSent, statesDropped;
+    private long connects;
+    private long startNanos;
+
+    /**
+     * Creates a server that listens on the given port, or on any free port if
+     * port is 0, and whose arena is played with the given seed
+     */
+    public Server (int port, long seed) throws IOException
+    {
+        arena = new Arena(seed);
+        selector = Selector.open();
+        listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(port));
+        listener.configureBlocking(false);
+        acceptKey = listener.register(selector, SelectionKey.OP_ACCEPT);
+        connections = new Connection[MAX_PLAYERS];
+        inputs = new int[MAX_PLAYERS];
+        participants = ByteBuffer.allocate(Protocol.MAX_PARTICIPANTS
+                * Protocol.PARTICIPANT_BYTES);
+        tickNanos = FRAME_INTERVAL * 1000000L;
+        tickTimes = new Histogram();
+    }
+
+    /**
+     * Plays a server on the port given as the argument, or SERVER_PORT, and
+     * reports how it is doing every ten seconds
+     */
+    public static void main (String[] args) throws IOException,
+            InterruptedException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SERVER_PORT;
+        Server server = new Server(port, System.nanoTime());
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+        while (true)
+        {
+            Thread.sleep(10000);
+            System.out.println(server);
+        }
+    }
+
+    /**
+     * Returns the port the server listens on
+     */
+    public int getPort () throws IOException
+    {
+        return ((InetSocketAddress) listener.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the arena being played
+     */
+    public Arena getArena ()
+    {
+        return arena;
+    }
+
+    /**
+     * Starts the server on a new thread, unless it is already running.
+     */
+    public synchronized void start ()
+    {
+        if (thread == null)
+        {
+            thread = new Thread(this, "Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the server, waits for its thread to finish, and closes every
+     * channel.
+     */
+    public void stop ()
+    {
+        Thread t;
+        synchronized (this)
+        {
+            t = thread;
+            thread = null;
+        }
+        if (t != null)
+        {
+            selector.wakeup();
+            try
+            {
+                t.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            disconnect(connections[p]);
+        }
+        try
+        {
+            selector.close();
+            listener.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing more can be done with them
+        }
+    }
+
+    /**
+     * Ticks every tickNanos nanoseconds, handling the channels in between,
+     * until the server is stopped. If a tick is late by more than a whole
+     * timestep, the ticks that were missed are dropped.
+     */
+    @Override
+    public void run ()
+    {
+        Thread self = Thread.currentThread();
+        startNanos = System.nanoTime();
+        long next = startNanos;
+        try
+        {
+            while (thread == self)
+            {
+                long wait = next - System.nanoTime();
+                if (wait > 0)
+                {
+                    selector.select(Math.max(1, wait / 1000000));
+                }
+                else
+                {
+                    selector.selectNow();
+                }
+                handleChannels();
+
+                long start = System.nanoTime();
+                if (start - next >= 0)
+                {
+                    tick();
+                    long end = System.nanoTime();
+                    tickTimes.record(end - start);
+                    lastTickMicros = (int) ((end - start) / 1000);
+                    if (end - start > tickNanos)
+                    {
+                        overruns++;
+                    }
+                    next += tickNanos;
+                    if (end - next > tickNanos)
+                    {
+                        dropped += (end - next) / tickNanos;
+                        next = end;
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("Server stopped: " + e);
+            thread = null;
+        }
+    }
+
+    /**
+     * Accepts new players, reads the inputs that have arrived and finishes
+     * writing what couldn't be written before
+     */
+    private void handleChannels ()
+    {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid())
+            {
+                continue;
+            }
+            if (key.isAcceptable())
+            {
+                accept();
+                continue;
+            }
+            Connection c = (Connection) key.attachment();
+            try
+            {
+                if (key.isReadable())
+                {
+                    c.read();
+                }
+                if (key.isValid() && key.isWritable())
+                {
+                    c.flush();
+                }
+            }
+            catch (IOException e)
+            {
+                disconnect(c);
+            }
+        }
+    }
+
+    /**
+     * Accepts a player who is connecting, or turns them away if the arena is
+     * full. A connection that fails while it is being set up, say because
+     * the player reset it or the server is out of file descriptors, is
+     * dropped without affecting anyone else. If no connection can be
+     * accepted at all, players are kept waiting until the next tick.
+     */
+    private void accept ()
+    {
+        SocketChannel channel;
+        try
+        {
+            channel = listener.accept();
+        }
+        catch (IOException e)
+        {
+            if (!acceptFailing)
+            {
+                System.err.println("Connections not accepted: " + e);
+                acceptFailing = true;
+            }
+            acceptKey.interestOps(0);
+            return;
+        }
+        if (channel == null)
+        {
+            return;
+        }
+        acceptFailing = false;
+        int player = arena.join();
+        if (player < 0)
+        {
+            close(channel);
+            return;
+        }
+        Connection c;
+        try
+        {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            c = new Connection(channel, player);
+            c.key = channel.register(selector, SelectionKey.OP_READ, c);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Connection not accepted: " + e);
+            arena.leave(player);
+            close(channel);
+            return;
+        }
+        connections[player] = c;
+        connects++;
+
+        c.out.putShort((short) 2);
+        c.out.put(Protocol.WELCOME);
+        c.out.put((byte) player);
+        try
+        {
+            c.flush();
+        }
+        catch (IOException e)
+        {
+            disconnect(c);
+        }
+    }
+
+    /**
+     * Closes a connection and takes its player out of the arena. A connection
+     * that is null or already closed is ignored.
+     */
+    private void disconnect (Connection c)
+    {
+        if (c == null || connections[c.player] != c)
+        {
+            return;
+        }
+        connections[c.player] = null;
+        arena.leave(c.player);
+        bytesSent += c.bytesSent;
+        close(c.channel);
+    }
+
+    /**
+     * Closes a player's channel
+     */
+    private static void close (SocketChannel channel)
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            // The player is gone either way
+        }
+    }
+
+    /**
+     * Steps the arena with the next input of each player, and sends each of
+     * them the state that results
+     */
+    private void tick ()
+    {
+        acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            Connection c = connections[p];
+            inputs[p] = c == null ? 0 : c.nextInput();
+        }
+        arena.step(inputs);
+
+        encodeParticipants();
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            Connection c = connections[p];
+            if (c != null)
+            {
+                try
+                {
+                    sendState(c);
+                    c.flush();
+                }
+                catch (IOException e)
+                {
+                    disconnect(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes every participant in play into participants
+     */
+    private void encodeParticipants ()
+    {
+        EntityStore store = arena.getEngine().getEntities();
+        ByteBuffer out = participants;
+        out.clear();
+        participantCount = 0;
+        for (int k = 0; k < store.liveCount
+                && participantCount < Protocol.MAX_PARTICIPANTS; k++)
+        {
+            int s = store.live[k];
+            if (store.isPendingRemoval(s))
+            {
+                continue;
+            }
+            byte type = store.type[s];
+            int extra = 0;
+            if (type == EntityStore.ASTEROID)
+            {
+                extra = ((Asteroid) store.views[s]).getVariety() * 4
+                        + store.size[s];
+            }
+            else if (type == EntityStore.SHIP || type == EntityStore.BULLET)
+            {
+                extra = arena.getOwner(s);
+            }
+            out.put(type);
+            out.putShort(Protocol.encodePosition(store.x[s]));
+            out.putShort(Protocol.encodePosition(store.y[s]));
+            out.put(Protocol.encodeAngle(store.rotation[s]));
+            out.put((byte) extra);
+            participantCount++;
+        }
+        out.flip();
+    }
+
+    /**
+     * Appends the state of the game as c's player sees it to c's output, or
+     * counts it as dropped if there isn't room
+     */
+    private void sendState (Connection c)
+    {
+        int p = c.player;
+        Ship ship = arena.getShip(p);
+        int length = Protocol.STATE_HEADER_BYTES + participants.limit()
+                + (ship == null ? 0 : Protocol.SHIP_BYTES);
+        ByteBuffer out = c.out;
+        if (out.remaining() < length)
+        {
+            statesDropped++;
+            return;
+        }
+        out.putShort((short) (length - 2));
+        out.put(Protocol.STATE);
+        out.putInt((int) arena.getTick());
+        out.putInt(lastTickMicros);
+        out.putInt(c.ack);
+        out.putInt(arena.getScore(p));
+        out.putShort((short) arena.getDeaths(p));
+        if (ship == null)
+        {
+            out.put((byte) 0);
+        }
+        else
+        {
+            out.put((byte) 1);
+            out.putDouble(ship.getX());
+            out.putDouble(ship.getY());
+            out.putDouble(ship.getSpeedX());
+            out.putDouble(ship.getSpeedY());
+            out.putDouble(ship.getRotation());
+        }
+        out.putShort((short) participantCount);
+        out.put(participants);
+        participants.rewind();
+    }
+
+    /**
+     * Returns the number of players connected
+     */
+    public int getPlayerCount ()
+    {
+        return arena.getPlayerCount();
+    }
+
+    /**
+     * Returns how long the ticks have taken, in nanoseconds
+     */
+    public Histogram getTickTimes ()
+    {
+        return tickTimes;
+    }
+
+    /**
+     * Returns the number of bytes sent to all of the players
+     */
+    public long getBytesSent ()
+    {
+        long bytes = bytesSent;
+        for (int p = 0; p < MAX_PLAYERS; p++)
+        {
+            if (connections[p] != null)
+            {
+                bytes += connections[p].bytesSent;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Summarizes how long the ticks take and how much is sent
+     */
+    @Override
+    public String toString ()
+    {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        int players = arena.getPlayerCount();
+        double perPlayer = players == 0 ? 0 : getBytesSent() / seconds
+                / players;
+        return String.format("server: %d players (%d connects), %d ticks, "
+                + "tick p50 %.3f ms p99 %.3f ms max %.3f ms, %d overruns, "
+                + "%d dropped, %.1f KB/s per player, %d states dropped",
+                players, connects, tickTimes.getCount(),
+                tickTimes.getPercentile(0.5) / 1e6,
+                tickTimes.getPercentile(0.99) / 1e6, tickTimes.getMax() / 1e6,
+                overruns, dropped, perPlayer / 1024, statesDropped);
+    }
+
+    /**
+     * A player's connection: their channel, the inputs that have arrived but
+     * not yet been used, and what remains to be sent to them
+     */
+    private class Connection
+    {
+        SocketChannel channel;
+        SelectionKey key;
+        int player;
+
+        // Bytes read that don't yet make up a whole input
+        ByteBuffer in;
+
+        // The inputs waiting to be used and their sequence numbers, around a
+        // ring, and the sequence number of the last one used
+        int[] queue;
+        int[] sequences;
+        int first, count;
+        int ack;
+
+        // Bytes waiting to be sent, and the number that have been sent
+        ByteBuffer out;
+        long bytesSent;
+
+        Connection (SocketChannel channel, int player)
+        {
+            this.channel = channel;
+            this.player = player;
+            in = ByteBuffer.allocate(Protocol.INPUT_BYTES * 64);
+            queue = new int[INPUT_QUEUE];
+            sequences = new int[INPUT_QUEUE];
+            out = ByteBuffer.allocateDirect(OUTPUT_BYTES);
+        }
+
+        /**
+         * Reads the inputs that have arrived. If more arrive than can be
+         * kept, the oldest are dropped.
+         */
+        void read () throws IOException
+        {
+            while (true)
+            {
+                int n = channel.read(in);
+                if (n < 0)
+                {
+                    throw new IOException("player " + player + " has left");
+                }
+                in.flip();
+                while (in.remaining() >= Protocol.INPUT_BYTES)
+                {
+                    int sequence = in.getInt();
+                    int input = in.get() & 0x0F;
+                    if (count == INPUT_QUEUE)
+                    {
+                        first = (first + 1) % INPUT_QUEUE;
+                        count--;
+                    }
+                    int i = (first + count++) % INPUT_QUEUE;
+                    queue[i] = input;
+                    sequences[i] = sequence;
+                }
+                in.compact();
+                if (n == 0 || in.hasRemaining())
+                {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the next input to use, or no controls at all if none has
+         * arrived
+         */
+        int nextInput ()
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            int input = queue[first];
+            ack = sequences[first];
+            first = (first + 1) % INPUT_QUEUE;
+            count--;
+            return input;
+        }
+
+        /**
+         * Writes as much of the output as the channel will take, and watches
+         * for the channel to become writable if some is left
+         */
+        void flush () throws IOException
+        {
+            out.flip();
+            bytesSent += channel.write(out);
+            out.compact();
+            int ops = out.position() > 0
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ;
+            if (key.interestOps() != ops)
+            {
+                key.interestOps(ops);
+            }
+        }
+    }
+}
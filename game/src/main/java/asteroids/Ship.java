@@ -0,0 +1,61 @@
+package asteroids;
+
+import java.awt.Shape;
+import java.awt.geom.*;
+
+/**
+ * Represents ship objects
+ * 
+ * @author Joe Zachary
+ */
+public class Ship extends Participant
+{
+    // Distance from the center of the ship to its nose, which lies on the
+    // x axis of the outline
+    private final static double NOSE = 20;
+
+    // The outline shared by all ships
+    private final static Shape outline = createShip();
+
+    // Constructs a ship whose state is held in store. Ships are slowed by
+    // friction as they move.
+    public Ship (EntityStore store)
+    {
+        super(store, EntityStore.SHIP, outline);
+        setFlag(EntityStore.FRICTION_FLAG, true);
+    }
+
+    /**
+     * Creates the outline of a ship, which points to the right with its nose
+     * at (20,0).
+     */
+    private static Shape createShip ()
+    {
+        Path2D.Double poly = new Path2D.Double();
+        poly.moveTo(NOSE, 0);
+        poly.lineTo(-20, 12);
+        poly.lineTo(-12, 0);
+        poly.lineTo(-20, -12);
+        poly.closePath();
+        return poly;
+    }
+
+    /**
+     * Returns the x-coordinate of the point on the screen where the ship's nose
+     * is located.
+     */
+    public double getXNose ()
+    {
+        return getX() + NOSE * Math.cos(getRotation());
+    }
+
+    /**
+     * Returns the y-coordinate of the point on the screen where the ship's nose
+     * is located.
+     */
+    public double getYNose ()
+    {
+        return getY() + NOSE * Math.sin(getRotation());
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+package asteroids;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+import static asteroids.Constants.*;
+
+/**
+ * Runs the simulation on its own thread with a fixed timestep. The controller
+ * steps the engine once every FRAME_INTERVAL milliseconds of real time,
+ * measured with System.nanoTime, no matter how long painting takes. If the
+ * loop falls behind it catches up by running several ticks in a row, up to
+ * MAX_CATCH_UP_TICKS; beyond that the missed ticks are dropped.
+ *
+ * Between ticks the loop asks the screen to be repainted at the rate of the
+ * display, telling it how far it is between the last two ticks so that
+ * participants can be drawn part of the way along.
+ *
+ * Nothing changes while the game is paused, so the loop neither ticks nor
+ * repaints, leaving the last frame on the screen. It sleeps until it is
+ * woken when the game is resumed, and then starts its schedule afresh.
+ *
+ * @author Jackson Murphy
+ */
+public class SimulationLoop implements Runnable
+{
+    // Parking is imprecise by about this many nanoseconds, so the last part
+    // of each wait is spent yielding instead
+    private final static long SPIN_NANOS = 200000;
+
+    // The controller whose engine is being stepped
+    private Controller controller;
+
+    // Nanoseconds between ticks and between repaints
+    private long tickNanos;
+    private long frameNanos;
+
+    // The thread running the loop, or null if it isn't running
+    private volatile Thread thread;
+
+    // Statistics: number of ticks, how late each tick started (total, sum of
+    // squares and maximum, in nanoseconds), ticks that took longer than the
+    // timestep, repaints that were preceded by more than one tick, ticks
+    // dropped because the loop fell too far behind, and repaints requested
+    private long ticks;
+    private double lateTotal, lateSquares;
+    private long lateMax;
+    private long overruns, catchUps, dropped, frames;
+
+    /**
+     * Creates a loop that runs the controller's ticks and repaints at the rate
+     * of the default display.
+     */
+    public SimulationLoop (Controller controller)
+    {
+        this(controller, getDisplayRate());
+    }
+
+    /**
+     * Creates a loop that runs the controller's ticks and repaints the given
+     * number of times per second.
+     */
+    public SimulationLoop (Controller controller, int framesPerSecond)
+    {
+        this.controller = controller;
+        tickNanos = FRAME_INTERVAL * 1000000L;
+        frameNanos = 1000000000L / framesPerSecond;
+    }
+
+    /**
+     * Returns the refresh rate of the default display, or DISPLAY_RATE if
+     * there is no display or its rate is unknown.
+     */
+    private static int getDisplayRate ()
+    {
+        if (GraphicsEnvironment.isHeadless())
+        {
+            return DISPLAY_RATE;
+        }
+        DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode();
+        int rate = mode.getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DISPLAY_RATE : rate;
+    }
+
+    /**
+     * Starts the loop on a new thread, unless it is already running.
+     */
+    public synchronized void start ()
+    {
+        if (thread == null)
+        {
+            thread = new Thread(this, "Simulation");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the loop and waits for its thread to finish.
+     */
+    public void stop ()
+    {
+        Thread t;
+        synchronized (this)
+        {
+            t = thread;
+            thread = null;
+        }
+        if (t != null)
+        {
+            LockSupport.unpark(t);
+            try
+            {
+                t.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wakes the loop if it is sleeping while the game is paused
+     */
+    public void wake ()
+    {
+        Thread t = thread;
+        if (t != null)
+        {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Runs ticks and repaints the screen until the loop is stopped.
+     */
+    @Override
+    public void run ()
+    {
+        Thread self = Thread.currentThread();
+        long nextTick = System.nanoTime();
+        long nextFrame = nextTick;
+        while (thread == self)
+        {
+            // Sleep until the game is resumed or the loop is stopped
+            if (controller.isPaused())
+            {
+                LockSupport.park(this);
+                nextTick = nextFrame = System.nanoTime();
+                continue;
+            }
+
+            // Run every tick that is due
+            long now = System.nanoTime();
+            int count = 0;
+            while (now - nextTick >= 0 && count < MAX_CATCH_UP_TICKS)
+            {
+                controller.tick();
+                long end = System.nanoTime();
+                recordTick(now - nextTick, end - now);
+                nextTick += tickNanos;
+                count++;
+                now = end;
+            }
+
+            // Give up on ticks that can't be caught up with
+            long missed = 0;
+            if (now - nextTick >= 0)
+            {
+                missed = (now - nextTick) / tickNanos + 1;
+                nextTick += missed * tickNanos;
+            }
+
+            // Repaint part of the way between the last two ticks
+            boolean repaint = now - nextFrame >= 0;
+            recordFrame(count, missed, repaint);
+            if (repaint)
+            {
+                double alpha = 1 - (double) (nextTick - now) / tickNanos;
+                controller.render(Math.max(0, Math.min(1, alpha)));
+                nextFrame += frameNanos;
+                if (now - nextFrame >= 0)
+                {
+                    nextFrame = now + frameNanos;
+                }
+            }
+
+            sleepUntil(nextTick - nextFrame < 0 ? nextTick : nextFrame);
+        }
+    }
+
+    /**
+     * Adds a tick that started late nanoseconds after it was due and took
+     * duration nanoseconds to the statistics.
+     */
+    private synchronized void recordTick (long late, long duration)
+    {
+        ticks++;
+        lateTotal += late;
+        lateSquares += (double) late * late;
+        lateMax = Math.max(lateMax, late);
+        if (duration > tickNanos)
+        {
+            overruns++;
+        }
+    }
+
+    /**
+     * Adds a pass through the loop that ran count ticks, dropped missed
+     * ticks, and possibly requested a repaint to the statistics.
+     */
+    private synchronized void recordFrame (int count, long missed,
+            boolean repaint)
+    {
+        if (count > 1)
+        {
+            catchUps++;
+        }
+        dropped += missed;
+        if (repaint)
+        {
+            frames++;
+        }
+    }
+
+    /**
+     * Waits until System.nanoTime reaches the deadline or the loop is
+     * stopped.
+     */
+    private void sleepUntil (long deadline)
+    {
+        Thread self = Thread.currentThread();
+        long remaining = deadline - System.nanoTime();
+        while (remaining > SPIN_NANOS && thread == self)
+        {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            remaining = deadline - System.nanoTime();
+        }
+        while (remaining > 0 && thread == self)
+        {
+            Thread.yield();
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the number of ticks run so far
+     */
+    public synchronized long getTicks ()
+    {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks that took longer than the timestep
+     */
+    public synchronized long getOverruns ()
+    {
+        return overruns;
+    }
+
+    /**
+     * Returns the number of ticks that were dropped because the loop fell
+     * too far behind
+     */
+    public synchronized long getDropped ()
+    {
+        return dropped;
+    }
+
+    /**
+     * Summarizes how closely the loop has kept to its schedule. Jitter is how
+     * late ticks started, in milliseconds.
+     */
+    @Override
+    public synchronized String toString ()
+    {
+        double mean = ticks == 0 ? 0 : lateTotal / ticks;
+        double sd = ticks == 0 ? 0 : Math.sqrt(Math.max(0, lateSquares / ticks
+                - mean * mean));
+        return String.format("simulation: %d ticks, jitter mean %.3f ms, "
+                + "sd %.3f ms, max %.3f ms, %d overruns, %d catch-ups, "
+                + "%d dropped, %d frames", ticks, mean / 1e6, sd / 1e6,
+                lateMax / 1e6, overruns, catchUps, dropped, frames);
+    }
+}
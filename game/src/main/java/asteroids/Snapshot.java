@@ -0,0 +1,522 @@
+package asteroids;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves the complete state of an engine to a file and loads it back, so that
+ * a game can be carried on from exactly where it was saved. A game loaded from
+ * a snapshot unfolds the same way as the game that was saved, given the same
+ * calls to step.
+ *
+ * A snapshot is a binary file that is written and read through a memory
+ * mapping, so that large worlds are copied straight between the file and the
+ * store's arrays. The same encoding is used to keep snapshots in memory; a
+ * Snapshot object reuses its working arrays, so once they are big enough,
+ * encoding and decoding allocate nothing. A snapshot starts with the int
+ * MAGIC and the int VERSION, followed by:
+ * <ul>
+ * <li>the int length and the bytes of the rules of the game, as written by
+ * Engine.saveRules</li>
+ * <li>the int tick of the simulation clock, the int number of participants
+ * and the int index of the ship among them, or -1 if there is none</li>
+ * <li>a record of RECORD_BYTES for each participant, in the order of the live
+ * list followed by the participants waiting to be added: the bytes type,
+ * variety, size, flags and state; the doubles x, y, speedX, speedY,
+ * rotation, borderX, borderY, borderRotation, prevX, prevY and
+ * prevRotation; and the int number of ticks before it expires, or -1</li>
+ * <li>the int number of participants waiting to be removed and their indexes,
+ * in the order they were removed</li>
+ * <li>the int number of participants with limited lifetimes and their
+ * indexes, in the order the lifetime wheel holds them, so that participants
+ * that expire together do so in the same order after loading</li>
+ * </ul>
+ *
+ * @author Jackson Murphy
+ */
+public class Snapshot
+{
+    /**
+     * The first four bytes of a snapshot, "ASNP"
+     */
+    public final static int MAGIC = 0x41534E50;
+
+    /**
+     * The version of the format
+     */
+    public final static int VERSION = 2;
+
+    // Bytes in the record of one participant
+    private final static int RECORD_BYTES = 5 + 11 * 8 + 4;
+
+    // States of a participant: in the live list, or waiting to be added
+    private final static byte LIVE = 0, PENDING_ADD = 1;
+
+    // The index of each slot among the participants being saved, or -1
+    private int[] index;
+
+    // The slots of the participants being saved, in order
+    private int[] slots;
+    private int count;
+
+    // Indexes of the participants waiting to be removed, and of the
+    // participants with limited lifetimes in the order the wheel holds them
+    private int[] removals;
+    private int removalCount;
+    private int[] expiring;
+    private int expiringCount;
+
+    // Index of the ship, or -1
+    private int shipIndex;
+
+    // The participants being loaded, and their remaining lifetimes
+    private Participant[] participants;
+    private int[] lifetimes;
+
+    /**
+     * Creates an object for encoding and decoding snapshots
+     */
+    Snapshot ()
+    {
+        index = slots = removals = expiring = lifetimes = new int[0];
+        participants = new Participant[0];
+    }
+
+    /**
+     * Writes the state of engine to the named file, replacing anything that
+     * was there. The snapshot is written to a new file beside it, which is
+     * then moved into its place, so that a file that is still mapped by an
+     * earlier load is never truncated, and a failed save leaves the old
+     * snapshot as it was. The caller should hold the engine's lock.
+     */
+    public static void save (Engine engine, String file) throws IOException
+    {
+        Snapshot snapshot = new Snapshot();
+        long length = snapshot.measure(engine);
+        Path target = Paths.get(file).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(),
+                target.getFileName().toString(), ".tmp");
+        try
+        {
+            FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try
+            {
+                MappedByteBuffer out = channel.map(
+                        FileChannel.MapMode.READ_WRITE, 0, length);
+                snapshot.write(engine, out);
+                out.force();
+            }
+            finally
+            {
+                channel.close();
+            }
+            try
+            {
+                Files.move(temporary, target,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporary, target,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Replaces the state of engine with the state saved in the named file.
+     * The engine keeps its listeners, other than itself, and its collision
+     * pool. The whole file is checked before the engine is touched, so if it
+     * is truncated or corrupt, an IOException is thrown and the engine is
+     * left as it was. The caller should hold the engine's lock.
+     */
+    public static void load (String file, Engine engine) throws IOException
+    {
+        load(open(file), engine);
+    }
+
+    /**
+     * Maps the named file and checks all of it, without touching any engine.
+     * Returns the snapshot it holds, to be given to load, or throws an
+     * IOException if it can't be read or doesn't hold a snapshot of this
+     * version.
+     */
+    public static ByteBuffer open (String file) throws IOException
+    {
+        FileChannel channel =
+                FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        try
+        {
+            MappedByteBuffer in =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            channel.size());
+            if (in.remaining() < 8 || in.getInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION)
+            {
+                throw new IOException(file + " has unknown version "
+                        + version);
+            }
+            in.position(0);
+            if (!isValid(in))
+            {
+                throw new IOException(file + " is not a snapshot");
+            }
+            return in;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replaces the state of engine with the snapshot returned by open. The
+     * engine keeps its listeners, other than itself, and its collision
+     * pool. The caller should hold the engine's lock.
+     */
+    public static void load (ByteBuffer snapshot, Engine engine)
+    {
+        new Snapshot().read(snapshot.duplicate(), engine);
+    }
+
+    /**
+     * Reports whether in, from its position to its limit, holds a snapshot
+     * of this version that read can load: whether it is long enough for
+     * everything it says it holds, and whether its types, varieties, sizes,
+     * states and indexes are all in range. The position is left unchanged.
+     */
+    static boolean isValid (ByteBuffer in)
+    {
+        int start = in.position();
+        long limit = in.limit();
+
+        // The header and the rules, which end with the legend
+        long p = start + 4 * 3;
+        if (p > limit || in.getInt(start) != MAGIC
+                || in.getInt(start + 4) != VERSION)
+        {
+            return false;
+        }
+        int rulesBytes = in.getInt(start + 8);
+        if (rulesBytes < Engine.RULES_BYTES || p + rulesBytes + 4 * 3 > limit
+                || rulesBytes != Engine.RULES_BYTES + 2 * in.getShort((int) p
+                        + Engine.RULES_BYTES - 2))
+        {
+            return false;
+        }
+        p += rulesBytes;
+
+        // The participants
+        int count = in.getInt((int) p + 4);
+        int shipIndex = in.getInt((int) p + 8);
+        p += 4 * 3;
+        if (count < 0 || p + (long) count * RECORD_BYTES + 4 > limit
+                || shipIndex < -1 || shipIndex >= count)
+        {
+            return false;
+        }
+        int records = (int) p;
+        for (int k = 0; k < count; k++)
+        {
+            int r = records + k * RECORD_BYTES;
+            byte type = in.get(r);
+            byte state = in.get(r + 4);
+            if (type < EntityStore.SHIP || type > EntityStore.DEBRIS
+                    || type == EntityStore.ASTEROID
+                            && !Asteroid.isValid(in.get(r + 1), in.get(r + 2))
+                    || state != LIVE && state != PENDING_ADD
+                    || in.getInt(r + RECORD_BYTES - 4) < -1)
+            {
+                return false;
+            }
+        }
+        if (shipIndex >= 0 && in.get(records + shipIndex
+                * RECORD_BYTES) != EntityStore.SHIP)
+        {
+            return false;
+        }
+        p += (long) count * RECORD_BYTES;
+
+        // The removals, then the lifetimes, which must be of participants
+        // whose lifetimes are limited
+        int removalCount = in.getInt((int) p);
+        p += 4;
+        if (removalCount < 0 || p + 4L * removalCount + 4 > limit)
+        {
+            return false;
+        }
+        for (int k = 0; k < removalCount; k++)
+        {
+            int i = in.getInt((int) p + 4 * k);
+            if (i < 0 || i >= count)
+            {
+                return false;
+            }
+        }
+        p += 4L * removalCount;
+        int expiringCount = in.getInt((int) p);
+        p += 4;
+        if (expiringCount < 0 || p + 4L * expiringCount > limit)
+        {
+            return false;
+        }
+        for (int k = 0; k < expiringCount; k++)
+        {
+            int i = in.getInt((int) p + 4 * k);
+            if (i < 0 || i >= count || in.getInt(records + i * RECORD_BYTES
+                    + RECORD_BYTES - 4) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Works out which participants of engine are to be saved, and returns the
+     * number of bytes that write will take to save them. Nothing may change
+     * in the engine between this and the call to write.
+     */
+    long measure (Engine engine)
+    {
+        EntityStore store = engine.getEntities();
+
+        // Number the participants: the live list first, then the ones that
+        // are waiting to be added
+        int adds = engine.getPendingAddCount();
+        if (index.length < store.views.length)
+        {
+            index = new int[store.views.length];
+        }
+        Arrays.fill(index, -1);
+        if (slots.length < store.liveCount + adds)
+        {
+            slots = new int[store.liveCount + adds];
+        }
+        count = 0;
+        for (int k = 0; k < store.liveCount; k++)
+        {
+            slots[count] = store.live[k];
+            index[store.live[k]] = count++;
+        }
+        for (int k = 0; k < adds; k++)
+        {
+            int s = store.resolve(engine.getPendingAdd(k));
+            if (s >= 0 && index[s] < 0)
+            {
+                slots[count] = s;
+                index[s] = count++;
+            }
+        }
+
+        // Collect the removals and lifetimes that refer to those participants
+        int removes = engine.getPendingRemoveCount();
+        if (removals.length < removes)
+        {
+            removals = new int[removes];
+        }
+        removalCount = 0;
+        for (int k = 0; k < removes; k++)
+        {
+            int s = store.resolve(engine.getPendingRemove(k));
+            if (s >= 0 && index[s] >= 0)
+            {
+                removals[removalCount++] = index[s];
+            }
+        }
+        if (expiring.length < count)
+        {
+            expiring = new int[count];
+        }
+        expiringCount = 0;
+        TimingWheel wheel = store.lifetimes;
+        for (int bucket = 0; bucket < wheel.getBucketCount(); bucket++)
+        {
+            for (int s = wheel.getFirst(bucket); s >= 0; s = wheel.getNext(s))
+            {
+                if (index[s] >= 0)
+                {
+                    expiring[expiringCount++] = index[s];
+                }
+            }
+        }
+
+        Ship ship = engine.getShip();
+        shipIndex = -1;
+        if (ship != null && ship.getSlot() >= 0)
+        {
+            shipIndex = index[ship.getSlot()];
+        }
+
+        return 4 * 6 + engine.getRulesBytes() + (long) count * RECORD_BYTES
+                + 4 + 4 * removalCount + 4 + 4 * expiringCount;
+    }
+
+    /**
+     * Writes the snapshot of engine worked out by measure to out, which must
+     * have room for the number of bytes that measure returned
+     */
+    void write (Engine engine, ByteBuffer out)
+    {
+        EntityStore store = engine.getEntities();
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(engine.getRulesBytes());
+        engine.saveRules(out);
+        out.putInt(store.tick);
+        out.putInt(count);
+        out.putInt(shipIndex);
+
+        for (int k = 0; k < count; k++)
+        {
+            int s = slots[k];
+            out.put(store.type[s]);
+            out.put((byte) (store.type[s] == EntityStore.ASTEROID
+                    ? ((Asteroid) store.views[s]).getVariety() : 0));
+            out.put(store.size[s]);
+            out.put(store.flags[s]);
+            out.put(store.isLive[s] ? LIVE : PENDING_ADD);
+            out.putDouble(store.x[s]);
+            out.putDouble(store.y[s]);
+            out.putDouble(store.speedX[s]);
+            out.putDouble(store.speedY[s]);
+            out.putDouble(store.rotation[s]);
+            out.putDouble(store.borderX[s]);
+            out.putDouble(store.borderY[s]);
+            out.putDouble(store.borderRotation[s]);
+            out.putDouble(store.prevX[s]);
+            out.putDouble(store.prevY[s]);
+            out.putDouble(store.prevRotation[s]);
+            out.putInt(store.getLifetime(s));
+        }
+
+        out.putInt(removalCount);
+        for (int k = 0; k < removalCount; k++)
+        {
+            out.putInt(removals[k]);
+        }
+        out.putInt(expiringCount);
+        for (int k = 0; k < expiringCount; k++)
+        {
+            out.putInt(expiring[k]);
+        }
+    }
+
+    /**
+     * Replaces the state of engine with the snapshot in, which starts at its
+     * position and has already been checked to be of this version.
+     * Participants come from the engine's pools, and its ship is reused if
+     * it has one, so with pools that are big enough nothing is allocated.
+     */
+    void read (ByteBuffer in, Engine engine)
+    {
+        in.position(in.position() + 4 * 3);
+
+        // Start from an empty world with the clock where it was saved. The
+        // legend is kept so that loadRules can reuse it if it hasn't changed.
+        EntityStore store = engine.getEntities();
+        Ship spare = engine.getShip();
+        String legend = engine.getLegend();
+        engine.clear();
+        engine.setLegend(legend);
+        engine.loadRules(in);
+        store.tick = in.getInt();
+        int count = in.getInt();
+        int shipIndex = in.getInt();
+
+        store.reserve(count);
+        if (participants.length < count)
+        {
+            participants = new Participant[count];
+            lifetimes = new int[count];
+        }
+        for (int k = 0; k < count; k++)
+        {
+            byte type = in.get();
+            int variety = in.get();
+            int size = in.get();
+            Participant p;
+            if (type == EntityStore.SHIP && spare != null
+                    && spare.getSlot() < 0)
+            {
+                spare.reattach();
+                p = spare;
+                spare = null;
+            }
+            else
+            {
+                p = engine.createParticipant(type, variety, size);
+            }
+            participants[k] = p;
+            int s = p.getSlot();
+            store.flags[s] = in.get();
+            boolean live = in.get() == LIVE;
+            store.x[s] = in.getDouble();
+            store.y[s] = in.getDouble();
+            store.speedX[s] = in.getDouble();
+            store.speedY[s] = in.getDouble();
+            store.rotation[s] = in.getDouble();
+
+            // Adding a participant to the live list puts its border where
+            // it is, so the border is restored afterwards
+            if (live)
+            {
+                store.addLive(s);
+            }
+            else
+            {
+                engine.addParticipant(p);
+            }
+            store.borderX[s] = in.getDouble();
+            store.borderY[s] = in.getDouble();
+            store.borderRotation[s] = in.getDouble();
+            store.prevX[s] = in.getDouble();
+            store.prevY[s] = in.getDouble();
+            store.prevRotation[s] = in.getDouble();
+            store.placed[s] = false;
+            lifetimes[k] = in.getInt();
+        }
+
+        int removalCount = in.getInt();
+        for (int k = 0; k < removalCount; k++)
+        {
+            engine.removeParticipant(participants[in.getInt()]);
+        }
+
+        // Scheduling puts a participant at the front of its bucket, so the
+        // wheel's order is rebuilt by scheduling from the back
+        int expiringCount = in.getInt();
+        int end = in.position() + 4 * expiringCount;
+        for (int k = expiringCount - 1; k >= 0; k--)
+        {
+            int i = in.getInt(end - 4 * (expiringCount - k));
+            store.setLifetime(participants[i].getSlot(), lifetimes[i]);
+        }
+        in.position(end);
+
+        engine.setShip(shipIndex >= 0 ? (Ship) participants[shipIndex]
+                : null);
+
+        // Let go of the participants so they can be recycled
+        Arrays.fill(participants, 0, count, null);
+    }
+}
@@ -0,0 +1,358 @@
+package asteroids;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A uniform grid used as the broad phase of collision detection. The bounding
+ * box of each item is entered into every cell that it touches, and only pairs
+ * of items that share a cell and whose boxes overlap are reported as
+ * candidates for the exact test. Cells are found by hashing their coordinates,
+ * so items that have drifted off the screen are handled like any other.
+ *
+ * The grid is rebuilt from scratch for each refresh. Its storage is reused
+ * from one refresh to the next, so rebuilding it does not allocate once it has
+ * grown to the size of the game.
+ *
+ * Once the grid is filled, the search for pairs can be split across the
+ * threads of a ForkJoinPool. Each thread scans part of the entries into its
+ * own buffer, and the buffers are then combined and sorted, so the pairs come
+ * out in the same order however the work was divided.
+ *
+ * @author Jackson Murphy
+ */
+class SpatialHash
+{
+    // Width and height of a cell in pixels, and its reciprocal
+    private double cellSize;
+    private double inverseCellSize;
+
+    // Number of items added since the last clear, and their bounds
+    private int itemCount;
+    private double[] minX, minY, maxX, maxY;
+
+    // Range of cells covered by each item
+    private int[] firstCellX, firstCellY, lastCellX, lastCellY;
+
+    // One entry for each (item, cell) pair. Entries in the same bucket are
+    // chained together through entryNext.
+    private int entryCount;
+    private int[] entryItem, entryCellX, entryCellY, entryNext;
+
+    // First entry of each bucket, or -1 if the bucket is empty
+    private int[] buckets;
+
+    // Candidate pairs found by the last call to findPairs. Each pair is
+    // encoded so that sorting the codes puts the pairs in scan order.
+    private PairBuffer found;
+
+    // Buffers into which the parts of a parallel search put their pairs
+    private PairBuffer[] partial;
+
+    /**
+     * Creates an empty grid whose cells are the given number of pixels on a
+     * side.
+     */
+    public SpatialHash (double cellSize)
+    {
+        this.cellSize = cellSize;
+        inverseCellSize = 1 / cellSize;
+        minX = new double[64];
+        minY = new double[64];
+        maxX = new double[64];
+        maxY = new double[64];
+        firstCellX = new int[64];
+        firstCellY = new int[64];
+        lastCellX = new int[64];
+        lastCellY = new int[64];
+        entryItem = new int[256];
+        entryCellX = new int[256];
+        entryCellY = new int[256];
+        entryNext = new int[256];
+        buckets = new int[256];
+        found = new PairBuffer();
+        partial = new PairBuffer[0];
+    }
+
+    /**
+     * Returns the width and height of a cell
+     */
+    public double getCellSize ()
+    {
+        return cellSize;
+    }
+
+    /**
+     * Removes every item from the grid
+     */
+    public void clear ()
+    {
+        itemCount = 0;
+        entryCount = 0;
+        found.count = 0;
+    }
+
+    /**
+     * Adds an item with the given bounding box and returns its index. Items
+     * are numbered consecutively from zero in the order they are added.
+     */
+    public int add (double x0, double y0, double x1, double y1)
+    {
+        if (itemCount == minX.length)
+        {
+            int length = itemCount * 2;
+            minX = Arrays.copyOf(minX, length);
+            minY = Arrays.copyOf(minY, length);
+            maxX = Arrays.copyOf(maxX, length);
+            maxY = Arrays.copyOf(maxY, length);
+            firstCellX = Arrays.copyOf(firstCellX, length);
+            firstCellY = Arrays.copyOf(firstCellY, length);
+            lastCellX = Arrays.copyOf(lastCellX, length);
+            lastCellY = Arrays.copyOf(lastCellY, length);
+        }
+        int i = itemCount++;
+        minX[i] = x0;
+        minY[i] = y0;
+        maxX[i] = x1;
+        maxY[i] = y1;
+        firstCellX[i] = cell(x0);
+        firstCellY[i] = cell(y0);
+        lastCellX[i] = cell(x1);
+        lastCellY[i] = cell(y1);
+        entryCount += (lastCellX[i] - firstCellX[i] + 1)
+                * (lastCellY[i] - firstCellY[i] + 1);
+        return i;
+    }
+
+    /**
+     * Finds every pair of items whose bounding boxes overlap with a non-zero
+     * area and returns the number found. The pairs can be retrieved with
+     * getFirst and getSecond. They are ordered as a scan that takes each item
+     * i in turn and pairs it with the items after it from last to first would
+     * visit them.
+     */
+    public int findPairs ()
+    {
+        fillBuckets();
+        found.count = 0;
+        scan(0, entryCount, found);
+        Arrays.sort(found.pairs, 0, found.count);
+        return found.count;
+    }
+
+    /**
+     * Does the same as findPairs, but divides the search among the threads of
+     * pool, giving each of them the given number of parts to search.
+     */
+    public int findPairs (ForkJoinPool pool, int partsPerThread)
+    {
+        fillBuckets();
+        int parts = pool.getParallelism() * partsPerThread;
+        if (partial.length < parts)
+        {
+            int old = partial.length;
+            partial = Arrays.copyOf(partial, parts);
+            for (int p = old; p < parts; p++)
+            {
+                partial[p] = new PairBuffer();
+            }
+        }
+        pool.invoke(new Search(0, parts, parts));
+
+        // Combine the parts in order and sort them
+        found.count = 0;
+        for (int p = 0; p < parts; p++)
+        {
+            found.ensureCapacity(found.count + partial[p].count);
+            System.arraycopy(partial[p].pairs, 0, found.pairs, found.count,
+                    partial[p].count);
+            found.count += partial[p].count;
+        }
+        Arrays.sort(found.pairs, 0, found.count);
+        return found.count;
+    }
+
+    /**
+     * Searches parts first through last - 1 of the entries, out of the given
+     * number of parts, splitting the work in half until there is only one
+     * part.
+     */
+    private class Search extends RecursiveAction
+    {
+        private int first, last, parts;
+
+        Search (int first, int last, int parts)
+        {
+            this.first = first;
+            this.last = last;
+            this.parts = parts;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if (last - first == 1)
+            {
+                PairBuffer buffer = partial[first];
+                buffer.count = 0;
+                scan((int) ((long) entryCount * first / parts),
+                        (int) ((long) entryCount * last / parts), buffer);
+            }
+            else
+            {
+                int middle = (first + last) >>> 1;
+                invokeAll(new Search(first, middle, parts), new Search(middle,
+                        last, parts));
+            }
+        }
+    }
+
+    /**
+     * Adds to buffer the pairs found by comparing entries from through to - 1
+     * with the entries that precede them in their buckets.
+     */
+    private void scan (int from, int to, PairBuffer buffer)
+    {
+        // Each entry is compared with the entries that precede it in its
+        // bucket's chain
+        for (int e = from; e < to; e++)
+        {
+            int a = entryItem[e];
+            int cx = entryCellX[e];
+            int cy = entryCellY[e];
+            for (int f = entryNext[e]; f >= 0; f = entryNext[f])
+            {
+                int b = entryItem[f];
+                if (b == a || entryCellX[f] != cx || entryCellY[f] != cy)
+                {
+                    continue;
+                }
+
+                // Boxes that only touch can't contain overlapping shapes
+                if (maxX[a] <= minX[b] || maxX[b] <= minX[a]
+                        || maxY[a] <= minY[b] || maxY[b] <= minY[a])
+                {
+                    continue;
+                }
+
+                // A pair that shares several cells is reported only from the
+                // cell containing the upper-left corner of the overlap
+                if (cx != Math.max(firstCellX[a], firstCellX[b])
+                        || cy != Math.max(firstCellY[a], firstCellY[b]))
+                {
+                    continue;
+                }
+                buffer.add(Math.min(a, b), Math.max(a, b));
+            }
+        }
+    }
+
+    /**
+     * Returns the lower-numbered item of the k'th pair found by findPairs
+     */
+    public int getFirst (int k)
+    {
+        return (int) (found.pairs[k] >>> 32);
+    }
+
+    /**
+     * Returns the higher-numbered item of the k'th pair found by findPairs
+     */
+    public int getSecond (int k)
+    {
+        return ~(int) found.pairs[k];
+    }
+
+    /**
+     * Enters every item into each of the cells that it covers.
+     */
+    private void fillBuckets ()
+    {
+        if (entryItem.length < entryCount)
+        {
+            int length = Math.max(entryCount, entryItem.length * 2);
+            entryItem = new int[length];
+            entryCellX = new int[length];
+            entryCellY = new int[length];
+            entryNext = new int[length];
+        }
+        int bucketCount = buckets.length;
+        while (bucketCount < entryCount * 2)
+        {
+            bucketCount *= 2;
+        }
+        if (bucketCount != buckets.length)
+        {
+            buckets = new int[bucketCount];
+        }
+        Arrays.fill(buckets, -1);
+
+        int mask = bucketCount - 1;
+        int e = 0;
+        for (int i = 0; i < itemCount; i++)
+        {
+            for (int cx = firstCellX[i]; cx <= lastCellX[i]; cx++)
+            {
+                for (int cy = firstCellY[i]; cy <= lastCellY[i]; cy++)
+                {
+                    int bucket = hash(cx, cy) & mask;
+                    entryItem[e] = i;
+                    entryCellX[e] = cx;
+                    entryCellY[e] = cy;
+                    entryNext[e] = buckets[bucket];
+                    buckets[bucket] = e;
+                    e++;
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable list of encoded pairs
+     */
+    private static class PairBuffer
+    {
+        long[] pairs = new long[64];
+        int count;
+
+        /**
+         * Makes room for n pairs, keeping the ones already recorded
+         */
+        void ensureCapacity (int n)
+        {
+            if (n > pairs.length)
+            {
+                pairs = Arrays.copyOf(pairs, Math.max(n, pairs.length * 2));
+            }
+        }
+
+        /**
+         * Records the pair (i, j), where i < j.
+         */
+        void add (int i, int j)
+        {
+            ensureCapacity(count + 1);
+
+            // Ascending in i, then descending in j
+            pairs[count++] = ((long) i << 32) | (~j & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Returns the coordinate of the cell containing the pixel coordinate v.
+     */
+    private int cell (double v)
+    {
+        return (int) Math.floor(v * inverseCellSize);
+    }
+
+    /**
+     * Mixes the coordinates of a cell into a bucket number.
+     */
+    private static int hash (int cx, int cy)
+    {
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA6B;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,214 @@
+package asteroids;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static asteroids.Constants.*;
+
+/**
+ * Pre-rendered, antialiased images of participants' outlines. There are few
+ * distinct outlines, so rather than stroking each one from scratch every
+ * frame, each outline is drawn once at each of SPRITE_ROTATIONS rotations and
+ * the image is copied onto the screen. A sprite is made the first time it is
+ * asked for.
+ *
+ * The sprites are kept in least recently used order, and the oldest ones are
+ * discarded whenever the memory they take up would go over the cap.
+ *
+ * @author Jackson Murphy
+ */
+class SpriteCache
+{
+    // The sprites, keyed by outline id and rotation, least recently used
+    // first
+    private LinkedHashMap<Integer, Sprite> sprites;
+
+    // Memory the sprites take up, and the most they may take up, in bytes
+    private long bytes;
+    private long cap;
+
+    // Statistics: sprites found, sprites made, and sprites discarded
+    private long hits, misses, evictions;
+
+    /**
+     * Creates a cache holding up to SPRITE_CACHE_BYTES of sprites
+     */
+    public SpriteCache ()
+    {
+        sprites = new LinkedHashMap<Integer, Sprite>(64, 0.75f, true);
+        cap = SPRITE_CACHE_BYTES;
+    }
+
+    /**
+     * Sets the most memory in bytes that the sprites may take up, discarding
+     * sprites if they already take up more
+     */
+    public synchronized void setMemoryCap (long cap)
+    {
+        this.cap = cap;
+        trim();
+    }
+
+    /**
+     * Returns the most memory in bytes that the sprites may take up
+     */
+    public long getMemoryCap ()
+    {
+        return cap;
+    }
+
+    /**
+     * Returns the memory in bytes that the sprites take up
+     */
+    public synchronized long getMemoryUsed ()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the sprite of the outline with the specified id, drawn at the
+     * rotation nearest to the one given in radians.
+     */
+    public synchronized Sprite get (int id, double rotation)
+    {
+        int bucket = (int) Math.round(rotation * SPRITE_ROTATIONS / (2
+                * Math.PI)) % SPRITE_ROTATIONS;
+        if (bucket < 0)
+        {
+            bucket += SPRITE_ROTATIONS;
+        }
+        Integer key = id * SPRITE_ROTATIONS + bucket;
+        Sprite sprite = sprites.get(key);
+        if (sprite != null)
+        {
+            hits++;
+            return sprite;
+        }
+
+        misses++;
+        sprite = new Sprite(Outline.get(id), bucket * 2 * Math.PI
+                / SPRITE_ROTATIONS);
+        sprites.put(key, sprite);
+        bytes += sprite.getBytes();
+        trim();
+        return sprite;
+    }
+
+    /**
+     * Discards the least recently used sprites until the rest fit under the
+     * cap
+     */
+    private void trim ()
+    {
+        Iterator<Map.Entry<Integer, Sprite>> oldest = sprites.entrySet()
+                .iterator();
+        while (bytes > cap && oldest.hasNext())
+        {
+            bytes -= oldest.next().getValue().getBytes();
+            oldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Summarizes how well the cache is working
+     */
+    @Override
+    public synchronized String toString ()
+    {
+        long lookups = hits + misses;
+        return String.format("sprites: %d held in %d of %d KB, %d hits, "
+                + "%d misses (%.2f%% hit rate), %d evictions", sprites.size(),
+                bytes >> 10, cap >> 10, hits, misses, lookups == 0 ? 0.0
+                        : 100.0 * hits / lookups, evictions);
+    }
+
+    /**
+     * An outline drawn at one rotation. The center of the outline is at
+     * (getCenter(), getCenter()) in the image.
+     */
+    static class Sprite
+    {
+        // The image, and the position of the outline's center in it
+        private BufferedImage image;
+        private int center;
+
+        /**
+         * Draws outline rotated by the specified number of radians, in white
+         * with a one pixel antialiased stroke as the screen draws it
+         */
+        Sprite (Outline outline, double rotation)
+        {
+            // Leave room for the stroke and antialiasing around the outline
+            center = (int) Math.ceil(outline.getRadius()) + 2;
+            int size = 2 * center + 1;
+            image = new BufferedImage(size, size,
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+
+            double cos = Math.cos(rotation);
+            double sin = Math.sin(rotation);
+            Path2D.Double border = new Path2D.Double();
+            for (int i = 0; i < outline.getVertexCount(); i++)
+            {
+                double x = outline.getX(i);
+                double y = outline.getY(i);
+                double wx = center + cos * x - sin * y;
+                double wy = center + sin * x + cos * y;
+                if (i == 0)
+                {
+                    border.moveTo(wx, wy);
+                }
+                else
+                {
+                    border.lineTo(wx, wy);
+                }
+            }
+            border.closePath();
+
+            Graphics2D g = image.createGraphics();
+            try
+            {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                        RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(Color.white);
+                g.setStroke(new BasicStroke(1));
+                g.draw(border);
+            }
+            finally
+            {
+                g.dispose();
+            }
+        }
+
+        /**
+         * Returns the image of the outline
+         */
+        BufferedImage getImage ()
+        {
+            return image;
+        }
+
+        /**
+         * Returns the position of the outline's center within the image,
+         * along both axes
+         */
+        int getCenter ()
+        {
+            return center;
+        }
+
+        /**
+         * Returns the memory in bytes that the image takes up
+         */
+        long getBytes ()
+        {
+            return 4L * image.getWidth() * image.getHeight();
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package asteroids;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import static asteroids.Constants.*;
+
+/**
+ * Streams the state of every participant at every tick of a game to a file,
+ * for analysis offline. It is read back with a TelemetryReader.
+ *
+ * Writing every participant in full each tick would take far too much room,
+ * so positions, speeds and rotations are rounded to whole numbers of
+ * 1/POSITION_SCALE pixels, 1/SPEED_SCALE pixels per tick and
+ * 1/ROTATION_SCALE turns, and each participant is written as the difference
+ * from where it would be if it had carried on as it was in the previous tick.
+ * For most participants, most of the time, the difference is nothing, and
+ * only the fields that differ are written, as zigzag varints. A participant
+ * takes two or three bytes a tick when it is drifting.
+ *
+ * A stream starts with the int MAGIC and the int VERSION, followed by one
+ * frame per tick. A frame starts with its int length, not counting the
+ * length itself, then the byte KEYFRAME or DELTA and varints giving the
+ * tick, the score, the lives, the level and the number of participants. For
+ * each participant there follows:
+ * <ul>
+ * <li>the zigzag varint difference between its slot in the store and the
+ * slot of the participant before it in the frame (or 0)</li>
+ * <li>a byte of flags. If NEW is set, the participant wasn't in the previous
+ * frame, and a byte holding its type and 16 times its size follows, then
+ * its x, y, x speed and y speed as zigzag varints and its rotation as a
+ * varint. Otherwise the flags X, Y, SPEED_X, SPEED_Y and ROTATION say which
+ * of the differences follow, as zigzag varints.</li>
+ * </ul>
+ * Every participant is NEW in a keyframe. There is a keyframe every
+ * TELEMETRY_KEYFRAME_TICKS ticks, after a frame has been left out, and after
+ * the game has jumped, as when it is rewound or carried on from a snapshot.
+ *
+ * Encoding takes far longer than the game can spare when there are many
+ * participants, so the game's thread only copies each participant's slot,
+ * handle, type, size, position, speeds and rotation into a copy, which
+ * is handed to a thread of the telemetry's own. That thread quantizes and
+ * encodes the copy, gathers the frames in a direct buffer and writes the
+ * buffer to the file through a FileChannel when it is full. There are
+ * TELEMETRY_COPIES copies, which are reused; if the writer falls so
+ * far behind that none is free, a tick is left out rather than keeping the
+ * game waiting. How long recording takes on the game's thread is recorded,
+ * and ticks that take longer than TELEMETRY_BUDGET are counted, as is how
+ * long the writer takes to encode each frame.
+ *
+ * The caller should hold the engine's lock.
+ *
+ * @author Jackson Murphy
+ */
+public class Telemetry
+{
+    /**
+     * The first four bytes of a stream, "ASTT"
+     */
+    public final static int MAGIC = 0x41535454;
+
+    /**
+     * The version of the format
+     */
+    public final static int VERSION = 1;
+
+    /**
+     * The kinds of frame
+     */
+    public final static byte KEYFRAME = 1, DELTA = 2;
+
+    /**
+     * The flags that say how a participant is written
+     */
+    public final static int X = 1, Y = 2, SPEED_X = 4, SPEED_Y = 8,
+            ROTATION = 16, NEW = 32;
+
+    /**
+     * The number of units per pixel, per pixel per tick, and per turn
+     */
+    public final static int POSITION_SCALE = 16;
+    public final static int SPEED_SCALE = 256;
+    public final static int ROTATION_SCALE = 65536;
+
+    // The most bytes a frame can take before its participants, and for each
+    // participant
+    private final static int FRAME_HEADER_BYTES = 4 + 1 + 4 * 5 + 10;
+    private final static int PARTICIPANT_BYTES = 5 + 2 + 5 * 5;
+
+    // How long the writer waits when there is nothing to encode
+    private final static long POLL_NANOS = 1000000;
+
+    // Handed to the writer to tell it to finish
+    private final static TickCopy END = new TickCopy();
+
+    // The engine whose participants are streamed
+    private Engine engine;
+
+    // The file, the thread that writes to it, and the first error it met
+    private FileChannel channel;
+    private Thread writer;
+    private volatile IOException failure;
+
+    // Copies that are free to be filled, and copies that are waiting to
+    // be encoded, in order. The writer looks for copies every
+    // POLL_NANOS, so the game's thread never has to wake it.
+    private Queue<TickCopy> free;
+    private Queue<TickCopy> full;
+
+    // The number of ticks recorded, and whether the next frame must be a
+    // keyframe
+    private long tick;
+    private boolean keyframeNeeded;
+
+    // Statistics kept by the game's thread: how long recording took in
+    // nanoseconds, ticks over budget, and ticks left out
+    private Histogram recordTimes;
+    private long overBudget;
+    private long dropped;
+
+    // Used only by the writer: the frame being encoded and the buffer it is
+    // gathered in
+    private byte[] frame;
+    private ByteBuffer out;
+
+    // Used only by the writer. For each slot: the handle of the participant
+    // in it when it was last written, the tick it was written, and its
+    // quantized x, y, speeds and rotation.
+    private long[] handles;
+    private long[] seen;
+    private int[] xs, ys, speedXs, speedYs, rotations;
+
+    // Statistics kept by the writer, which are complete once the stream is
+    // closed: how long encoding took in nanoseconds, frames, bytes and
+    // participants written, and keyframes
+    private Histogram encodeTimes;
+    private long frames;
+    private long bytes;
+    private long participants;
+    private long keyframes;
+
+    /**
+     * The participants of one tick, as the game's thread copied them
+     */
+    private static class TickCopy
+    {
+        // The tick, whether it is to be a keyframe, the score, the lives,
+        // the level and the number of participants
+        long tick;
+        boolean keyframe;
+        int score, lives, level;
+        int count;
+
+        // For each participant: its slot, handle, type, size, position,
+        // speeds and rotation
+        int[] slots = new int[0];
+        long[] handles = new long[0];
+        byte[] types = new byte[0], sizes = new byte[0];
+        double[] x = new double[0], y = new double[0];
+        double[] speedX = new double[0], speedY = new double[0];
+        double[] rotation = new double[0];
+
+        /**
+         * Makes room for the given number of participants
+         */
+        void ensureCapacity (int n)
+        {
+            if (slots.length < n)
+            {
+                n = Math.max(n, slots.length * 2);
+                slots = new int[n];
+                handles = new long[n];
+                types = new byte[n];
+                sizes = new byte[n];
+                x = new double[n];
+                y = new double[n];
+                speedX = new double[n];
+                speedY = new double[n];
+                rotation = new double[n];
+            }
+        }
+    }
+
+    /**
+     * Starts a stream in the named file of the participants of engine
+     */
+    public Telemetry (String file, Engine engine) throws IOException
+    {
+        this.engine = engine;
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        free = new ConcurrentLinkedQueue<TickCopy>();
+        full = new ConcurrentLinkedQueue<TickCopy>();
+        for (int i = 0; i < TELEMETRY_COPIES; i++)
+        {
+            free.add(new TickCopy());
+        }
+        recordTimes = new Histogram();
+
+        frame = new byte[4096];
+        out = ByteBuffer.allocateDirect(TELEMETRY_BUFFER_BYTES);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        bytes = 8;
+        handles = new long[0];
+        seen = new long[0];
+        xs = ys = speedXs = speedYs = rotations = new int[0];
+        encodeTimes = new Histogram();
+
+        writer = new Thread("Telemetry")
+        {
+            public void run ()
+            {
+                write();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records the participants as they are now. This should be called once
+     * after each tick.
+     */
+    public void recordTick ()
+    {
+        long start = System.nanoTime();
+        TickCopy copy = free.poll();
+        if (copy == null)
+        {
+            dropped++;
+            keyframeNeeded = true;
+        }
+        else
+        {
+            EntityStore store = engine.getEntities();
+            int n = store.liveCount;
+            copy.ensureCapacity(n);
+            copy.tick = tick;
+            copy.keyframe = keyframeNeeded
+                    || tick % TELEMETRY_KEYFRAME_TICKS == 0;
+            copy.score = engine.getScore();
+            copy.lives = engine.getLives();
+            copy.level = engine.getLevel();
+            copy.count = n;
+            for (int k = 0; k < n; k++)
+            {
+                int s = store.live[k];
+                copy.slots[k] = s;
+                copy.handles[k] = store.getHandle(s);
+                copy.types[k] = store.type[s];
+                copy.sizes[k] = store.size[s];
+                copy.x[k] = store.x[s];
+                copy.y[k] = store.y[s];
+                copy.speedX[k] = store.speedX[s];
+                copy.speedY[k] = store.speedY[s];
+                copy.rotation[k] = store.rotation[s];
+            }
+            full.add(copy);
+            keyframeNeeded = false;
+        }
+        tick++;
+
+        long time = System.nanoTime() - start;
+        recordTimes.record(time);
+        if (time > TELEMETRY_BUDGET * 1000L)
+        {
+            overBudget++;
+        }
+    }
+
+    /**
+     * Makes the next frame a keyframe. This should be called when the game
+     * jumps, so that no participant is taken for the one that was in its
+     * slot before the jump.
+     */
+    public void markJump ()
+    {
+        keyframeNeeded = true;
+    }
+
+    /**
+     * Encodes the copy as a frame and gathers it to be written. Run by
+     * the writer thread.
+     */
+    private void encode (TickCopy copy) throws IOException
+    {
+        long start = System.nanoTime();
+        int n = copy.count;
+        if (frame.length < FRAME_HEADER_BYTES + n * PARTICIPANT_BYTES)
+        {
+            frame = new byte[FRAME_HEADER_BYTES + n * PARTICIPANT_BYTES];
+        }
+        boolean keyframe = copy.keyframe;
+        long now = copy.tick;
+
+        byte[] f = frame;
+        int p = 4;
+        f[p++] = keyframe ? KEYFRAME : DELTA;
+        p = putVarint(f, p, now);
+        p = putVarint(f, p, copy.score);
+        p = putVarint(f, p, copy.lives);
+        p = putVarint(f, p, copy.level);
+        p = putVarint(f, p, n);
+
+        int last = 0;
+        for (int k = 0; k < n; k++)
+        {
+            int s = copy.slots[k];
+            if (s >= handles.length)
+            {
+                grow(s + 1);
+            }
+            long handle = copy.handles[k];
+            int x = quantize(copy.x[k], POSITION_SCALE);
+            int y = quantize(copy.y[k], POSITION_SCALE);
+            int speedX = quantize(copy.speedX[k], SPEED_SCALE);
+            int speedY = quantize(copy.speedY[k], SPEED_SCALE);
+            int rotation = quantize(copy.rotation[k], ROTATION_SCALE
+                    / (2 * Math.PI)) & (ROTATION_SCALE - 1);
+
+            p = putVarint(f, p, zigzag(s - last));
+            last = s;
+            if (keyframe || seen[s] != now - 1 || handles[s] != handle)
+            {
+                f[p++] = (byte) (NEW | X | Y | SPEED_X | SPEED_Y | ROTATION);
+                f[p++] = (byte) (copy.types[k] | copy.sizes[k] << 4);
+                p = putVarint(f, p, zigzag(x));
+                p = putVarint(f, p, zigzag(y));
+                p = putVarint(f, p, zigzag(speedX));
+                p = putVarint(f, p, zigzag(speedY));
+                p = putVarint(f, p, rotation);
+            }
+            else
+            {
+                // Each participant is expected to have carried on at the
+                // speed it had
+                int dx = x - predict(xs[s], speedXs[s]);
+                int dy = y - predict(ys[s], speedYs[s]);
+                int dSpeedX = speedX - speedXs[s];
+                int dSpeedY = speedY - speedYs[s];
+                int dRotation = (short) (rotation - rotations[s]);
+                int flags = (dx != 0 ? X : 0) | (dy != 0 ? Y : 0)
+                        | (dSpeedX != 0 ? SPEED_X : 0)
+                        | (dSpeedY != 0 ? SPEED_Y : 0)
+                        | (dRotation != 0 ? ROTATION : 0);
+                f[p++] = (byte) flags;
+                if (dx != 0)
+                {
+                    p = putVarint(f, p, zigzag(dx));
+                }
+                if (dy != 0)
+                {
+                    p = putVarint(f, p, zigzag(dy));
+                }
+                if (dSpeedX != 0)
+                {
+                    p = putVarint(f, p, zigzag(dSpeedX));
+                }
+                if (dSpeedY != 0)
+                {
+                    p = putVarint(f, p, zigzag(dSpeedY));
+                }
+                if (dRotation != 0)
+                {
+                    p = putVarint(f, p, zigzag(dRotation));
+                }
+            }
+            handles[s] = handle;
+            seen[s] = now;
+            xs[s] = x;
+            ys[s] = y;
+            speedXs[s] = speedX;
+            speedYs[s] = speedY;
+            rotations[s] = rotation;
+        }
+
+        int length = p - 4;
+        f[0] = (byte) (length >>> 24);
+        f[1] = (byte) (length >>> 16);
+        f[2] = (byte) (length >>> 8);
+        f[3] = (byte) length;
+        emit(p);
+        frames++;
+        bytes += p;
+        participants += n;
+        if (keyframe)
+        {
+            keyframes++;
+        }
+        encodeTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns value in units of 1/scale, rounded to the nearest
+     */
+    static int quantize (double value, double scale)
+    {
+        return (int) Math.floor(value * scale + 0.5);
+    }
+
+    /**
+     * Returns the quantized position that follows the quantized position
+     * and speed, for the 16 position units and 256 speed units in a pixel
+     */
+    static int predict (int position, int speed)
+    {
+        return position + ((speed + 8) >> 4);
+    }
+
+    /**
+     * Maps a signed value to an unsigned one, so that values near zero have
+     * short varints
+     */
+    static int zigzag (int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Writes value into b at p as a varint of seven bits a byte, least
+     * significant first, and returns the position that follows it
+     */
+    static int putVarint (byte[] b, int p, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            b[p++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        b[p++] = (byte) value;
+        return p;
+    }
+
+    /**
+     * Puts the first length bytes of the frame into the buffer, writing the
+     * buffer to the file first if there isn't room. A frame bigger than the
+     * buffer is written on its own.
+     */
+    private void emit (int length) throws IOException
+    {
+        if (out.remaining() < length)
+        {
+            flush();
+        }
+        if (length > out.capacity())
+        {
+            ByteBuffer b = ByteBuffer.wrap(frame, 0, length);
+            while (b.hasRemaining())
+            {
+                channel.write(b);
+            }
+        }
+        else
+        {
+            out.put(frame, 0, length);
+        }
+    }
+
+    /**
+     * Writes what is in the buffer to the file
+     */
+    private void flush () throws IOException
+    {
+        out.flip();
+        while (out.hasRemaining())
+        {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Makes room to keep the state of the given number of slots
+     */
+    private void grow (int capacity)
+    {
+        int old = handles.length;
+        if (old < capacity)
+        {
+            capacity = Math.max(capacity, old * 2);
+            handles = Arrays.copyOf(handles, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            Arrays.fill(seen, old, capacity, -1);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            speedXs = Arrays.copyOf(speedXs, capacity);
+            speedYs = Arrays.copyOf(speedYs, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+        }
+    }
+
+    /**
+     * Encodes the copies handed over and writes them to the file until
+     * told to finish. Run by the writer thread. After an error, copies
+     * are handed back without being encoded.
+     */
+    private void write ()
+    {
+        try
+        {
+            while (true)
+            {
+                TickCopy copy = full.poll();
+                if (copy == null)
+                {
+                    LockSupport.parkNanos(POLL_NANOS);
+                    continue;
+                }
+                if (copy == END)
+                {
+                    break;
+                }
+                if (failure == null)
+                {
+                    try
+                    {
+                        encode(copy);
+                    }
+                    catch (IOException e)
+                    {
+                        failure = e;
+                    }
+                }
+                free.add(copy);
+            }
+            if (failure == null)
+            {
+                flush();
+            }
+        }
+        catch (IOException e)
+        {
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes whatever hasn't been written and closes the file. Throws the
+     * first error met while writing, if there was one.
+     */
+    public void close () throws IOException
+    {
+        full.add(END);
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reports whether the writer has taken every tick recorded so far, so
+     * that the next will not be left out
+     */
+    boolean isCaughtUp ()
+    {
+        return full.isEmpty();
+    }
+
+    /**
+     * Returns how long recording each tick took on the game's thread, in
+     * nanoseconds
+     */
+    public Histogram getRecordTimes ()
+    {
+        return recordTimes;
+    }
+
+    /**
+     * Returns how long the writer took to encode each frame, in nanoseconds.
+     * It is complete once the stream is closed.
+     */
+    public Histogram getEncodeTimes ()
+    {
+        return encodeTimes;
+    }
+
+    /**
+     * Returns the number of ticks whose recording took longer than
+     * TELEMETRY_BUDGET
+     */
+    public long getOverBudget ()
+    {
+        return overBudget;
+    }
+
+    /**
+     * Returns the number of bytes in the stream, which is complete once the
+     * stream is closed
+     */
+    public long getBytes ()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of frames left out because the writer was behind
+     */
+    public long getDropped ()
+    {
+        return dropped;
+    }
+
+    /**
+     * Summarizes the size of the stream and the cost of recording and
+     * encoding it
+     */
+    @Override
+    public String toString ()
+    {
+        return String.format("telemetry: %d ticks, %d frames in %.1f MB "
+                + "(%.1f bytes per frame, %.2f per participant), %d "
+                + "keyframes, %d dropped; record p50 %.1f us p99 %.1f us "
+                + "max %.1f us, %d over %d us; encode p50 %.1f us p99 %.1f "
+                + "us", tick, frames, bytes / 1048576.0, frames == 0 ? 0.0
+                        : bytes / (double) frames, participants == 0 ? 0.0
+                        : bytes / (double) participants, keyframes, dropped,
+                recordTimes.getPercentile(0.5) / 1e3,
+                recordTimes.getPercentile(0.99) / 1e3,
+                recordTimes.getMax() / 1e3, overBudget, TELEMETRY_BUDGET,
+                encodeTimes.getPercentile(0.5) / 1e3,
+                encodeTimes.getPercentile(0.99) / 1e3);
+    }
+}
@@ -0,0 +1,511 @@
+package asteroids;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a stream written by Telemetry one frame at a time. The file is read
+ * through a FileChannel in large blocks into one array, and each frame is
+ * decoded straight from the array into arrays that are reused from frame to
+ * frame, so that reading allocates nothing once they are big enough and a
+ * stream can be scanned about as fast as it can be read from the disk.
+ *
+ * After next returns true, the participants of the frame can be looked at by
+ * their index in the frame. Positions, speeds and rotations are as they were
+ * quantized by Telemetry, in pixels, pixels per tick and radians.
+ *
+ * A stream can be decoded from any keyframe, and since a keyframe follows
+ * any frame that was left out, every frame that was written is complete.
+ * Decoding every participant of every frame takes more time than reading
+ * the stream from a fast disk, so nextKeyframe passes over the frames in
+ * between by their lengths without reading them, for scans that only need
+ * to look at the game now and then.
+ *
+ * @author Jackson Murphy
+ */
+public class TelemetryReader
+{
+    // Number of bytes read from the file at a time
+    private final static int BLOCK_BYTES = 4 << 20;
+
+    // The file being read
+    private FileChannel channel;
+
+    // The bytes read from the file, of which those from position to limit
+    // haven't been decoded
+    private byte[] block;
+    private ByteBuffer buffer;
+    private int position, limit;
+
+    // Whether the end of the file has been reached
+    private boolean atEnd;
+
+    // The current frame: whether it is a keyframe, its tick, score, lives,
+    // level and number of participants
+    private boolean keyframe;
+    private long tick;
+    private int score, lives, level;
+    private int count;
+
+    // The slot of each participant in the current frame
+    private int[] slots;
+
+    // For each slot: the type and size of the participant in it, and its
+    // quantized x, y, speeds and rotation as of the latest frame it was in
+    private byte[] types, sizes;
+    private int[] xs, ys, speedXs, speedYs, rotations;
+
+    // Statistics: frames and participants decoded, and frames passed over
+    private long frames;
+    private long participants;
+    private long skipped;
+
+    /**
+     * Opens the named stream and checks that it is one
+     */
+    public TelemetryReader (String file) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        block = new byte[BLOCK_BYTES];
+        buffer = ByteBuffer.wrap(block);
+        slots = new int[64];
+        types = sizes = new byte[0];
+        xs = ys = speedXs = speedYs = rotations = new int[0];
+        if (!fill(8) || readInt() != Telemetry.MAGIC)
+        {
+            channel.close();
+            throw new IOException(file + " is not a telemetry stream");
+        }
+        int version = readInt();
+        if (version != Telemetry.VERSION)
+        {
+            channel.close();
+            throw new IOException(file + " has unknown version " + version);
+        }
+    }
+
+    /**
+     * Scans the stream named on the command line, decoding every frame, or
+     * only the keyframes if "keyframes" follows it, and reports how fast it
+     * was read
+     */
+    public static void main (String[] args) throws IOException
+    {
+        if (args.length < 1 || args.length > 2
+                || args.length == 2 && !args[1].equals("keyframes"))
+        {
+            System.err.println("usage: java asteroids.TelemetryReader stream "
+                    + "[keyframes]");
+            System.exit(2);
+        }
+        boolean keyframesOnly = args.length == 2;
+        long start = System.nanoTime();
+        TelemetryReader reader = new TelemetryReader(args[0]);
+        long size = reader.channel.size();
+        int lastScore = 0;
+        while (keyframesOnly ? reader.nextKeyframe() : reader.next())
+        {
+            lastScore = reader.getScore();
+        }
+        reader.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(reader);
+        System.out.printf("final score %d; scanned %.1f MB in %.3f s (%.1f "
+                + "MB/s, %.0f frames/s)%n", lastScore, size / 1048576.0,
+                seconds, size / 1048576.0 / seconds, (reader.frames
+                        + reader.skipped) / seconds);
+    }
+
+    /**
+     * Decodes the next frame. Returns false at the end of the stream.
+     */
+    public boolean next () throws IOException
+    {
+        if (!fill(4))
+        {
+            return false;
+        }
+        int length = readInt();
+        if (!fill(length))
+        {
+            throw new EOFException("The stream ends in the middle of a frame");
+        }
+        int end = position + length;
+
+        keyframe = block[position++] == Telemetry.KEYFRAME;
+        tick = readLongVarint();
+        score = readVarint();
+        lives = readVarint();
+        level = readVarint();
+        count = readVarint();
+        if (slots.length < count)
+        {
+            slots = new int[Math.max(count, slots.length * 2)];
+        }
+
+        int s = 0;
+        for (int k = 0; k < count; k++)
+        {
+            s += unzigzag(readVarint());
+            slots[k] = s;
+            if (s >= xs.length)
+            {
+                grow(s + 1);
+            }
+            int flags = block[position++];
+            if ((flags & Telemetry.NEW) != 0)
+            {
+                int kind = block[position++];
+                types[s] = (byte) (kind & 0x0F);
+                sizes[s] = (byte) (kind >> 4);
+                xs[s] = unzigzag(readVarint());
+                ys[s] = unzigzag(readVarint());
+                speedXs[s] = unzigzag(readVarint());
+                speedYs[s] = unzigzag(readVarint());
+                rotations[s] = readVarint();
+                continue;
+            }
+
+            // Carry on from the previous tick, then correct what differs
+            int x = Telemetry.predict(xs[s], speedXs[s]);
+            int y = Telemetry.predict(ys[s], speedYs[s]);
+            if (flags != 0)
+            {
+                if ((flags & Telemetry.X) != 0)
+                {
+                    x += unzigzag(readVarint());
+                }
+                if ((flags & Telemetry.Y) != 0)
+                {
+                    y += unzigzag(readVarint());
+                }
+                if ((flags & Telemetry.SPEED_X) != 0)
+                {
+                    speedXs[s] += unzigzag(readVarint());
+                }
+                if ((flags & Telemetry.SPEED_Y) != 0)
+                {
+                    speedYs[s] += unzigzag(readVarint());
+                }
+                if ((flags & Telemetry.ROTATION) != 0)
+                {
+                    rotations[s] = (rotations[s] + unzigzag(readVarint()))
+                            & (Telemetry.ROTATION_SCALE - 1);
+                }
+            }
+            xs[s] = x;
+            ys[s] = y;
+        }
+        if (position != end)
+        {
+            throw new IOException("A frame at tick " + tick
+                    + " has the wrong length");
+        }
+        frames++;
+        participants += count;
+        return true;
+    }
+
+    /**
+     * Passes over frames until a keyframe, which it decodes. Returns false at
+     * the end of the stream.
+     */
+    public boolean nextKeyframe () throws IOException
+    {
+        while (fill(5))
+        {
+            byte[] b = block;
+            int p = position;
+            if (b[p + 4] == Telemetry.KEYFRAME)
+            {
+                return next();
+            }
+            int length = (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16
+                    | (b[p + 2] & 0xFF) << 8 | (b[p + 3] & 0xFF);
+            skip(4 + length);
+            skipped++;
+        }
+        return false;
+    }
+
+    /**
+     * Passes over the next n bytes, moving the file's position rather than
+     * reading those that aren't in the block
+     */
+    private void skip (long n) throws IOException
+    {
+        int left = limit - position;
+        if (n <= left)
+        {
+            position += n;
+            return;
+        }
+        channel.position(channel.position() + n - left);
+        position = limit = 0;
+    }
+
+    /**
+     * Makes sure that at least n undecoded bytes are in the block, reading
+     * more from the file if necessary. Returns false if the file ends first.
+     */
+    private boolean fill (int n) throws IOException
+    {
+        if (limit - position >= n)
+        {
+            return true;
+        }
+
+        // Move what is left to the start, making the block bigger if a frame
+        // won't fit
+        int left = limit - position;
+        if (n > block.length)
+        {
+            byte[] bigger = new byte[Math.max(n, block.length * 2)];
+            System.arraycopy(block, position, bigger, 0, left);
+            block = bigger;
+            buffer = ByteBuffer.wrap(block);
+        }
+        else
+        {
+            System.arraycopy(block, position, block, 0, left);
+        }
+        position = 0;
+        limit = left;
+
+        while (limit < n && !atEnd)
+        {
+            buffer.limit(block.length);
+            buffer.position(limit);
+            int read = channel.read(buffer);
+            if (read < 0)
+            {
+                atEnd = true;
+            }
+            else
+            {
+                limit += read;
+            }
+        }
+        return limit >= n;
+    }
+
+    /**
+     * Decodes an int from the block
+     */
+    private int readInt ()
+    {
+        byte[] b = block;
+        int p = position;
+        position = p + 4;
+        return (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16
+                | (b[p + 2] & 0xFF) << 8 | (b[p + 3] & 0xFF);
+    }
+
+    /**
+     * Decodes a varint of up to 32 bits from the block. Most are a single
+     * byte, which is decoded without a loop.
+     */
+    private int readVarint ()
+    {
+        byte[] b = block;
+        int p = position;
+        int next = b[p++];
+        if (next >= 0)
+        {
+            position = p;
+            return next;
+        }
+        int value = next & 0x7F;
+        int shift = 7;
+        do
+        {
+            next = b[p++];
+            value |= (next & 0x7F) << shift;
+            shift += 7;
+        }
+        while (next < 0);
+        position = p;
+        return value;
+    }
+
+    /**
+     * Decodes a varint of up to 64 bits from the block
+     */
+    private long readLongVarint ()
+    {
+        byte[] b = block;
+        int p = position;
+        long value = 0;
+        int shift = 0;
+        byte next;
+        do
+        {
+            next = b[p++];
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        }
+        while (next < 0);
+        position = p;
+        return value;
+    }
+
+    /**
+     * Undoes Telemetry.zigzag
+     */
+    private static int unzigzag (int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Makes room for the state of the given number of slots
+     */
+    private void grow (int capacity)
+    {
+        capacity = Math.max(capacity, xs.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        speedXs = Arrays.copyOf(speedXs, capacity);
+        speedYs = Arrays.copyOf(speedYs, capacity);
+        rotations = Arrays.copyOf(rotations, capacity);
+    }
+
+    /**
+     * Closes the file
+     */
+    public void close () throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Reports whether the current frame is a keyframe
+     */
+    public boolean isKeyframe ()
+    {
+        return keyframe;
+    }
+
+    /**
+     * Returns the tick of the current frame
+     */
+    public long getTick ()
+    {
+        return tick;
+    }
+
+    /**
+     * Returns the score at the current frame
+     */
+    public int getScore ()
+    {
+        return score;
+    }
+
+    /**
+     * Returns the lives left at the current frame
+     */
+    public int getLives ()
+    {
+        return lives;
+    }
+
+    /**
+     * Returns the level at the current frame
+     */
+    public int getLevel ()
+    {
+        return level;
+    }
+
+    /**
+     * Returns the number of participants in the current frame
+     */
+    public int getCount ()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the slot in the store of the k'th participant in the current
+     * frame
+     */
+    public int getSlot (int k)
+    {
+        return slots[k];
+    }
+
+    /**
+     * Returns the type of the k'th participant, as in EntityStore
+     */
+    public int getType (int k)
+    {
+        return types[slots[k]];
+    }
+
+    /**
+     * Returns the size of the k'th participant, if it is an asteroid
+     */
+    public int getSize (int k)
+    {
+        return sizes[slots[k]];
+    }
+
+    /**
+     * Returns the x coordinate of the k'th participant
+     */
+    public double getX (int k)
+    {
+        return xs[slots[k]] / (double) Telemetry.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the y coordinate of the k'th participant
+     */
+    public double getY (int k)
+    {
+        return ys[slots[k]] / (double) Telemetry.POSITION_SCALE;
+    }
+
+    /**
+     * Returns the x speed of the k'th participant
+     */
+    public double getSpeedX (int k)
+    {
+        return speedXs[slots[k]] / (double) Telemetry.SPEED_SCALE;
+    }
+
+    /**
+     * Returns the y speed of the k'th participant
+     */
+    public double getSpeedY (int k)
+    {
+        return speedYs[slots[k]] / (double) Telemetry.SPEED_SCALE;
+    }
+
+    /**
+     * Returns the rotation of the k'th participant, from 0 to 2 pi
+     */
+    public double getRotation (int k)
+    {
+        return rotations[slots[k]] * (2 * Math.PI / Telemetry.ROTATION_SCALE);
+    }
+
+    /**
+     * Summarizes what has been read
+     */
+    @Override
+    public String toString ()
+    {
+        return String.format("telemetry: %d frames, %d participants, "
+                + "%d frames passed over, last tick %d", frames,
+                participants, skipped, tick);
+    }
+}
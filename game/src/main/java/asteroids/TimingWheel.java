@@ -0,0 +1,191 @@
+package asteroids;
+
+import java.util.Arrays;
+
+/**
+ * Tracks when participants are due to expire. Each slot of an EntityStore can
+ * be scheduled to expire at some future tick of the clock. The wheel has a
+ * ring of buckets, one per tick, and a slot is kept in the bucket for its
+ * expiry tick (modulo the number of buckets). Advancing the wheel by one tick
+ * visits a single bucket and collects the slots that are due.
+ *
+ * Buckets are doubly linked lists threaded through arrays indexed by slot, so
+ * scheduling and cancelling take constant time and nothing is allocated.
+ *
+ * The clock is an int that is never reset, so it wraps around after
+ * Integer.MAX_VALUE ticks. Ticks are only ever compared for equality or
+ * subtracted, and whether a slot is scheduled is kept apart from the tick it
+ * is due, so the wheel carries on working across the wrap.
+ *
+ * @author Jackson Murphy
+ */
+class TimingWheel
+{
+    // Number of buckets minus one. The number of buckets is a power of two.
+    private int mask;
+
+    // First slot in each bucket, or -1
+    private int[] heads;
+
+    // Neighbors of each slot in its bucket, or -1
+    private int[] next, prev;
+
+    // Whether each slot is scheduled, and the tick at which it expires if
+    // it is
+    private boolean[] scheduled;
+    private int[] due;
+
+    // Slots collected by the last call to advance
+    private int[] expired;
+    private int expiredCount;
+
+    /**
+     * Creates a wheel with at least the given number of buckets, for a store
+     * with room for capacity slots.
+     */
+    public TimingWheel (int buckets, int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(buckets - 1, 1)) << 1;
+        mask = size - 1;
+        heads = new int[size];
+        Arrays.fill(heads, -1);
+        next = new int[0];
+        prev = new int[0];
+        scheduled = new boolean[0];
+        due = new int[0];
+        expired = new int[16];
+        grow(capacity);
+    }
+
+    /**
+     * Makes room for the given number of slots.
+     */
+    void grow (int capacity)
+    {
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        scheduled = Arrays.copyOf(scheduled, capacity);
+        due = Arrays.copyOf(due, capacity);
+    }
+
+    /**
+     * Schedules slot s to expire at the given tick, replacing any earlier
+     * schedule.
+     */
+    void schedule (int s, int tick)
+    {
+        cancel(s);
+        int bucket = tick & mask;
+        scheduled[s] = true;
+        due[s] = tick;
+        prev[s] = -1;
+        next[s] = heads[bucket];
+        if (heads[bucket] >= 0)
+        {
+            prev[heads[bucket]] = s;
+        }
+        heads[bucket] = s;
+    }
+
+    /**
+     * Stops slot s from expiring.
+     */
+    void cancel (int s)
+    {
+        if (!scheduled[s])
+        {
+            return;
+        }
+        if (prev[s] >= 0)
+        {
+            next[prev[s]] = next[s];
+        }
+        else
+        {
+            heads[due[s] & mask] = next[s];
+        }
+        if (next[s] >= 0)
+        {
+            prev[next[s]] = prev[s];
+        }
+        scheduled[s] = false;
+    }
+
+    /**
+     * Reports whether slot s is scheduled to expire
+     */
+    boolean isScheduled (int s)
+    {
+        return scheduled[s];
+    }
+
+    /**
+     * Returns the tick at which slot s expires, which is only meaningful if
+     * it is scheduled
+     */
+    int getDue (int s)
+    {
+        return due[s];
+    }
+
+    /**
+     * Collects and unschedules the slots that expire at the given tick, and
+     * returns how many there are. They can then be retrieved with getExpired.
+     * Slots that are due a whole turn of the wheel or more later stay where
+     * they are.
+     */
+    int advance (int tick)
+    {
+        expiredCount = 0;
+        int s = heads[tick & mask];
+        while (s >= 0)
+        {
+            int following = next[s];
+            if (due[s] == tick)
+            {
+                cancel(s);
+                if (expiredCount == expired.length)
+                {
+                    expired = Arrays.copyOf(expired, expiredCount * 2);
+                }
+                expired[expiredCount++] = s;
+            }
+            s = following;
+        }
+        return expiredCount;
+    }
+
+    /**
+     * Returns the number of buckets
+     */
+    int getBucketCount ()
+    {
+        return heads.length;
+    }
+
+    /**
+     * Returns the first slot in the bucket, or -1 if it is empty. Slots that
+     * are due at the same tick expire in the order they appear in their
+     * bucket, which is the reverse of the order they were scheduled in.
+     */
+    int getFirst (int bucket)
+    {
+        return heads[bucket];
+    }
+
+    /**
+     * Returns the slot after slot s in its bucket, or -1 if there is none
+     */
+    int getNext (int s)
+    {
+        return next[s];
+    }
+
+    /**
+     * Returns the k'th slot collected by the last call to advance
+     */
+    int getExpired (int k)
+    {
+        return expired[k];
+    }
+}